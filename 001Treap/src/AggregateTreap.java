@@ -0,0 +1,194 @@
+import java.util.NoSuchElementException;
+import java.util.function.LongBinaryOperator;
+
+/**
+ * Treap where every key has a value and every node keeps the aggregate of the
+ * values in its subtree (sum, min, max or any other associative operation with
+ * an identity element). The aggregates are maintained through the rotations,
+ * split/join and the set operations of TreapImpl, via update().
+ * The aggregate of the values for any range of keys is found in O(log n).
+ * The number of keys in a range is already given by countInRange().
+ * Keys inserted with insert() get the identity as value.
+ */
+public class AggregateTreap extends TreapImpl {
+
+    // shared by all treaps from sum(), min() and max(), so that they are compatible
+    private static final LongBinaryOperator SUM = (a, b) -> a + b;
+    private static final LongBinaryOperator MIN = Math::min;
+    private static final LongBinaryOperator MAX = Math::max;
+
+    protected final long identity;
+    protected final LongBinaryOperator operation;
+
+    public static class AggregateNode extends TreapNode {
+
+        long value; // value provided by user
+        long aggregate; // the aggregate of the values in the subtree
+
+        AggregateNode(int key, float priority, long value) {
+            super(key, priority);
+            this.value = value;
+            this.aggregate = value;
+        }
+    }
+
+    /**
+     * @param identity: the value x for which operation(x, y) == operation(y, x) == y
+     * @param operation: associative operation, it does not need to be commutative
+     */
+    public AggregateTreap(long identity, LongBinaryOperator operation) {
+        super();
+        this.identity = identity;
+        this.operation = operation;
+    }
+
+    /**
+     * Same as AggregateTreap(identity, operation), but with priorities hashed
+     * with @seed like TreapImpl(seed).
+     */
+    public AggregateTreap(long identity, LongBinaryOperator operation, long seed) {
+        super(seed);
+        this.identity = identity;
+        this.operation = operation;
+    }
+
+    public static AggregateTreap sum() {
+        return new AggregateTreap(0, SUM);
+    }
+
+    public static AggregateTreap min() {
+        return new AggregateTreap(Long.MAX_VALUE, MIN);
+    }
+
+    public static AggregateTreap max() {
+        return new AggregateTreap(Long.MIN_VALUE, MAX);
+    }
+
+    /**
+     * Sets the value for @key, inserting the key if it is not in the treap.
+     */
+    public void put(int key, long value) {
+        AggregateNode node = (AggregateNode) find(key);
+        if (node != null) {
+            node.value = value;
+            updateUp(node);
+        } else {
+            node = new AggregateNode(key, priorityFor(key), value);
+            insertBST(node);
+            rotateUpHeapify(node);
+            size++;
+        }
+    }
+
+    /**
+     * @return the value for @key
+     * @throws NoSuchElementException if @key is not in the treap
+     */
+    public long get(int key) {
+        AggregateNode node = (AggregateNode) find(key);
+        if (node == null) {
+            throw new NoSuchElementException("Key not found: " + key);
+        }
+        return node.value;
+    }
+
+    /**
+     * @return the aggregate of the values of all keys in the treap
+     */
+    public long aggregate() {
+        return aggregate(root);
+    }
+
+    /**
+     * @return the aggregate (in key order) of the values of the keys in [@low, @high],
+     * or the identity if there are no such keys
+     */
+    public long aggregate(int low, int high) {
+        TreapNode current = root;
+        while (current != null) {
+            if (current.key < low) {
+                current = current.right;
+            } else if (current.key > high) {
+                current = current.left;
+            } else {
+                // only the low bound matters in the left subtree and only the high one in the right
+                long result = operation.applyAsLong(suffixAggregate(current.left, low), value(current));
+                return operation.applyAsLong(result, prefixAggregate(current.right, high));
+            }
+        }
+        return identity;
+    }
+
+    // The aggregate of the keys >= low in the subtree, the pieces found lower are to the left
+    protected long suffixAggregate(TreapNode node, int low) {
+        long result = identity;
+        while (node != null) {
+            if (node.key >= low) {
+                long piece = operation.applyAsLong(value(node), aggregate(node.right));
+                result = operation.applyAsLong(piece, result);
+                node = node.left;
+            } else {
+                node = node.right;
+            }
+        }
+        return result;
+    }
+
+    // The aggregate of the keys <= high in the subtree, the pieces found lower are to the right
+    protected long prefixAggregate(TreapNode node, int high) {
+        long result = identity;
+        while (node != null) {
+            if (node.key <= high) {
+                long piece = operation.applyAsLong(aggregate(node.left), value(node));
+                result = operation.applyAsLong(result, piece);
+                node = node.right;
+            } else {
+                node = node.left;
+            }
+        }
+        return result;
+    }
+
+    @Override
+    protected void update(TreapNode node) {
+        super.update(node);
+        AggregateNode aggregateNode = (AggregateNode) node;
+        long result = operation.applyAsLong(aggregate(node.left), aggregateNode.value);
+        aggregateNode.aggregate = operation.applyAsLong(result, aggregate(node.right));
+    }
+
+    @Override
+    protected TreapNode createNode(int key) {
+        return new AggregateNode(key, priorityFor(key), identity);
+    }
+
+    /*
+     * The values of the two treaps can only be mixed if they have the same identity
+     * and the same operation object - different lambdas are treated as different operations.
+     */
+    @Override
+    protected boolean isCompatible(TreapImpl other) {
+        AggregateTreap aggregateTreap = (AggregateTreap) other;
+        return super.isCompatible(other)
+                && identity == aggregateTreap.identity && operation == aggregateTreap.operation;
+    }
+
+    @Override
+    protected void copyFromFirst(TreapNode kept, TreapNode fromFirst) {
+        ((AggregateNode) kept).value = value(fromFirst);
+    }
+
+    @Override
+    protected TreapImpl emptyCopy() {
+        return hashedPriorities ? new AggregateTreap(identity, operation, prioritySeed)
+                : new AggregateTreap(identity, operation);
+    }
+
+    protected long aggregate(TreapNode node) {
+        return (node != null) ? ((AggregateNode) node).aggregate : identity;
+    }
+
+    protected static long value(TreapNode node) {
+        return ((AggregateNode) node).value;
+    }
+}
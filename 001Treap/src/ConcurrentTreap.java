@@ -0,0 +1,516 @@
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntConsumer;
+
+/**
+ * Thread-safe treap for read-mostly workloads, with the optimistic hand-over-hand
+ * validation of ConcurrentAVLTree (after Bronson, Casper, Chafi, Olukotun).
+ *
+ * containsKey() and the range reads never take a lock: each node has a version
+ * that changes when a rotation moves keys out of its subtree, and a reader that
+ * sees a changed version goes back to the parent and retries from there.
+ * insert() and remove() lock only the nodes they link, unlink or rotate - a rotation
+ * locks the parent of the rotated pair and the pair itself, always from the top down.
+ * A treap update does O(1) rotations in expectation near the bottom of the tree, so
+ * writers in different subtrees do not wait for each other, and a write only makes
+ * the readers that are passing through the rotated nodes retry.
+ *
+ * A new node is linked as a leaf and rotated up while its priority is above its
+ * parent's, so the heap order is only off around the nodes that are being inserted.
+ * Like in ConcurrentAVLTree, removing a node with two children only marks it as a
+ * routing node (it keeps guiding the searches and its place in the heap order), it is
+ * unlinked once it has at most one child. Inserting its key again just marks it back.
+ * The nodes do not keep subtree sizes - every update would have to change all of
+ * its ancestors up to the root - so countInRange() walks the keys in the range.
+ */
+public class ConcurrentTreap implements Treap {
+
+    // The version of a node: the unlinked mark, or the shrinking bit plus a count of the shrinks
+    protected static final long UNLINKED = 1L;
+    protected static final long SHRINKING = 2L;
+    protected static final long SHRINK_COUNT_INCREMENT = 4L;
+    // A thread spins that many times on a node before it starts yielding
+    protected static final int SPIN_COUNT = 100;
+
+    // Results of the attempts, RETRY means go back to the parent
+    protected static final int RETRY = -1;
+    protected static final int FALSE = 0;
+    protected static final int TRUE = 1;
+
+    // directions of the children
+    protected static final int LEFT = -1;
+    protected static final int RIGHT = 1;
+
+    /**
+     * The nodes are locked with synchronized, always the parent before the child.
+     */
+    protected static final class Node {
+        final int key;
+        final float priority;
+        // false for a routing node - its key was removed, but it is still in the tree
+        volatile boolean present;
+        // true while the node is rotated up after it is linked
+        volatile boolean rising;
+        volatile long version;
+        volatile Node parent;
+        volatile Node left, right;
+
+        Node(int key, float priority, Node parent) {
+            this.key = key;
+            this.priority = priority;
+            this.present = true;
+            this.rising = false;
+            this.version = 0;
+            this.parent = parent;
+            this.left = null;
+            this.right = null;
+        }
+
+        Node child(int direction) {
+            return (direction < 0) ? left : right;
+        }
+
+        void setChild(int direction, Node child) {
+            if (direction < 0) {
+                left = child;
+            } else {
+                right = child;
+            }
+        }
+    }
+
+    // Its right child is the root, so the root is changed like any other child. It is above every node.
+    protected final Node rootHolder;
+    protected final LongAdder size;
+
+    public ConcurrentTreap() {
+        rootHolder = new Node(Integer.MIN_VALUE, Float.NEGATIVE_INFINITY, null);
+        size = new LongAdder();
+    }
+
+    /**
+     * Creates a concurrent treap with the keys and the priorities of @treap.
+     * The nodes are copied, so @treap can still be used after that.
+     */
+    public ConcurrentTreap(TreapImpl treap) {
+        this();
+        rootHolder.right = copy(treap.root, rootHolder);
+        size.add(treap.size);
+    }
+
+    @Override
+    // If the key is already in the treap the insertion is ignored
+    public void insert(int key) {
+        if (attemptInsert(key, rootHolder, RIGHT, 0) == TRUE) {
+            size.increment();
+        }
+    }
+
+    @Override
+    public void remove(int key) {
+        if (attemptRemove(key, rootHolder, RIGHT, 0) == TRUE) {
+            size.decrement();
+        }
+    }
+
+    /**
+     * Never blocks - it only spins (and yields) while a node on its path is being rotated.
+     */
+    @Override
+    public boolean containsKey(int key) {
+        return attemptGet(key, rootHolder, RIGHT, 0) == TRUE;
+    }
+
+    /*
+     * Exact when there are no writers in progress.
+     */
+    public int size() {
+        return size.intValue();
+    }
+
+    /**
+     * @return the number of keys in [@low, @high], counted while walking them
+     */
+    public int countInRange(int low, int high) {
+        if (low > high) {
+            return 0;
+        }
+        RangeReader reader = new RangeReader(low, high, false);
+        readChild(reader, rootHolder, RIGHT, 0);
+        return reader.count;
+    }
+
+    /**
+     * Calls @action for each key in [@low, @high] in ascending order. The keys
+     * are collected first, so @action can take as long as it needs.
+     */
+    public void forEachInRange(int low, int high, IntConsumer action) {
+        int[] keys = rangeKeys(low, high);
+        for (int key : keys) {
+            action.accept(key);
+        }
+    }
+
+    /**
+     * Returns the keys in [@low, @high] in ascending order without taking a lock.
+     * Like the iterators of the concurrent collections it is weakly consistent:
+     * the keys that are in the treap during the whole call are all returned, while
+     * the keys inserted or removed meanwhile may be returned or not.
+     */
+    public int[] rangeKeys(int low, int high) {
+        if (low > high) {
+            return new int[0];
+        }
+        RangeReader reader = new RangeReader(low, high, true);
+        readChild(reader, rootHolder, RIGHT, 0);
+        return Arrays.copyOf(reader.keys, reader.count);
+    }
+
+    /*
+     * Just for testing purposes
+     */
+    public int getHeight() {
+        return height(rootHolder.right);
+    }
+
+    // Searches, node is validated with nodeVersion after reading each link
+
+    private int attemptGet(int key, Node node, int direction, long nodeVersion) {
+        while (true) {
+            Node child = node.child(direction);
+            if (node.version != nodeVersion) {
+                return RETRY;
+            }
+            if (child == null) {
+                return FALSE;
+            }
+            int childKey = child.key;
+            if (key == childKey) {
+                return child.present ? TRUE : FALSE;
+            }
+            long childVersion = child.version;
+            if ((childVersion & SHRINKING) != 0) {
+                waitUntilNotShrinking(child);
+            } else if (childVersion != UNLINKED && child == node.child(direction)) {
+                if (node.version != nodeVersion) {
+                    return RETRY;
+                }
+                int result = attemptGet(key, child, (key < childKey) ? LEFT : RIGHT, childVersion);
+                if (result != RETRY) {
+                    return result;
+                }
+            }
+        }
+    }
+
+    private int attemptInsert(int key, Node node, int direction, long nodeVersion) {
+        int result;
+        do {
+            result = RETRY;
+            Node child = node.child(direction);
+            if (node.version != nodeVersion) {
+                return RETRY;
+            }
+            if (child == null) {
+                result = attemptLinkNew(key, node, direction, nodeVersion);
+            } else if (key == child.key) {
+                result = attemptMakePresent(child);
+            } else {
+                long childVersion = child.version;
+                if ((childVersion & SHRINKING) != 0) {
+                    waitUntilNotShrinking(child);
+                } else if (childVersion != UNLINKED && child == node.child(direction)) {
+                    if (node.version != nodeVersion) {
+                        return RETRY;
+                    }
+                    result = attemptInsert(key, child, (key < child.key) ? LEFT : RIGHT, childVersion);
+                }
+            }
+        } while (result == RETRY);
+        return result;
+    }
+
+    private int attemptRemove(int key, Node node, int direction, long nodeVersion) {
+        int result;
+        do {
+            result = RETRY;
+            Node child = node.child(direction);
+            if (node.version != nodeVersion) {
+                return RETRY;
+            }
+            if (child == null) {
+                return FALSE;
+            }
+            if (key == child.key) {
+                result = attemptRemoveNode(child);
+            } else {
+                long childVersion = child.version;
+                if ((childVersion & SHRINKING) != 0) {
+                    waitUntilNotShrinking(child);
+                } else if (childVersion != UNLINKED && child == node.child(direction)) {
+                    if (node.version != nodeVersion) {
+                        return RETRY;
+                    }
+                    result = attemptRemove(key, child, (key < child.key) ? LEFT : RIGHT, childVersion);
+                }
+            }
+        } while (result == RETRY);
+        return result;
+    }
+
+    /*
+     * Goes through the keys of the subtree of the child in [reader.from, reader.high] in order.
+     * When a version check fails the keys seen so far are kept and the walk goes on from
+     * the parent, with reader.from moved after the last key. The root holder never changes
+     * its version, so a walk from it always ends with TRUE.
+     */
+    private int readChild(RangeReader reader, Node node, int direction, long nodeVersion) {
+        while (true) {
+            Node child = node.child(direction);
+            if (node.version != nodeVersion) {
+                return RETRY;
+            }
+            if (child == null) {
+                return TRUE;
+            }
+            long childVersion = child.version;
+            if ((childVersion & SHRINKING) != 0) {
+                waitUntilNotShrinking(child);
+            } else if (childVersion != UNLINKED && child == node.child(direction)) {
+                if (node.version != nodeVersion) {
+                    return RETRY;
+                }
+                if (readSubtree(reader, child, childVersion) == TRUE) {
+                    return TRUE;
+                }
+            }
+        }
+    }
+
+    private int readSubtree(RangeReader reader, Node node, long nodeVersion) {
+        int key = node.key;
+        if (reader.from < key && readChild(reader, node, LEFT, nodeVersion) == RETRY) {
+            return RETRY;
+        }
+        if (key >= reader.from && key <= reader.high && node.present) {
+            reader.add(key);
+        }
+        if (key < reader.high && readChild(reader, node, RIGHT, nodeVersion) == RETRY) {
+            return RETRY;
+        }
+        return TRUE;
+    }
+
+    protected static final class RangeReader {
+        // the smallest key that is still to be read, a long so that it can go past Integer.MAX_VALUE
+        long from;
+        final int high;
+        // null if the keys are only counted
+        int[] keys;
+        int count;
+
+        RangeReader(int low, int high, boolean collect) {
+            this.from = low;
+            this.high = high;
+            this.keys = collect ? new int[16] : null;
+            this.count = 0;
+        }
+
+        void add(int key) {
+            if (keys != null) {
+                if (count == keys.length) {
+                    keys = Arrays.copyOf(keys, count * 2);
+                }
+                keys[count] = key;
+            }
+            count++;
+            from = (long) key + 1;
+        }
+    }
+
+    private static void waitUntilNotShrinking(Node node) {
+        for (int spins = 0; (node.version & SHRINKING) != 0; spins++) {
+            if (spins > SPIN_COUNT) {
+                Thread.yield();
+            }
+        }
+    }
+
+    // Changes of single nodes
+
+    private int attemptLinkNew(int key, Node node, int direction, long nodeVersion) {
+        Node newNode = new Node(key, ThreadLocalRandom.current().nextFloat(), node);
+        newNode.rising = true;
+        synchronized (node) {
+            if (node.version != nodeVersion || node.child(direction) != null) {
+                return RETRY;
+            }
+            node.setChild(direction, newNode);
+        }
+        rotateUpHeapify(newNode);
+        newNode.rising = false;
+        // it may have been removed while it was rising
+        unlinkRouting(newNode);
+        return TRUE;
+    }
+
+    // The key is already in the treap, maybe in a routing node
+    private int attemptMakePresent(Node node) {
+        synchronized (node) {
+            if (node.version == UNLINKED) {
+                return RETRY;
+            }
+            if (node.present) {
+                return FALSE;
+            }
+            node.present = true;
+            return TRUE;
+        }
+    }
+
+    private int attemptRemoveNode(Node node) {
+        synchronized (node) {
+            if (node.version == UNLINKED) {
+                return RETRY;
+            }
+            if (!node.present) {
+                return FALSE;
+            }
+            node.present = false;
+        }
+        unlinkRouting(node);
+        return TRUE;
+    }
+
+    /*
+     * Rotates a newly linked node up until its parent is above it. If the parent is still rising
+     * itself, its place is not settled yet - it may rotate over a node that is below this one -
+     * so this one waits until it can compare itself with a settled parent.
+     */
+    private void rotateUpHeapify(Node node) {
+        int spins = 0;
+        while (true) {
+            Node parent = node.parent;
+            if (!isAbove(node, parent)) {
+                if (!parent.rising) {
+                    return;
+                }
+                if (++spins > SPIN_COUNT) {
+                    Thread.yield();
+                }
+                continue;
+            }
+            Node grandParent = parent.parent;
+            boolean rotated = false;
+            synchronized (grandParent) {
+                if (grandParent.version != UNLINKED && parent.parent == grandParent) {
+                    synchronized (parent) {
+                        if (node.parent == parent) {
+                            synchronized (node) {
+                                rotateUp_nl(grandParent, parent, node);
+                            }
+                            rotated = true;
+                        }
+                    }
+                }
+            }
+            if (rotated) {
+                // the parent went down and may have been left with a single child
+                unlinkRouting(parent);
+            }
+        }
+    }
+
+    /*
+     * Unlinks node if it is a routing node with at most one child, and then its parent
+     * if that leaves it as such. A rising node is unlinked by its inserter once it stops,
+     * as the heap order around it is not settled yet.
+     */
+    private void unlinkRouting(Node node) {
+        while (canUnlink(node)) {
+            Node parent = node.parent;
+            synchronized (parent) {
+                if (parent.version == UNLINKED || node.parent != parent) {
+                    continue;
+                }
+                synchronized (node) {
+                    if (!canUnlink(node)) {
+                        return;
+                    }
+                    Node child = (node.left != null) ? node.left : node.right;
+                    changeChild(parent, node, child);
+                    if (child != null) {
+                        child.parent = parent;
+                    }
+                    node.version = UNLINKED;
+                }
+            }
+            node = parent;
+        }
+    }
+
+    private boolean canUnlink(Node node) {
+        return node != rootHolder && node.version != UNLINKED && !node.present && !node.rising
+                && (node.left == null || node.right == null);
+    }
+
+    /*
+     * Rotates node (locked, like its parent and grandParent) above its parent. The parent
+     * goes down, so it is marked as shrinking, as the readers in its subtree may be looking
+     * for a key that moves out of it. The subtree of node only grows.
+     */
+    private static void rotateUp_nl(Node grandParent, Node parent, Node node) {
+        long parentVersion = parent.version;
+        parent.version = parentVersion | SHRINKING;
+
+        if (parent.left == node) {
+            Node inner = node.right;
+            parent.left = inner;
+            if (inner != null) {
+                inner.parent = parent;
+            }
+            node.right = parent;
+        } else {
+            Node inner = node.left;
+            parent.right = inner;
+            if (inner != null) {
+                inner.parent = parent;
+            }
+            node.left = parent;
+        }
+        parent.parent = node;
+        changeChild(grandParent, parent, node);
+        node.parent = grandParent;
+
+        parent.version = parentVersion + SHRINK_COUNT_INCREMENT;
+    }
+
+    // The same order as TreapImpl.isAbove() - by priority and then by key
+    private static boolean isAbove(Node first, Node second) {
+        return first.priority < second.priority
+                || (first.priority == second.priority && first.key < second.key);
+    }
+
+    private static void changeChild(Node node, Node currChild, Node newChild) {
+        if (node.left == currChild) {
+            node.left = newChild;
+        } else if (node.right == currChild) {
+            node.right = newChild;
+        }
+    }
+
+    private static Node copy(TreapImpl.TreapNode node, Node parent) {
+        if (node == null) {
+            return null;
+        }
+        Node copy = new Node(node.key, node.priority, parent);
+        copy.left = copy(node.left, copy);
+        copy.right = copy(node.right, copy);
+        return copy;
+    }
+
+    private static int height(Node node) {
+        return (node != null) ? 1 + Math.max(height(node.left), height(node.right)) : 0;
+    }
+}
@@ -0,0 +1,96 @@
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Scaling of ConcurrentTreap vs a TreapImpl behind a global synchronized block,
+ * by default with 95% containsKey and 5% insert/remove, from 1 to N threads.
+ * A lower read percent shows how the writers scale.
+ * Usage: java ConcurrentTreapBenchmark [keys] [maxThreads] [millisPerRun] [readPercent]
+ */
+public class ConcurrentTreapBenchmark {
+
+    public static void main(String[] args) throws InterruptedException {
+        int keys = (args.length > 0) ? Integer.parseInt(args[0]) : 1_000_000;
+        int maxThreads = (args.length > 1) ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        long millis = (args.length > 2) ? Long.parseLong(args[2]) : 2000;
+        int readPercent = (args.length > 3) ? Integer.parseInt(args[3]) : 95;
+
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            ConcurrentTreap concurrent = new ConcurrentTreap();
+            for (int i = 0; i < keys; i += 2) {
+                concurrent.insert(i);
+            }
+            long concurrentOps = run(concurrent, keys, threads, millis, readPercent);
+
+            TreapImpl synchronizedTreap = new TreapImpl();
+            for (int i = 0; i < keys; i += 2) {
+                synchronizedTreap.insert(i);
+            }
+            long synchronizedOps = run(new SynchronizedTreap(synchronizedTreap), keys, threads, millis, readPercent);
+
+            System.out.println(threads + " threads: ConcurrentTreap " + (concurrentOps * 1000 / millis)
+                    + " ops/s, synchronized TreapImpl " + (synchronizedOps * 1000 / millis) + " ops/s");
+            if (threads < maxThreads && threads * 2 > maxThreads) {
+                threads = maxThreads / 2;
+            }
+        }
+    }
+
+    private static long run(Treap treap, int keys, int threads, long millis, int readPercent)
+            throws InterruptedException {
+        AtomicBoolean stop = new AtomicBoolean(false);
+        LongAdder operations = new LongAdder();
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                long count = 0;
+                while (!stop.get()) {
+                    int key = random.nextInt(keys);
+                    int dice = random.nextInt(100);
+                    if (dice < readPercent) {
+                        treap.containsKey(key);
+                    } else if ((dice & 1) == 0) {
+                        treap.insert(key);
+                    } else {
+                        treap.remove(key);
+                    }
+                    count++;
+                }
+                operations.add(count);
+                done.countDown();
+            }).start();
+        }
+        Thread.sleep(millis);
+        stop.set(true);
+        done.await();
+        return operations.sum();
+    }
+
+    // The current way - every operation in a global synchronized block
+    private static class SynchronizedTreap implements Treap {
+
+        private final TreapImpl treap;
+
+        SynchronizedTreap(TreapImpl treap) {
+            this.treap = treap;
+        }
+
+        @Override
+        public synchronized void insert(int key) {
+            treap.insert(key);
+        }
+
+        @Override
+        public synchronized void remove(int key) {
+            treap.remove(key);
+        }
+
+        @Override
+        public synchronized boolean containsKey(int key) {
+            return treap.containsKey(key);
+        }
+    }
+}
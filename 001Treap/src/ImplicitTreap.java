@@ -0,0 +1,295 @@
+/**
+ * Treap with implicit keys - a sequence of ints where the position of an
+ * element is the number of elements before it in the in-order traversal
+ * (derived from the subtree sizes), so inserting and removing at any position
+ * is O(log n) expected instead of O(n) for an array list.
+ * Reversing and adding a value to a range are done lazily.
+ */
+public class ImplicitTreap {
+
+    protected Node root;
+
+    protected static class Node {
+
+        int value; // element provided by user
+        float priority; // node's generated priority
+        int size; // number of nodes in the subtree
+        Node left; // pointer for the left subtree
+        Node right; // pointer for the right subtree
+        boolean reversed; // the subtrees of the children are still to be reversed
+        int pendingAdd; // value still to be added to the subtrees of the children
+
+        Node(int value) {
+            this.value = value;
+            priority = Treap.generator.nextFloat();
+            size = 1;
+            left = null;
+            right = null;
+            reversed = false;
+            pendingAdd = 0;
+        }
+    }
+
+    public ImplicitTreap() {
+        root = null;
+    }
+
+    public int size() {
+        return size(root);
+    }
+
+    public boolean isEmpty() {
+        return root == null;
+    }
+
+    /**
+     * Returns the element at the given @index.
+     *
+     * @throws IndexOutOfBoundsException if @index is not in [0, size)
+     */
+    public int get(int index) {
+        return nodeAt(index).value;
+    }
+
+    /**
+     * Replaces the element at the given @index.
+     *
+     * @return the old element
+     * @throws IndexOutOfBoundsException if @index is not in [0, size)
+     */
+    public int set(int index, int value) {
+        Node node = nodeAt(index);
+        int old = node.value;
+        node.value = value;
+        return old;
+    }
+
+    /**
+     * Appends @value at the end of the sequence.
+     */
+    public void add(int value) {
+        root = merge(root, new Node(value));
+    }
+
+    /**
+     * Inserts @value so that it becomes the element at @index.
+     *
+     * @throws IndexOutOfBoundsException if @index is not in [0, size]
+     */
+    public void insertAt(int index, int value) {
+        checkPositionIndex(index);
+        Node[] parts = new Node[2];
+        split(root, index, parts);
+        root = merge(merge(parts[0], new Node(value)), parts[1]);
+    }
+
+    /**
+     * Removes the element at @index.
+     *
+     * @return the removed element
+     * @throws IndexOutOfBoundsException if @index is not in [0, size)
+     */
+    public int removeAt(int index) {
+        checkElementIndex(index);
+        Node[] parts = new Node[2];
+        split(root, index, parts);
+        Node less = parts[0];
+        split(parts[1], 1, parts);
+        root = merge(less, parts[1]);
+        return parts[0].value;
+    }
+
+    /**
+     * Appends the elements of @other at the end of this sequence.
+     * The @other sequence is left empty.
+     */
+    public void concat(ImplicitTreap other) {
+        if (other != null && other != this) {
+            root = merge(root, other.root);
+            other.root = null;
+        }
+    }
+
+    /**
+     * Splits the sequence at @index. This sequence keeps the elements before
+     * @index and the rest are moved to the returned one.
+     *
+     * @throws IndexOutOfBoundsException if @index is not in [0, size]
+     */
+    public ImplicitTreap split(int index) {
+        checkPositionIndex(index);
+        Node[] parts = new Node[2];
+        split(root, index, parts);
+        root = parts[0];
+        ImplicitTreap rest = new ImplicitTreap();
+        rest.root = parts[1];
+        return rest;
+    }
+
+    /**
+     * Reverses the order of the elements with indices in [@from, @to).
+     *
+     * @throws IndexOutOfBoundsException if the range is not inside [0, size]
+     */
+    public void reverse(int from, int to) {
+        checkRange(from, to);
+        Node[] range = cutRange(from, to);
+        applyReverse(range[1]);
+        root = merge(merge(range[0], range[1]), range[2]);
+    }
+
+    /**
+     * Adds @delta to each of the elements with indices in [@from, @to).
+     *
+     * @throws IndexOutOfBoundsException if the range is not inside [0, size]
+     */
+    public void addToRange(int from, int to, int delta) {
+        checkRange(from, to);
+        Node[] range = cutRange(from, to);
+        applyAdd(range[1], delta);
+        root = merge(merge(range[0], range[1]), range[2]);
+    }
+
+    public int[] toArray() {
+        int[] result = new int[size()];
+        fillArray(root, result, 0);
+        return result;
+    }
+
+    // Returns the parts before, inside and after [from, to)
+    private Node[] cutRange(int from, int to) {
+        Node[] parts = new Node[2];
+        split(root, to, parts);
+        Node after = parts[1];
+        split(parts[0], from, parts);
+        return new Node[] { parts[0], parts[1], after };
+    }
+
+    private Node nodeAt(int index) {
+        checkElementIndex(index);
+        Node current = root;
+        while (true) {
+            push(current);
+            int leftSize = size(current.left);
+            if (index < leftSize) {
+                current = current.left;
+            } else if (index == leftSize) {
+                return current;
+            } else {
+                index -= leftSize + 1;
+                current = current.right;
+            }
+        }
+    }
+
+    private int fillArray(Node node, int[] result, int index) {
+        if (node == null) {
+            return index;
+        }
+        push(node);
+        index = fillArray(node.left, result, index);
+        result[index++] = node.value;
+        return fillArray(node.right, result, index);
+    }
+
+    /*
+     * Splits the subtree of @node into parts[0] - the first @count elements and
+     * parts[1] - the rest of them.
+     */
+    protected static void split(Node node, int count, Node[] parts) {
+        if (node == null) {
+            parts[0] = null;
+            parts[1] = null;
+            return;
+        }
+        push(node);
+        if (size(node.left) >= count) {
+            split(node.left, count, parts);
+            node.left = parts[1];
+            update(node);
+            parts[1] = node;
+        } else {
+            split(node.right, count - size(node.left) - 1, parts);
+            node.right = parts[0];
+            update(node);
+            parts[0] = node;
+        }
+    }
+
+    // All elements of @first go before the elements of @second
+    protected static Node merge(Node first, Node second) {
+        if (first == null) {
+            return second;
+        }
+        if (second == null) {
+            return first;
+        }
+        if (first.priority < second.priority) {
+            push(first);
+            first.right = merge(first.right, second);
+            update(first);
+            return first;
+        } else {
+            push(second);
+            second.left = merge(first, second.left);
+            update(second);
+            return second;
+        }
+    }
+
+    // Passes the pending operations of @node to its children
+    protected static void push(Node node) {
+        if (node.reversed) {
+            applyReverse(node.left);
+            applyReverse(node.right);
+            node.reversed = false;
+        }
+        if (node.pendingAdd != 0) {
+            applyAdd(node.left, node.pendingAdd);
+            applyAdd(node.right, node.pendingAdd);
+            node.pendingAdd = 0;
+        }
+    }
+
+    protected static void applyReverse(Node node) {
+        if (node != null) {
+            Node oldLeft = node.left;
+            node.left = node.right;
+            node.right = oldLeft;
+            node.reversed = !node.reversed;
+        }
+    }
+
+    protected static void applyAdd(Node node, int delta) {
+        if (node != null) {
+            node.value += delta;
+            node.pendingAdd += delta;
+        }
+    }
+
+    protected static void update(Node node) {
+        node.size = size(node.left) + 1 + size(node.right);
+    }
+
+    protected static int size(Node node) {
+        return (node != null) ? node.size : 0;
+    }
+
+    private void checkElementIndex(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size());
+        }
+    }
+
+    private void checkPositionIndex(int index) {
+        if (index < 0 || index > size()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size());
+        }
+    }
+
+    private void checkRange(int from, int to) {
+        if (from < 0 || to > size() || from > to) {
+            throw new IndexOutOfBoundsException("Range: [" + from + ", " + to + "), size: " + size());
+        }
+    }
+}
@@ -0,0 +1,234 @@
+/**
+ * Fully persistent treap. The nodes are immutable and an update copies only
+ * the nodes on the search path (plus the ones on the split/join spines), all
+ * the other subtrees are shared with the previous version. So a snapshot is
+ * just a reference to the current root - it is O(1) and readers of a
+ * snapshot never block and never see a half done update.
+ *
+ * insert() and remove() move this treap to the new version. They are
+ * synchronized, so there can be several writers, while the readers are not
+ * synchronized at all.
+ */
+public class PersistentTreap implements Treap {
+
+    protected static final class Node {
+
+        final int key; // key provided by user
+        final float priority; // node's generated priority
+        final int size; // number of nodes in the subtree
+        final Node left; // pointer for the left subtree
+        final Node right; // pointer for the right subtree
+
+        Node(int key, float priority, Node left, Node right) {
+            this.key = key;
+            this.priority = priority;
+            this.left = left;
+            this.right = right;
+            this.size = size(left) + 1 + size(right);
+        }
+    }
+
+    // the current version, published to the readers
+    protected volatile Node root;
+    // if true the priorities are a hash of the key and prioritySeed instead of random
+    protected final boolean hashedPriorities;
+    protected final long prioritySeed;
+    // nodes allocated by the last update, only for the writer
+    protected int allocations;
+
+    public PersistentTreap() {
+        this(null, false, 0);
+    }
+
+    /**
+     * Creates a treap whose priorities are a hash of the key and @seed,
+     * like TreapImpl(seed).
+     */
+    public PersistentTreap(long seed) {
+        this(null, true, seed);
+    }
+
+    protected PersistentTreap(Node root, boolean hashedPriorities, long prioritySeed) {
+        this.root = root;
+        this.hashedPriorities = hashedPriorities;
+        this.prioritySeed = prioritySeed;
+        this.allocations = 0;
+    }
+
+    @Override
+    // If there is already another node with the same key the insertion is ignored
+    public synchronized void insert(int key) {
+        root = insertVersion(root, key);
+    }
+
+    @Override
+    public synchronized void remove(int key) {
+        root = removeVersion(root, key);
+    }
+
+    @Override
+    public boolean containsKey(int key) {
+        return find(root, key) != null;
+    }
+
+    public int size() {
+        return size(root);
+    }
+
+    /**
+     * Returns a read-only view of the current version in O(1). Later updates
+     * of this treap are not visible in the snapshot.
+     */
+    public PersistentTreap snapshot() {
+        return new Snapshot(root, hashedPriorities, prioritySeed);
+    }
+
+    /**
+     * Returns a new version with @key added. This treap is not changed.
+     */
+    public synchronized PersistentTreap withKey(int key) {
+        return new PersistentTreap(insertVersion(root, key), hashedPriorities, prioritySeed);
+    }
+
+    /**
+     * Returns a new version with @key removed. This treap is not changed.
+     */
+    public synchronized PersistentTreap withoutKey(int key) {
+        return new PersistentTreap(removeVersion(root, key), hashedPriorities, prioritySeed);
+    }
+
+    /**
+     * @return the number of nodes allocated by the last insert/remove/withKey/withoutKey
+     */
+    public synchronized int getLastAllocationCount() {
+        return allocations;
+    }
+
+    protected Node insertVersion(Node current, int key) {
+        allocations = 0;
+        if (find(current, key) != null) {
+            return current;
+        }
+        return insert(current, key, priorityFor(key));
+    }
+
+    protected Node removeVersion(Node current, int key) {
+        allocations = 0;
+        if (find(current, key) == null) {
+            return current;
+        }
+        return remove(current, key);
+    }
+
+    // Return null if the node is not found
+    protected static Node find(Node current, int key) {
+        while (current != null) {
+            if (current.key == key) {
+                break;
+            } else if (key < current.key) {
+                current = current.left;
+            } else {
+                current = current.right;
+            }
+        }
+        return current;
+    }
+
+    // @key must not be in the subtree
+    protected Node insert(Node node, int key, float priority) {
+        if (node == null) {
+            return newNode(key, priority, null, null);
+        }
+        if (isAbove(key, priority, node)) {
+            Node[] parts = new Node[2];
+            split(node, key, parts);
+            return newNode(key, priority, parts[0], parts[1]);
+        }
+        if (key < node.key) {
+            return newNode(node.key, node.priority, insert(node.left, key, priority), node.right);
+        } else {
+            return newNode(node.key, node.priority, node.left, insert(node.right, key, priority));
+        }
+    }
+
+    // @key must be in the subtree
+    protected Node remove(Node node, int key) {
+        if (key < node.key) {
+            return newNode(node.key, node.priority, remove(node.left, key), node.right);
+        } else if (key > node.key) {
+            return newNode(node.key, node.priority, node.left, remove(node.right, key));
+        } else {
+            return join(node.left, node.right);
+        }
+    }
+
+    /*
+     * Splits the subtree of @node (which does not contain @key) into parts[0] - the keys
+     * smaller than @key and parts[1] - the keys bigger than @key, copying the nodes on the path.
+     */
+    protected void split(Node node, int key, Node[] parts) {
+        if (node == null) {
+            parts[0] = null;
+            parts[1] = null;
+        } else if (node.key < key) {
+            split(node.right, key, parts);
+            parts[0] = newNode(node.key, node.priority, node.left, parts[0]);
+        } else {
+            split(node.left, key, parts);
+            parts[1] = newNode(node.key, node.priority, parts[1], node.right);
+        }
+    }
+
+    // All the keys in @less are smaller than the keys in @greater
+    protected Node join(Node less, Node greater) {
+        if (less == null) {
+            return greater;
+        }
+        if (greater == null) {
+            return less;
+        }
+        if (isAbove(less.key, less.priority, greater)) {
+            return newNode(less.key, less.priority, less.left, join(less.right, greater));
+        } else {
+            return newNode(greater.key, greater.priority, join(less, greater.left), greater.right);
+        }
+    }
+
+    protected Node newNode(int key, float priority, Node left, Node right) {
+        allocations++;
+        return new Node(key, priority, left, right);
+    }
+
+    protected float priorityFor(int key) {
+        return hashedPriorities ? TreapImpl.hashPriority(key, prioritySeed) : generator.nextFloat();
+    }
+
+    // The same order as TreapImpl.isAbove
+    protected static boolean isAbove(int key, float priority, Node node) {
+        return priority < node.priority || (priority == node.priority && key < node.key);
+    }
+
+    protected static int size(Node node) {
+        return (node != null) ? node.size : 0;
+    }
+
+    /*
+     * A version that can only be read.
+     */
+    protected static class Snapshot extends PersistentTreap {
+
+        Snapshot(Node root, boolean hashedPriorities, long prioritySeed) {
+            super(root, hashedPriorities, prioritySeed);
+        }
+
+        @Override
+        public void insert(int key) {
+            throw new UnsupportedOperationException("The snapshot is read-only!");
+        }
+
+        @Override
+        public void remove(int key) {
+            throw new UnsupportedOperationException("The snapshot is read-only!");
+        }
+    }
+}
@@ -0,0 +1,280 @@
+import java.util.Arrays;
+
+/**
+ * Treap with the same semantics as TreapImpl, but without a node object per key.
+ * The node fields live in parallel primitive arrays and the nodes are referenced
+ * by their index in them. Slots of removed nodes are kept in a free list
+ * (threaded through the left array) and are reused by the next insertions.
+ */
+public class TreapArrayImpl implements Treap {
+
+    // "null" index
+    protected static final int NIL = -1;
+    protected static final int DEFAULT_CAPACITY = 16;
+
+    protected int[] keys;
+    protected float[] priorities;
+    protected int[] left;
+    protected int[] right;
+    protected int[] parent;
+
+    protected int root;
+    // may overflow
+    protected int size;
+    // first never used slot
+    protected int used;
+    // head of the list of freed slots
+    protected int freeHead;
+
+    public TreapArrayImpl() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public TreapArrayImpl(int initialCapacity) {
+        if (initialCapacity < 1) {
+            initialCapacity = 1;
+        }
+        keys = new int[initialCapacity];
+        priorities = new float[initialCapacity];
+        left = new int[initialCapacity];
+        right = new int[initialCapacity];
+        parent = new int[initialCapacity];
+        root = NIL;
+        size = 0;
+        used = 0;
+        freeHead = NIL;
+    }
+
+    @Override
+    // If there is already another node with the same key the insertion is ignored
+    public void insert(int key) {
+        int newNode = allocateNode(key, generator.nextFloat());
+        if (insertBST(newNode)) {
+            rotateUpHeapify(newNode);
+            // size may overflow - we may throw exception here, or choose to use a longer type or an arbitary length one
+            size++;
+        } else {
+            freeNode(newNode);
+        }
+    }
+
+    @Override
+    public void remove(int key) {
+        int node = find(key);
+
+        if (node != NIL) {
+            rotateDownToLeaf(node);
+
+            if (parent[node] != NIL) {
+                changeChild(parent[node], node, NIL);
+            }
+
+            if (root == node) {
+                root = NIL;
+            }
+            freeNode(node);
+
+            size--;
+        }
+    }
+
+    @Override
+    public boolean containsKey(int key) {
+        return find(key) != NIL;
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    /*
+     * Number of node slots currently allocated (used or free).
+     */
+    public int capacity() {
+        return keys.length;
+    }
+
+    /*
+     * Shrinks the arrays so that they are just big enough for the slots that were ever used.
+     * Freed slots in the middle are not compacted.
+     */
+    public void trimToSize() {
+        resize(Math.max(used, 1));
+    }
+
+    // Takes a slot from the free list or, if it is empty, the first never used one
+    protected int allocateNode(int key, float priority) {
+        int node;
+        if (freeHead != NIL) {
+            node = freeHead;
+            freeHead = left[node];
+        } else {
+            if (used == keys.length) {
+                // grow by 1.5 like ArrayList, but at least by one slot
+                resize(keys.length + Math.max(keys.length >> 1, 1));
+            }
+            node = used++;
+        }
+        keys[node] = key;
+        priorities[node] = priority;
+        left[node] = NIL;
+        right[node] = NIL;
+        parent[node] = NIL;
+        return node;
+    }
+
+    protected void freeNode(int node) {
+        parent[node] = NIL;
+        right[node] = NIL;
+        left[node] = freeHead;
+        freeHead = node;
+    }
+
+    protected void resize(int newCapacity) {
+        keys = Arrays.copyOf(keys, newCapacity);
+        priorities = Arrays.copyOf(priorities, newCapacity);
+        left = Arrays.copyOf(left, newCapacity);
+        right = Arrays.copyOf(right, newCapacity);
+        parent = Arrays.copyOf(parent, newCapacity);
+    }
+
+    /*
+     * @return true if the insertion is successfull and false if there is
+     * already an element with the same key and the insertion is ignored.
+     */
+    protected boolean insertBST(int node) {
+        int current = root;
+        if (current == NIL) {
+            root = node;
+        } else {
+            int key = keys[node];
+            while (true) {
+                if (key == keys[current]) {
+                    return false;
+                } else if (key < keys[current]) {
+                    if (left[current] == NIL) {
+                        left[current] = node;
+                        parent[node] = current;
+                        break;
+                    } else {
+                        current = left[current];
+                    }
+                } else { // key > keys[current]
+                    if (right[current] == NIL) {
+                        right[current] = node;
+                        parent[node] = current;
+                        break;
+                    } else {
+                        current = right[current];
+                    }
+                }
+            }
+        }
+
+        return true;
+    }
+
+    // Return NIL if the node is not found
+    protected int find(int key) {
+        int current = root;
+        while (current != NIL) {
+            int currentKey = keys[current];
+            if (currentKey == key) {
+                break;
+            } else if (key < currentKey) {
+                current = left[current];
+            } else {
+                current = right[current];
+            }
+        }
+        return current;
+    }
+
+    // Rotates a newly inserted node up until the heap property is corrected
+    protected void rotateUpHeapify(int node) {
+        int curr = node;
+
+        while (parent[curr] != NIL && isAbove(curr, parent[curr])) {
+            if (curr == left[parent[curr]]) {
+                rotateRight(curr);
+            } else {
+                rotateLeft(curr);
+            }
+        }
+    }
+
+    // Rotates a node down until it is a leaf, so it can be safely removed
+    protected void rotateDownToLeaf(int node) {
+        while (true) {
+            int l = left[node];
+            int r = right[node];
+            if (l != NIL && r != NIL) {
+                if (isAbove(l, r)) {
+                    rotateRight(l);
+                } else {
+                    rotateLeft(r);
+                }
+            } else if (l != NIL) {
+                rotateRight(l);
+            } else if (r != NIL) {
+                rotateLeft(r);
+            } else {
+                break;
+            }
+        }
+    }
+
+    // The same order as TreapImpl.isAbove() - by priority and then by key
+    protected boolean isAbove(int first, int second) {
+        return priorities[first] < priorities[second]
+                || (priorities[first] == priorities[second] && keys[first] < keys[second]);
+    }
+
+    // bottom should have a parent!
+    protected void rotateLeft(int bottom) {
+        int top = parent[bottom];
+        int totalAncestor = parent[top];
+        if (root == top) {
+            root = bottom;
+        }
+
+        parent[top] = bottom;
+        right[top] = left[bottom];
+        if (right[top] != NIL) {
+            parent[right[top]] = top;
+        }
+        left[bottom] = top;
+        parent[bottom] = totalAncestor;
+        if (totalAncestor != NIL) {
+            changeChild(totalAncestor, top, bottom);
+        }
+    }
+
+    // bottom should have a parent!
+    protected void rotateRight(int bottom) {
+        int top = parent[bottom];
+        int totalAncestor = parent[top];
+        if (root == top) {
+            root = bottom;
+        }
+
+        parent[top] = bottom;
+        left[top] = right[bottom];
+        if (left[top] != NIL) {
+            parent[left[top]] = top;
+        }
+        right[bottom] = top;
+        parent[bottom] = totalAncestor;
+        if (totalAncestor != NIL) {
+            changeChild(totalAncestor, top, bottom);
+        }
+    }
+
+    protected void changeChild(int node, int currChild, int newChild) {
+        if (left[node] == currChild) {
+            left[node] = newChild;
+        } else if (right[node] == currChild) {
+            right[node] = newChild;
+        }
+    }
+}
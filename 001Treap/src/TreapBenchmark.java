@@ -0,0 +1,155 @@
+import java.util.Random;
+
+/**
+ * Rough footprint and throughput comparison of the treap implementations.
+ * Run with a big enough heap, e.g. java -Xmx4g TreapBenchmark 10000000
+ */
+public class TreapBenchmark {
+
+    public static void main(String[] args) {
+        int count = (args.length > 0) ? Integer.parseInt(args[0]) : 5_000_000;
+        int[] keys = randomKeys(count, 42);
+
+        // warm up the JIT on a smaller input
+        int[] warmUp = randomKeys(count / 10, 7);
+        runTreapImpl(warmUp, false);
+        runTreapArrayImpl(warmUp, false);
+
+        runTreapImpl(keys, true);
+        runTreapArrayImpl(keys, true);
+
+        runUnion(keys, randomKeys(count, 43));
+        runBulkBuild(keys);
+    }
+
+    // Building by inserting the sorted keys one by one vs the O(n) bulk build
+    private static void runBulkBuild(int[] keys) {
+        int[] sorted = java.util.Arrays.copyOf(keys, keys.length);
+        java.util.Arrays.sort(sorted);
+        long begin = System.nanoTime();
+        TreapImpl treap = new TreapImpl();
+        for (int key : sorted) {
+            treap.insert(key);
+        }
+        long end = System.nanoTime();
+        System.out.println("Build by insert loop: " + ((end - begin) / 1_000_000) + " ms, size " + treap.size());
+
+        begin = System.nanoTime();
+        treap = TreapImpl.fromSorted(sorted);
+        end = System.nanoTime();
+        System.out.println("Build by fromSorted: " + ((end - begin) / 1_000_000) + " ms, size " + treap.size());
+    }
+
+    // Merging by inserting one treap's keys into the other vs the parallel join-based union
+    private static void runUnion(int[] firstKeys, int[] secondKeys) {
+        TreapImpl first = new TreapImpl();
+        TreapImpl second = new TreapImpl();
+        for (int key : firstKeys) {
+            first.insert(key);
+        }
+        for (int key : secondKeys) {
+            second.insert(key);
+        }
+        long begin = System.nanoTime();
+        for (int key : secondKeys) {
+            first.insert(key);
+        }
+        long end = System.nanoTime();
+        System.out.println("Union by insert loop: " + ((end - begin) / 1_000_000) + " ms, size " + first.size());
+
+        first = new TreapImpl();
+        for (int key : firstKeys) {
+            first.insert(key);
+        }
+        begin = System.nanoTime();
+        TreapImpl union = TreapImpl.union(first, second);
+        end = System.nanoTime();
+        System.out.println("Join-based union on " + Runtime.getRuntime().availableProcessors() + " cores: "
+                + ((end - begin) / 1_000_000) + " ms, size " + union.size());
+    }
+
+    private static void runTreapImpl(int[] keys, boolean print) {
+        long memBefore = usedMemory();
+        long begin = System.nanoTime();
+        TreapImpl treap = new TreapImpl();
+        for (int key : keys) {
+            treap.insert(key);
+        }
+        long inserted = System.nanoTime();
+        int found = 0;
+        for (int key : keys) {
+            if (treap.containsKey(key)) {
+                found++;
+            }
+        }
+        long searched = System.nanoTime();
+        long memAfter = usedMemory();
+        for (int key : keys) {
+            treap.remove(key);
+        }
+        long removed = System.nanoTime();
+
+        if (print) {
+            report("TreapImpl", keys.length, found, memAfter - memBefore, inserted - begin,
+                    searched - inserted, removed - searched);
+        }
+    }
+
+    private static void runTreapArrayImpl(int[] keys, boolean print) {
+        long memBefore = usedMemory();
+        long begin = System.nanoTime();
+        TreapArrayImpl treap = new TreapArrayImpl();
+        for (int key : keys) {
+            treap.insert(key);
+        }
+        long inserted = System.nanoTime();
+        int found = 0;
+        for (int key : keys) {
+            if (treap.containsKey(key)) {
+                found++;
+            }
+        }
+        long searched = System.nanoTime();
+        long memAfter = usedMemory();
+        for (int key : keys) {
+            treap.remove(key);
+        }
+        long removed = System.nanoTime();
+
+        if (print) {
+            report("TreapArrayImpl", keys.length, found, memAfter - memBefore, inserted - begin,
+                    searched - inserted, removed - searched);
+        }
+    }
+
+    private static void report(String name, int count, int size, long bytes, long insertNanos,
+            long searchNanos, long removeNanos) {
+        System.out.println(name + ": " + size + " distinct keys");
+        System.out.println("  heap used:   " + (bytes / (1024 * 1024)) + " MB, "
+                + String.format("%.1f", (double) bytes / size) + " bytes/key");
+        System.out.println("  insert:      " + (insertNanos / 1_000_000) + " ms, "
+                + String.format("%.1f", (double) insertNanos / count) + " ns/op");
+        System.out.println("  containsKey: " + (searchNanos / 1_000_000) + " ms, "
+                + String.format("%.1f", (double) searchNanos / count) + " ns/op");
+        System.out.println("  remove:      " + (removeNanos / 1_000_000) + " ms, "
+                + String.format("%.1f", (double) removeNanos / count) + " ns/op");
+    }
+
+    static int[] randomKeys(int count, long seed) {
+        Random random = new Random(seed);
+        int[] keys = new int[count];
+        for (int i = 0; i < count; i++) {
+            keys[i] = random.nextInt();
+        }
+        return keys;
+    }
+
+    // Not precise, but good enough for comparing the footprints
+    static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
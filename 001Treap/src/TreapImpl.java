@@ -2,23 +2,44 @@
  * @author Spas Kyuchukov
  */
 
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.IntConsumer;
+
 public class TreapImpl implements Treap {
     
+    // Set operations on subtrees with fewer (estimated) nodes than this are not forked
+    protected static final long PARALLEL_THRESHOLD = 1 << 14;
+
     protected TreapNode root;
     // may overflow
     protected int size;
+    // if true the priorities are a hash of the key and prioritySeed instead of random
+    protected final boolean hashedPriorities;
+    protected final long prioritySeed;
     
     public static class TreapNode {
 
         int key; // key provided by user
         float priority; // node's generated priority
+        int size; // number of nodes in the subtree
         TreapNode left; // pointer for the left subtree
         TreapNode right; // pointer for the right subtree
         TreapNode parent; // pointer to the parent node
 
         TreapNode(int key) {
+            this(key, generator.nextFloat());
+        }
+
+        TreapNode(int key, float priority) {
             this.key = key;
-            priority = generator.nextFloat();
+            this.priority = priority;
+            size = 1;
             left = null;
             right = null;
             this.parent = null;
@@ -28,12 +49,58 @@ public class TreapImpl implements Treap {
     public TreapImpl() {
         root = null;
         size = 0;
+        hashedPriorities = false;
+        prioritySeed = 0;
+    }
+    
+    /**
+     * Creates a treap whose priorities are a hash of the key and @seed. Creating
+     * nodes needs no shared random generator and treaps with the same seed and
+     * the same keys have identical shapes, regardless of the order of the operations.
+     */
+    public TreapImpl(long seed) {
+        root = null;
+        size = 0;
+        hashedPriorities = true;
+        prioritySeed = seed;
+    }
+    
+    /**
+     * Builds a treap from keys sorted in ascending order in O(n) - like a
+     * Cartesian tree over the generated priorities, without any rotations.
+     * Repeating keys are ignored, as they would be by insert().
+     *
+     * @throws IllegalArgumentException if the keys are not sorted
+     */
+    public static TreapImpl fromSorted(int[] keys) {
+        TreapImpl treap = new TreapImpl();
+        treap.buildFromSorted(keys);
+        return treap;
+    }
+    
+    /**
+     * Same as fromSorted(keys), but the treap uses priorities hashed with @seed.
+     */
+    public static TreapImpl fromSorted(int[] keys, long seed) {
+        TreapImpl treap = new TreapImpl(seed);
+        treap.buildFromSorted(keys);
+        return treap;
+    }
+    
+    /**
+     * Builds a treap from keys in any order in O(n log n) for the sorting
+     * and O(n) for the building. The given array is not modified.
+     */
+    public static TreapImpl fromUnsorted(int[] keys) {
+        int[] sorted = Arrays.copyOf(keys, keys.length);
+        Arrays.sort(sorted);
+        return fromSorted(sorted);
     }
     
     @Override
     // If there is already another node with the same key the insertion is ignored
     public void insert(int key) {
-        TreapNode newNode = new TreapNode(key);
+        TreapNode newNode = createNode(key);
         boolean inserted = insertBST(newNode);
         if(inserted){
             rotateUpHeapify(newNode);
@@ -51,6 +118,7 @@ public class TreapImpl implements Treap {
             
             if(node.parent != null){
                 changeChild(node.parent, node, null);
+                updateUp(node.parent);
             }
             
             if(root == node){
@@ -72,6 +140,229 @@ public class TreapImpl implements Treap {
         return this.size;
     }
     
+    /**
+     * @return the number of keys in the treap that are smaller than @key
+     */
+    public int rank(int key) {
+        int rank = 0;
+        TreapNode current = root;
+        while (current != null) {
+            if (key < current.key) {
+                current = current.left;
+            } else if (key > current.key) {
+                rank += size(current.left) + 1;
+                current = current.right;
+            } else {
+                rank += size(current.left);
+                break;
+            }
+        }
+        return rank;
+    }
+    
+    /**
+     * @param index: 0-based position in the sorted order of the keys
+     * @return the @index-th smallest key in the treap
+     * @throws IndexOutOfBoundsException if @index is not in [0, size)
+     */
+    public int select(int index) {
+        if (index < 0 || index >= size(root)) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size(root));
+        }
+        TreapNode current = root;
+        while (true) {
+            int leftSize = size(current.left);
+            if (index < leftSize) {
+                current = current.left;
+            } else if (index == leftSize) {
+                return current.key;
+            } else {
+                index -= leftSize + 1;
+                current = current.right;
+            }
+        }
+    }
+    
+    /**
+     * @return the number of keys in the treap that are in [@low, @high]
+     */
+    public int countInRange(int low, int high) {
+        if (low > high) {
+            return 0;
+        }
+        return countLessOrEqual(high) - rank(low);
+    }
+    
+    /**
+     * @return the lower median of the keys in the treap
+     * @throws NoSuchElementException if the treap is empty
+     */
+    public int median() {
+        if (root == null) {
+            throw new NoSuchElementException("The treap is empty!");
+        }
+        return select((size(root) - 1) / 2);
+    }
+    
+    /**
+     * The key is returned as an int, so nothing is allocated. @valueIfNone can be any
+     * value that cannot be the answer, e.g. one bigger than @key.
+     *
+     * @return the biggest key smaller than or equal to @key, or @valueIfNone if there is no such key
+     */
+    public int floor(int key, int valueIfNone) {
+        TreapNode node = floorNode(key);
+        return (node != null) ? node.key : valueIfNone;
+    }
+    
+    /**
+     * @return the smallest key bigger than or equal to @key, or @valueIfNone if there is no such key
+     */
+    public int ceiling(int key, int valueIfNone) {
+        TreapNode node = ceilingNode(key);
+        return (node != null) ? node.key : valueIfNone;
+    }
+    
+    /**
+     * @return the biggest key strictly smaller than @key, or @valueIfNone if there is no such key
+     */
+    public int lower(int key, int valueIfNone) {
+        return (key == Integer.MIN_VALUE) ? valueIfNone : floor(key - 1, valueIfNone);
+    }
+    
+    /**
+     * @return the smallest key strictly bigger than @key, or @valueIfNone if there is no such key
+     */
+    public int higher(int key, int valueIfNone) {
+        return (key == Integer.MAX_VALUE) ? valueIfNone : ceiling(key + 1, valueIfNone);
+    }
+    
+    /**
+     * Calls @action for each key in [@low, @high] in ascending order. Walks
+     * from node to node with the parent pointers, so nothing is allocated.
+     * The treap must not be modified by @action.
+     */
+    public void forEachInRange(int low, int high, IntConsumer action) {
+        if (low > high) {
+            return;
+        }
+        TreapNode current = ceilingNode(low);
+        while (current != null && current.key <= high) {
+            action.accept(current.key);
+            current = successor(current);
+        }
+    }
+    
+    /**
+     * @return an iterator over the keys bigger than or equal to @fromKey in ascending order.
+     * The iterator is invalidated by any modification of the treap.
+     */
+    public PrimitiveIterator.OfInt iterator(int fromKey) {
+        return new KeyIterator(ceilingNode(fromKey), true);
+    }
+    
+    /**
+     * @return an iterator over the keys smaller than or equal to @fromKey in descending order.
+     * The iterator is invalidated by any modification of the treap.
+     */
+    public PrimitiveIterator.OfInt descendingIterator(int fromKey) {
+        return new KeyIterator(floorNode(fromKey), false);
+    }
+
+    /**
+     * Splits the treap in two. This treap is left empty.
+     *
+     * @param key: the key to split by
+     * @return an array with a treap with the keys smaller than @key and a treap
+     * with the keys bigger than or equal to @key
+     */
+    public TreapImpl[] split(int key) {
+        TreapNode[] parts = new TreapNode[3];
+        splitNodes(root, key, parts);
+        TreapNode greaterOrEqual = joinNodes(parts[1], parts[2]);
+
+        TreapImpl less = emptyCopy();
+        less.root = parts[0];
+        less.size = size(parts[0]);
+        TreapImpl greater = emptyCopy();
+        greater.root = greaterOrEqual;
+        greater.size = size(greaterOrEqual);
+
+        clear();
+        return new TreapImpl[] { less, greater };
+    }
+
+    /**
+     * Joins two treaps where all the keys in @left are smaller than all the
+     * keys in @right. Both treaps are left empty.
+     *
+     * @throws IllegalArgumentException if the keys of the treaps overlap
+     * or the treaps are not of the same kind (see isCompatible())
+     */
+    public static TreapImpl join(TreapImpl left, TreapImpl right) {
+        checkOperands(left, right);
+        if (left.root != null && right.root != null && maxNode(left.root).key >= minNode(right.root).key) {
+            throw new IllegalArgumentException("All keys of the left treap must be smaller than the keys of the right one!");
+        }
+        TreapImpl result = left.emptyCopy();
+        result.root = result.joinNodes(left.root, right.root);
+        result.size = size(result.root);
+        left.clear();
+        right.clear();
+        return result;
+    }
+
+    /**
+     * Returns a treap with the keys that are in @first or in @second in
+     * O(m log(n/m + 1)) work for sizes m <= n. Independent subtrees are
+     * processed in parallel. Both treaps are destroyed (left empty).
+     * For a key that is in both treaps the result has what @first has for it
+     * (e.g. the value in an AggregateTreap).
+     *
+     * @throws IllegalArgumentException if the treaps are not of the same kind (see isCompatible())
+     */
+    public static TreapImpl union(TreapImpl first, TreapImpl second) {
+        checkOperands(first, second);
+        TreapImpl result = first.emptyCopy();
+        result.root = result.runSetOperation(SetOperationTask.UNION, first, second);
+        result.size = size(result.root);
+        first.clear();
+        second.clear();
+        return result;
+    }
+
+    /**
+     * Returns a treap with the keys that are both in @first and in @second.
+     * Both treaps are destroyed (left empty). The result has what @first has for each key.
+     *
+     * @throws IllegalArgumentException if the treaps are not of the same kind (see isCompatible())
+     */
+    public static TreapImpl intersection(TreapImpl first, TreapImpl second) {
+        checkOperands(first, second);
+        TreapImpl result = first.emptyCopy();
+        result.root = result.runSetOperation(SetOperationTask.INTERSECTION, first, second);
+        result.size = size(result.root);
+        first.clear();
+        second.clear();
+        return result;
+    }
+
+    /**
+     * Returns a treap with the keys from @first that are not in @second.
+     * Both treaps are destroyed (left empty).
+     *
+     * @throws IllegalArgumentException if the treaps are not of the same kind (see isCompatible())
+     */
+    public static TreapImpl difference(TreapImpl first, TreapImpl second) {
+        checkOperands(first, second);
+        TreapImpl result = first.emptyCopy();
+        result.root = result.runSetOperation(SetOperationTask.DIFFERENCE, first, second);
+        result.size = size(result.root);
+        first.clear();
+        second.clear();
+        return result;
+    }
+    
     /*
      * @return true if the insertion is successfull and false if there is/
      * already an element with the same key and the insertion is ignored.
@@ -102,6 +393,7 @@ public class TreapImpl implements Treap {
                     }
                 }
             }
+            updateUp(current);
         }
         
         return true;
@@ -127,7 +419,7 @@ public class TreapImpl implements Treap {
         TreapNode curr = node;
         
         // Stupid comparison of floats - it won't be a problem in this case
-        while(curr.parent != null && curr.priority < curr.parent.priority){
+        while(curr.parent != null && isAbove(curr, curr.parent)){
             
             if(curr == curr.parent.left){
                 rotateRight(curr);
@@ -152,7 +444,7 @@ public class TreapImpl implements Treap {
     protected void rotateDownToLeaf(TreapNode node){
         while(true){
             if(node.left != null && node.right != null){
-                if(node.left.priority < node.right.priority){
+                if(isAbove(node.left, node.right)){
                     rotateRight(node.left);
                 } else {
                     rotateLeft(node.right);
@@ -185,6 +477,8 @@ public class TreapImpl implements Treap {
         if(totalAncestor != null){
             changeChild(totalAncestor, top, bottom);
         }
+        update(top);
+        update(bottom);
     }
     
     // bottom should have a parent!
@@ -205,8 +499,541 @@ public class TreapImpl implements Treap {
         if(totalAncestor != null){
             changeChild(totalAncestor, top, bottom);
         }
+        update(top);
+        update(bottom);
+    }
+    
+    /*
+     * The stack holds the right spine of the treap built so far. Every new key is
+     * the biggest one, so it goes at the bottom of the right spine, above all the
+     * spine nodes with bigger priorities, which become its left subtree.
+     * A node popped from the spine will not get new descendants, so its size is final.
+     */
+    protected void buildFromSorted(int[] keys) {
+        Deque<TreapNode> rightSpine = new ArrayDeque<TreapNode>();
+        int count = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (i > 0 && keys[i] <= keys[i - 1]) {
+                if (keys[i] == keys[i - 1]) {
+                    continue;
+                }
+                throw new IllegalArgumentException("The keys are not sorted: " + keys[i - 1] + " is before " + keys[i]);
+            }
+            TreapNode node = createNode(keys[i]);
+            TreapNode lastPopped = null;
+            while (!rightSpine.isEmpty() && isAbove(node, rightSpine.peek())) {
+                lastPopped = rightSpine.pop();
+                update(lastPopped);
+            }
+            node.left = lastPopped;
+            if (lastPopped != null) {
+                lastPopped.parent = node;
+            }
+            if (!rightSpine.isEmpty()) {
+                rightSpine.peek().right = node;
+                node.parent = rightSpine.peek();
+            }
+            rightSpine.push(node);
+            count++;
+        }
+
+        TreapNode top = null;
+        while (!rightSpine.isEmpty()) {
+            top = rightSpine.pop();
+            update(top);
+        }
+        root = top;
+        size = count;
+    }
+
+    /**
+     * Checks whether the two treaps have exactly the same shape, keys and priorities.
+     */
+    public boolean structurallyEquals(TreapImpl other) {
+        return other != null && size == other.size && structuralDifference(other) == null;
+    }
+    
+    /**
+     * Finds the first position in pre-order where the shapes, the keys or the
+     * priorities of this treap and @other differ. Subtrees that are the same object
+     * are skipped and subtrees with different sizes are reported at their roots,
+     * without going into them.
+     *
+     * @return null if the treaps are structurally equal, otherwise the node of this
+     * treap and the node of @other at that position - one of them is null if only
+     * one of the treaps has a node there
+     */
+    public TreapNode[] structuralDifference(TreapImpl other) {
+        return firstDifference(root, other.root);
+    }
+    
+    /*
+     * Walks the two subtrees together without recursion, so a degenerate treap does not
+     * overflow the stack. The pairs of right children wait on @pending while the left
+     * subtrees are compared.
+     */
+    protected static TreapNode[] firstDifference(TreapNode first, TreapNode second) {
+        TreapNode[] pending = new TreapNode[32];
+        int pendingSize = 0;
+        while (true) {
+            // the same subtree (or two empty ones) is equal to itself
+            if (first != second) {
+                if (first == null || second == null || first.key != second.key
+                        || first.priority != second.priority || first.size != second.size) {
+                    return new TreapNode[] { first, second };
+                }
+                if (pendingSize == pending.length) {
+                    pending = Arrays.copyOf(pending, pendingSize * 2);
+                }
+                pending[pendingSize++] = first.right;
+                pending[pendingSize++] = second.right;
+                first = first.left;
+                second = second.left;
+            } else if (pendingSize == 0) {
+                return null;
+            } else {
+                second = pending[--pendingSize];
+                first = pending[--pendingSize];
+            }
+        }
+    }
+    
+    protected TreapNode createNode(int key) {
+        return new TreapNode(key, priorityFor(key));
+    }
+    
+    protected float priorityFor(int key) {
+        return hashedPriorities ? hashPriority(key, prioritySeed) : generator.nextFloat();
+    }
+    
+    // A treap with no nodes and the same kind of priorities as this one
+    protected TreapImpl emptyCopy() {
+        return hashedPriorities ? new TreapImpl(prioritySeed) : new TreapImpl();
+    }
+    
+    /*
+     * Maps the key to a priority in [0, 1) with the MurmurHash3 64-bit finalizer,
+     * so that close keys get unrelated priorities.
+     */
+    protected static float hashPriority(int key, long seed) {
+        long hash = seed + key * 0x9E3779B97F4A7C15L;
+        hash = (hash ^ (hash >>> 33)) * 0xFF51AFD7ED558CCDL;
+        hash = (hash ^ (hash >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        hash = hash ^ (hash >>> 33);
+        // the top 24 bits fit exactly in the float's mantissa
+        return (hash >>> 40) * 0x1.0p-24f;
+    }
+    
+    /*
+     * Whether @first should be above @second in the heap. Equal priorities are
+     * ordered by key, so a set of keys and priorities defines a single treap.
+     */
+    protected static boolean isAbove(TreapNode first, TreapNode second) {
+        return first.priority < second.priority
+                || (first.priority == second.priority && first.key < second.key);
+    }
+    
+    protected void clear() {
+        root = null;
+        size = 0;
+    }
+
+    /*
+     * Splits the subtree of @node into parts[0] - the keys smaller than @key,
+     * parts[1] - the node with @key (or null) and parts[2] - the keys bigger than @key.
+     * Goes down a single path and relinks the nodes on it, so the heap property is kept.
+     */
+    protected void splitNodes(TreapNode node, int key, TreapNode[] parts) {
+        TreapNode lessRoot = null, lessTail = null;
+        TreapNode greaterRoot = null, greaterTail = null;
+        TreapNode equal = null;
+        TreapNode current = node;
+        while (current != null) {
+            if (current.key < key) {
+                if (lessTail == null) {
+                    lessRoot = current;
+                } else {
+                    lessTail.right = current;
+                }
+                current.parent = lessTail;
+                lessTail = current;
+                current = current.right;
+            } else if (current.key > key) {
+                if (greaterTail == null) {
+                    greaterRoot = current;
+                } else {
+                    greaterTail.left = current;
+                }
+                current.parent = greaterTail;
+                greaterTail = current;
+                current = current.left;
+            } else {
+                equal = current;
+                break;
+            }
+        }
+
+        TreapNode lessRest = (equal != null) ? equal.left : null;
+        TreapNode greaterRest = (equal != null) ? equal.right : null;
+        if (lessTail == null) {
+            lessRoot = lessRest;
+        } else {
+            lessTail.right = lessRest;
+        }
+        if (lessRest != null) {
+            lessRest.parent = lessTail;
+        }
+        if (greaterTail == null) {
+            greaterRoot = greaterRest;
+        } else {
+            greaterTail.left = greaterRest;
+        }
+        if (greaterRest != null) {
+            greaterRest.parent = greaterTail;
+        }
+        if (equal != null) {
+            equal.left = null;
+            equal.right = null;
+            equal.parent = null;
+            update(equal);
+        }
+        // only the nodes on the two relinked paths have changed subtrees
+        updateUp(lessTail);
+        updateUp(greaterTail);
+
+        parts[0] = lessRoot;
+        parts[1] = equal;
+        parts[2] = greaterRoot;
+    }
+
+    /*
+     * Joins two subtrees where all the keys in @less are smaller than all the keys in @greater
+     * by merging the right spine of @less with the left spine of @greater by priority.
+     *
+     * @return the root of the joined subtree (its parent is null)
+     */
+    protected TreapNode joinNodes(TreapNode less, TreapNode greater) {
+        TreapNode joinedRoot = null;
+        TreapNode attachTo = null;
+        boolean attachRight = false;
+        while (less != null && greater != null) {
+            TreapNode next;
+            boolean nextAttachRight;
+            if (isAbove(less, greater)) {
+                next = less;
+                less = less.right;
+                nextAttachRight = true;
+            } else {
+                next = greater;
+                greater = greater.left;
+                nextAttachRight = false;
+            }
+            if (attachTo == null) {
+                joinedRoot = next;
+            }
+            attachChild(attachTo, attachRight, next);
+            attachTo = next;
+            attachRight = nextAttachRight;
+        }
+        TreapNode rest = (less != null) ? less : greater;
+        if (attachTo == null) {
+            joinedRoot = rest;
+        }
+        attachChild(attachTo, attachRight, rest);
+        updateUp(attachTo);
+        return joinedRoot;
+    }
+
+    private static void attachChild(TreapNode parent, boolean asRight, TreapNode child) {
+        if (parent != null) {
+            if (asRight) {
+                parent.right = child;
+            } else {
+                parent.left = child;
+            }
+        }
+        if (child != null) {
+            child.parent = parent;
+        }
+    }
+
+    // Recomputes the augmented data of @node from its children
+    protected void update(TreapNode node) {
+        node.size = size(node.left) + 1 + size(node.right);
+    }
+
+    // Recomputes the augmented data of @node and all its ancestors
+    protected void updateUp(TreapNode node) {
+        while (node != null) {
+            update(node);
+            node = node.parent;
+        }
+    }
+
+    protected static int size(TreapNode node) {
+        return (node != null) ? node.size : 0;
+    }
+
+    // The number of keys in the treap that are smaller than or equal to @key
+    protected int countLessOrEqual(int key) {
+        int count = 0;
+        TreapNode current = root;
+        while (current != null) {
+            if (key < current.key) {
+                current = current.left;
+            } else {
+                count += size(current.left) + 1;
+                current = current.right;
+            }
+        }
+        return count;
+    }
+
+    protected static TreapNode minNode(TreapNode node) {
+        while (node.left != null) {
+            node = node.left;
+        }
+        return node;
+    }
+
+    protected static TreapNode maxNode(TreapNode node) {
+        while (node.right != null) {
+            node = node.right;
+        }
+        return node;
+    }
+
+    // The node with the smallest key bigger than or equal to @key (or null)
+    protected TreapNode ceilingNode(int key) {
+        TreapNode candidate = null;
+        TreapNode current = root;
+        while (current != null) {
+            if (key < current.key) {
+                candidate = current;
+                current = current.left;
+            } else if (key > current.key) {
+                current = current.right;
+            } else {
+                return current;
+            }
+        }
+        return candidate;
+    }
+
+    // The node with the biggest key smaller than or equal to @key (or null)
+    protected TreapNode floorNode(int key) {
+        TreapNode candidate = null;
+        TreapNode current = root;
+        while (current != null) {
+            if (key < current.key) {
+                current = current.left;
+            } else if (key > current.key) {
+                candidate = current;
+                current = current.right;
+            } else {
+                return current;
+            }
+        }
+        return candidate;
+    }
+
+    // The next node in-order, found with the parent pointers (O(1) amortized over a traversal)
+    protected static TreapNode successor(TreapNode node) {
+        if (node.right != null) {
+            return minNode(node.right);
+        }
+        TreapNode child = node;
+        TreapNode current = node.parent;
+        while (current != null && child == current.right) {
+            child = current;
+            current = current.parent;
+        }
+        return current;
+    }
+
+    // The previous node in-order, found with the parent pointers
+    protected static TreapNode predecessor(TreapNode node) {
+        if (node.left != null) {
+            return maxNode(node.left);
+        }
+        TreapNode child = node;
+        TreapNode current = node.parent;
+        while (current != null && child == current.left) {
+            child = current;
+            current = current.parent;
+        }
+        return current;
+    }
+
+    protected static class KeyIterator implements PrimitiveIterator.OfInt {
+
+        private TreapNode next;
+        private final boolean ascending;
+
+        KeyIterator(TreapNode first, boolean ascending) {
+            this.next = first;
+            this.ascending = ascending;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public int nextInt() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            int key = next.key;
+            next = ascending ? successor(next) : predecessor(next);
+            return key;
+        }
+    }
+
+    // Called before any of the operands is touched
+    private static void checkOperands(TreapImpl first, TreapImpl second) {
+        if (first == second) {
+            throw new IllegalArgumentException("The operands must be different treaps!");
+        }
+        if (first.getClass() != second.getClass() || !first.isCompatible(second)) {
+            throw new IllegalArgumentException("The operands must be treaps of the same kind!");
+        }
     }
     
+    /**
+     * Whether the nodes of @other can be mixed with the nodes of this treap by
+     * join() and the set operations. @other is of the same class as this treap.
+     * The nodes keep their priorities, so both treaps must generate them the same way -
+     * random priorities in a treap with hashed ones (or hashed with another seed) would
+     * break the identical shapes of the treaps with the same keys.
+     */
+    protected boolean isCompatible(TreapImpl other) {
+        return hashedPriorities == other.hashedPriorities && prioritySeed == other.prioritySeed;
+    }
+    
+    /*
+     * Called by the set operations when @kept from @second stays in the result instead
+     * of @fromFirst with the same key, so that the result has what @first has for the key.
+     * The key is the same and @kept keeps its priority, subclasses copy their own fields.
+     */
+    protected void copyFromFirst(TreapNode kept, TreapNode fromFirst) {
+    }
+
+    // Runs the operation on the nodes of the two treaps, this treap is used for the node updates
+    private TreapNode runSetOperation(int operation, TreapImpl first, TreapImpl second) {
+        long estimatedSize = (long) first.size + second.size;
+        TreapNode result;
+        if (estimatedSize > PARALLEL_THRESHOLD) {
+            result = ForkJoinPool.commonPool().invoke(
+                    new SetOperationTask(this, operation, first.root, second.root, estimatedSize));
+        } else {
+            result = SetOperationTask.apply(this, operation, first.root, second.root, estimatedSize);
+        }
+        if (result != null) {
+            result.parent = null;
+        }
+        return result;
+    }
+
+    /*
+     * Join-based union/intersection/difference. The root with the smaller priority stays on top,
+     * the other subtree is split by its key and the left and right halves are processed
+     * independently - in parallel while they are (estimated to be) big enough.
+     */
+    protected static class SetOperationTask extends RecursiveTask<TreapNode> {
+
+        private static final long serialVersionUID = 1L;
+
+        static final int UNION = 0;
+        static final int INTERSECTION = 1;
+        static final int DIFFERENCE = 2;
+
+        private final TreapImpl treap;
+        private final int operation;
+        private final TreapNode first;
+        private final TreapNode second;
+        private final long estimatedSize;
+
+        SetOperationTask(TreapImpl treap, int operation, TreapNode first, TreapNode second, long estimatedSize) {
+            this.treap = treap;
+            this.operation = operation;
+            this.first = first;
+            this.second = second;
+            this.estimatedSize = estimatedSize;
+        }
+
+        @Override
+        protected TreapNode compute() {
+            return apply(treap, operation, first, second, estimatedSize);
+        }
+
+        static TreapNode apply(TreapImpl treap, int operation, TreapNode first, TreapNode second, long estimatedSize) {
+            if (first == null) {
+                return (operation == UNION) ? second : null;
+            }
+            if (second == null) {
+                return (operation == INTERSECTION) ? null : first;
+            }
+
+            // difference is not symmetric, so we must remember where the top node came from
+            boolean firstOnTop = !isAbove(second, first);
+            TreapNode top = firstOnTop ? first : second;
+            TreapNode[] parts = new TreapNode[3];
+            treap.splitNodes(firstOnTop ? second : first, top.key, parts);
+            boolean inBoth = parts[1] != null;
+
+            TreapNode firstLeft = firstOnTop ? top.left : parts[0];
+            TreapNode firstRight = firstOnTop ? top.right : parts[2];
+            TreapNode secondLeft = firstOnTop ? parts[0] : top.left;
+            TreapNode secondRight = firstOnTop ? parts[2] : top.right;
+
+            TreapNode left, right;
+            long childEstimate = estimatedSize / 2;
+            if (childEstimate > PARALLEL_THRESHOLD) {
+                SetOperationTask leftTask = new SetOperationTask(treap, operation, firstLeft, secondLeft, childEstimate);
+                leftTask.fork();
+                right = apply(treap, operation, firstRight, secondRight, childEstimate);
+                left = leftTask.join();
+            } else {
+                left = apply(treap, operation, firstLeft, secondLeft, childEstimate);
+                right = apply(treap, operation, firstRight, secondRight, childEstimate);
+            }
+
+            boolean keepTop;
+            if (operation == UNION) {
+                keepTop = true;
+            } else if (operation == INTERSECTION) {
+                keepTop = inBoth;
+            } else {
+                keepTop = firstOnTop && !inBoth;
+            }
+
+            if (keepTop) {
+                if (inBoth && !firstOnTop) {
+                    treap.copyFromFirst(top, parts[1]);
+                }
+                top.left = left;
+                top.right = right;
+                if (left != null) {
+                    left.parent = top;
+                }
+                if (right != null) {
+                    right.parent = top;
+                }
+                treap.update(top);
+                return top;
+            }
+            if (left != null) {
+                left.parent = null;
+            }
+            if (right != null) {
+                right.parent = null;
+            }
+            return treap.joinNodes(left, right);
+        }
+    }
+
     protected void changeChild(TreapNode node, TreapNode currChild, TreapNode newChild){
         if(node.left == currChild){
             node.left = newChild;
@@ -0,0 +1,189 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Saves a TreapImpl to a compact binary file and loads it back with exactly
+ * the same shape, in a single linear pass over a memory-mapped file and
+ * without any rotations.
+ *
+ * File format (big-endian):
+ * int magic, int version, int flags (1 - hashed priorities), long seed,
+ * int count and then count times int key, float priority in pre-order.
+ */
+public class TreapSnapshot {
+
+    public static final int MAGIC = 0x54524550; // "TREP"
+    public static final int VERSION = 1;
+    public static final String CORRUPTED_SNAPSHOT_MESSAGE = "The treap snapshot is corrupted!";
+
+    protected static final int HEADER_BYTES = 4 + 4 + 4 + 8 + 4;
+    protected static final int NODE_BYTES = 4 + 4;
+    protected static final int FLAG_HASHED_PRIORITIES = 1;
+    // the biggest mapped region that holds a whole number of nodes
+    protected static final long MAX_REGION_BYTES = (Integer.MAX_VALUE / NODE_BYTES) * NODE_BYTES;
+
+    /**
+     * Writes the keys and priorities of @treap to @file in pre-order.
+     * Only the keys and priorities are saved, so treaps with values
+     * (AggregateTreap) are not supported.
+     */
+    public static void save(TreapImpl treap, Path file) throws IOException {
+        if (treap instanceof AggregateTreap) {
+            throw new IllegalArgumentException("The values of an AggregateTreap can not be saved!");
+        }
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(treap.hashedPriorities ? FLAG_HASHED_PRIORITIES : 0);
+            out.writeLong(treap.prioritySeed);
+            out.writeInt(treap.size);
+
+            // pre-order walk with the parent pointers
+            TreapImpl.TreapNode current = treap.root;
+            while (current != null) {
+                out.writeInt(current.key);
+                out.writeFloat(current.priority);
+                current = preOrderSuccessor(current);
+            }
+        }
+    }
+
+    /**
+     * Reads a treap saved with save().
+     *
+     * @throws IOException if the file can not be read or is not a valid snapshot
+     */
+    public static TreapImpl load(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES) {
+                throw new IOException(CORRUPTED_SNAPSHOT_MESSAGE);
+            }
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+            if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+                throw new IOException(CORRUPTED_SNAPSHOT_MESSAGE);
+            }
+            boolean hashedPriorities = (header.getInt() & FLAG_HASHED_PRIORITIES) != 0;
+            long seed = header.getLong();
+            int count = header.getInt();
+            if (count < 0 || channel.size() != HEADER_BYTES + (long) count * NODE_BYTES) {
+                throw new IOException(CORRUPTED_SNAPSHOT_MESSAGE);
+            }
+
+            TreapImpl treap = hashedPriorities ? new TreapImpl(seed) : new TreapImpl();
+            PreOrderBuilder builder = new PreOrderBuilder();
+            long position = HEADER_BYTES;
+            long end = channel.size();
+            while (position < end) {
+                long regionBytes = Math.min(MAX_REGION_BYTES, end - position);
+                MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY, position, regionBytes);
+                while (region.hasRemaining()) {
+                    builder.add(region.getInt(), region.getFloat());
+                }
+                position += regionBytes;
+            }
+
+            treap.root = builder.root;
+            treap.size = count;
+            updateAllSizes(treap);
+            return treap;
+        }
+    }
+
+    /*
+     * Rebuilds the treap from its pre-order - the stack holds the path from the root
+     * to the last node, without the nodes whose right subtree has already started.
+     */
+    protected static class PreOrderBuilder {
+
+        TreapImpl.TreapNode root = null;
+        private TreapImpl.TreapNode[] stack = new TreapImpl.TreapNode[64];
+        private int stackSize = 0;
+        // all the next keys must be bigger than this, as we are in its right subtree
+        private long lowerBound = Long.MIN_VALUE;
+
+        void add(int key, float priority) throws IOException {
+            if (key <= lowerBound) {
+                throw new IOException(CORRUPTED_SNAPSHOT_MESSAGE);
+            }
+            TreapImpl.TreapNode node = new TreapImpl.TreapNode(key, priority);
+            if (root == null) {
+                root = node;
+            } else if (key < stack[stackSize - 1].key) {
+                attach(stack[stackSize - 1], node, false);
+            } else {
+                TreapImpl.TreapNode parent = null;
+                while (stackSize > 0 && stack[stackSize - 1].key < key) {
+                    parent = stack[--stackSize];
+                }
+                // equal keys, either right away or after a key that was popped
+                if (parent == null || (stackSize > 0 && stack[stackSize - 1].key == key)) {
+                    throw new IOException(CORRUPTED_SNAPSHOT_MESSAGE);
+                }
+                lowerBound = parent.key;
+                attach(parent, node, true);
+            }
+            if (stackSize == stack.length) {
+                stack = Arrays.copyOf(stack, stackSize * 2);
+            }
+            stack[stackSize++] = node;
+        }
+
+        // Only the shapes that TreapImpl itself builds are accepted, with the same tie-break of equal priorities
+        private static void attach(TreapImpl.TreapNode parent, TreapImpl.TreapNode child, boolean asRight)
+                throws IOException {
+            if (TreapImpl.isAbove(child, parent)) {
+                throw new IOException(CORRUPTED_SNAPSHOT_MESSAGE);
+            }
+            if (asRight) {
+                parent.right = child;
+            } else {
+                parent.left = child;
+            }
+            child.parent = parent;
+        }
+    }
+
+    // The next node in pre-order, found with the parent pointers
+    protected static TreapImpl.TreapNode preOrderSuccessor(TreapImpl.TreapNode node) {
+        if (node.left != null) {
+            return node.left;
+        }
+        if (node.right != null) {
+            return node.right;
+        }
+        TreapImpl.TreapNode child = node;
+        TreapImpl.TreapNode current = node.parent;
+        while (current != null && (child == current.right || current.right == null)) {
+            child = current;
+            current = current.parent;
+        }
+        return (current != null) ? current.right : null;
+    }
+
+    // Post-order walk with the parent pointers, so every node is updated after its children
+    protected static void updateAllSizes(TreapImpl treap) {
+        TreapImpl.TreapNode previous = null;
+        TreapImpl.TreapNode current = treap.root;
+        while (current != null) {
+            TreapImpl.TreapNode next;
+            if (previous == current.parent && current.left != null) {
+                next = current.left;
+            } else if ((previous == current.parent || previous == current.left) && current.right != null) {
+                next = current.right;
+            } else {
+                treap.update(current);
+                next = current.parent;
+            }
+            previous = current;
+            current = next;
+        }
+    }
+}
@@ -0,0 +1,180 @@
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.function.LongBinaryOperator;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class AggregateTreapTest {
+
+    @Test
+    public void testEmptyTreap() {
+        AggregateTreap treap = AggregateTreap.sum();
+        assertEquals(0, treap.aggregate());
+        assertEquals(0, treap.aggregate(Integer.MIN_VALUE, Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void testPutAndGet() {
+        AggregateTreap treap = AggregateTreap.sum();
+        treap.put(5, 50);
+        treap.put(3, 30);
+        treap.put(5, 55);
+        assertEquals(2, treap.size());
+        assertEquals(55, treap.get(5));
+        assertEquals(30, treap.get(3));
+        assertEquals(85, treap.aggregate());
+    }
+
+    @Test(expected = java.util.NoSuchElementException.class)
+    public void testGetMissingKey() {
+        AggregateTreap.sum().get(1);
+    }
+
+    @Test
+    public void testInsertUsesTheIdentity() {
+        AggregateTreap treap = AggregateTreap.min();
+        treap.insert(1);
+        assertEquals(Long.MAX_VALUE, treap.get(1));
+        treap.put(2, 7);
+        assertEquals(7, treap.aggregate(0, 10));
+    }
+
+    @Test
+    public void testRangeSums() {
+        AggregateTreap treap = AggregateTreap.sum();
+        for (int i = 0; i < 100; i++) {
+            treap.put(i * 10, i);
+        }
+        assertEquals(4950, treap.aggregate());
+        assertEquals(1 + 2 + 3, treap.aggregate(5, 35));
+        assertEquals(1 + 2 + 3, treap.aggregate(10, 30));
+        assertEquals(0, treap.aggregate(11, 19));
+        assertEquals(0, treap.aggregate(30, 10));
+        treap.remove(20);
+        assertEquals(1 + 3, treap.aggregate(10, 30));
+    }
+
+    @Test
+    public void testRandomOperationsMatchTreeMap() {
+        checkRandomOperations(AggregateTreap.sum(), 0, (a, b) -> a + b);
+        checkRandomOperations(AggregateTreap.min(), Long.MAX_VALUE, Math::min);
+        checkRandomOperations(AggregateTreap.max(), Long.MIN_VALUE, Math::max);
+        // the last value in the range - associative, but not commutative
+        LongBinaryOperator last = (a, b) -> (b != Long.MIN_VALUE) ? b : a;
+        checkRandomOperations(new AggregateTreap(Long.MIN_VALUE, last, 4), Long.MIN_VALUE, last);
+    }
+
+    @Test
+    public void testSetOperationsKeepTheAggregates() {
+        AggregateTreap first = AggregateTreap.sum();
+        AggregateTreap second = AggregateTreap.sum();
+        for (int i = 0; i < 50_000; i++) {
+            first.put(i * 2, 1);
+            second.put(i * 3, 1);
+        }
+        AggregateTreap union = (AggregateTreap) TreapImpl.union(first, second);
+        assertEquals(union.size(), union.aggregate());
+        assertEquals(union.countInRange(1000, 5000), union.aggregate(1000, 5000));
+        TreapImpl[] parts = union.split(3000);
+        assertEquals(parts[0].size(), ((AggregateTreap) parts[0]).aggregate());
+        assertEquals(parts[1].size(), ((AggregateTreap) parts[1]).aggregate());
+    }
+
+    @Test
+    public void testSetOperationsKeepTheValuesOfTheFirstTreap() {
+        AggregateTreap first = AggregateTreap.sum();
+        AggregateTreap second = AggregateTreap.sum();
+        for (int i = 0; i < 1000; i++) {
+            first.put(i, 1);
+            second.put(i + 500, 100);
+        }
+        AggregateTreap union = (AggregateTreap) TreapImpl.union(first, second);
+        assertEquals(1500, union.size());
+        for (int i = 0; i < 1500; i++) {
+            assertEquals((i < 1000) ? 1 : 100, union.get(i));
+        }
+        assertEquals(1000 + 500 * 100, union.aggregate());
+
+        first = AggregateTreap.sum();
+        second = AggregateTreap.sum();
+        for (int i = 0; i < 1000; i++) {
+            first.put(i, 1);
+            second.put(i + 500, 100);
+        }
+        AggregateTreap intersection = (AggregateTreap) TreapImpl.intersection(first, second);
+        assertEquals(500, intersection.size());
+        assertEquals(500, intersection.aggregate());
+    }
+
+    @Test
+    public void testSetOperationsRejectOtherKindsOfTreaps() {
+        AggregateTreap sum = AggregateTreap.sum();
+        AggregateTreap max = AggregateTreap.max();
+        TreapImpl plain = new TreapImpl();
+        sum.put(1, 40);
+        max.put(2, 2);
+        plain.insert(3);
+        assertRejected(sum, plain);
+        assertRejected(plain, sum);
+        assertRejected(sum, max);
+        assertRejected(sum, new AggregateTreap(0, (a, b) -> a + b));
+        assertRejected(sum, new AggregateTreap(1, (a, b) -> a * b));
+        // nothing was touched
+        assertEquals(40, sum.aggregate());
+        assertEquals(2, max.aggregate());
+        assertTrue(plain.containsKey(3));
+
+        AggregateTreap union = (AggregateTreap) TreapImpl.union(sum, AggregateTreap.sum());
+        assertEquals(40, union.aggregate());
+    }
+
+    private static void assertRejected(TreapImpl first, TreapImpl second) {
+        try {
+            TreapImpl.union(first, second);
+            fail("union() accepted treaps of different kinds");
+        } catch (IllegalArgumentException expected) {
+        }
+        try {
+            TreapImpl.intersection(first, second);
+            fail("intersection() accepted treaps of different kinds");
+        } catch (IllegalArgumentException expected) {
+        }
+        try {
+            TreapImpl.difference(first, second);
+            fail("difference() accepted treaps of different kinds");
+        } catch (IllegalArgumentException expected) {
+        }
+        try {
+            TreapImpl.join(first, second);
+            fail("join() accepted treaps of different kinds");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    private static void checkRandomOperations(AggregateTreap treap, long identity, LongBinaryOperator operation) {
+        Random random = new Random(8);
+        TreeMap<Integer, Long> expected = new TreeMap<Integer, Long>();
+        for (int i = 0; i < 5000; i++) {
+            int key = random.nextInt(500);
+            int operationType = random.nextInt(4);
+            if (operationType == 0) {
+                treap.remove(key);
+                expected.remove(key);
+            } else if (operationType == 1) {
+                int low = random.nextInt(520) - 10;
+                int high = low + random.nextInt(200);
+                long result = identity;
+                for (Map.Entry<Integer, Long> entry : expected.subMap(low, true, high, true).entrySet()) {
+                    result = operation.applyAsLong(result, entry.getValue());
+                }
+                assertEquals(result, treap.aggregate(low, high));
+            } else {
+                long value = random.nextInt(1000) - 500;
+                treap.put(key, value);
+                expected.put(key, value);
+            }
+        }
+        assertEquals(expected.size(), treap.size());
+    }
+}
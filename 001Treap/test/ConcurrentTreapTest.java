@@ -0,0 +1,192 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class ConcurrentTreapTest {
+
+    @Test
+    public void testSingleThreadedOperations() {
+        ConcurrentTreap treap = new ConcurrentTreap();
+        for (int i = 0; i < 100; i++) {
+            treap.insert(i);
+        }
+        treap.remove(50);
+        assertEquals(99, treap.size());
+        assertTrue(treap.containsKey(49));
+        assertFalse(treap.containsKey(50));
+        assertEquals(10, treap.countInRange(45, 55));
+        assertEquals(0, treap.countInRange(55, 45));
+        assertArrayEquals(new int[] { 48, 49, 51, 52 }, treap.rangeKeys(48, 52));
+        assertEquals(0, treap.rangeKeys(200, 300).length);
+
+        final List<Integer> keys = new ArrayList<Integer>();
+        treap.forEachInRange(-10, 2, key -> keys.add(key));
+        assertEquals(3, keys.size());
+    }
+
+    @Test
+    public void testRangesAtTheEndsOfInt() {
+        ConcurrentTreap treap = new ConcurrentTreap();
+        treap.insert(Integer.MIN_VALUE);
+        treap.insert(Integer.MAX_VALUE);
+        treap.insert(0);
+        assertArrayEquals(new int[] { Integer.MIN_VALUE, 0, Integer.MAX_VALUE },
+                treap.rangeKeys(Integer.MIN_VALUE, Integer.MAX_VALUE));
+        assertEquals(1, treap.countInRange(Integer.MAX_VALUE, Integer.MAX_VALUE));
+        assertTrue(treap.containsKey(Integer.MIN_VALUE));
+    }
+
+    @Test
+    public void testCopyOfTreapImpl() {
+        TreapImpl source = new TreapImpl(5);
+        for (int i = 0; i < 1000; i++) {
+            source.insert(i * 3);
+        }
+        ConcurrentTreap treap = new ConcurrentTreap(source);
+        assertEquals(1000, treap.size());
+        assertEquals(source.countInRange(100, 2000), treap.countInRange(100, 2000));
+        treap.remove(3);
+        treap.insert(4);
+        assertTrue(source.containsKey(3));
+        assertFalse(source.containsKey(4));
+        assertFalse(treap.containsKey(3));
+        assertTrue(treap.containsKey(4));
+        assertValidTreap(treap);
+    }
+
+    @Test
+    public void testConcurrentWritersKeepAValidTreap() throws InterruptedException {
+        final ConcurrentTreap treap = new ConcurrentTreap();
+        final int writers = 4;
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int w = 0; w < writers; w++) {
+            final int writer = w;
+            threads.add(new Thread(() -> {
+                // the keys of the writers are interleaved, so they meet in the same subtrees
+                java.util.Random random = new java.util.Random(writer);
+                for (int i = 0; i < 100_000; i++) {
+                    int key = random.nextInt(5000) * writers + writer;
+                    if (random.nextInt(3) == 0) {
+                        treap.remove(key);
+                    } else {
+                        treap.insert(key);
+                    }
+                }
+                // in the end only the keys with key % (2 * writers) < writers stay
+                for (int key = writer; key < 5000 * writers; key += writers) {
+                    if (key % (2 * writers) < writers) {
+                        treap.insert(key);
+                    } else {
+                        treap.remove(key);
+                    }
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(5000 * writers / 2, treap.size());
+        for (int key = 0; key < 5000 * writers; key++) {
+            assertEquals(key % (2 * writers) < writers, treap.containsKey(key));
+        }
+        assertEquals(5000 * writers / 2, treap.rangeKeys(Integer.MIN_VALUE, Integer.MAX_VALUE).length);
+        assertValidTreap(treap);
+    }
+
+    @Test
+    public void testReadersAlwaysSeeTheStableKeysWhileWritersRun() throws InterruptedException {
+        final ConcurrentTreap treap = new ConcurrentTreap();
+        // even keys are never touched, odd keys are inserted and removed all the time
+        for (int i = 0; i < 20_000; i += 2) {
+            treap.insert(i);
+        }
+        final AtomicBoolean stop = new AtomicBoolean(false);
+        final AtomicInteger failures = new AtomicInteger(0);
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int w = 0; w < 2; w++) {
+            final int writer = w;
+            threads.add(new Thread(() -> {
+                java.util.Random random = new java.util.Random(writer);
+                while (!stop.get()) {
+                    int key = random.nextInt(10_000) * 2 + 1;
+                    if (random.nextBoolean()) {
+                        treap.insert(key);
+                    } else {
+                        treap.remove(key);
+                    }
+                }
+            }));
+        }
+        for (int r = 0; r < 4; r++) {
+            final int reader = r;
+            threads.add(new Thread(() -> {
+                java.util.Random random = new java.util.Random(100 + reader);
+                for (int i = 0; i < 200_000; i++) {
+                    int key = random.nextInt(10_000) * 2;
+                    if (!treap.containsKey(key)) {
+                        failures.incrementAndGet();
+                    }
+                    if (i % 1000 == 0) {
+                        int[] keys = treap.rangeKeys(key, key + 100);
+                        int even = 0;
+                        for (int k : keys) {
+                            if (k % 2 == 0) {
+                                even++;
+                            }
+                        }
+                        if (even != Math.min(51, (20_000 - key + 1) / 2)) {
+                            failures.incrementAndGet();
+                        }
+                    }
+                }
+            }));
+        }
+        for (Thread thread : threads.subList(2, threads.size())) {
+            thread.start();
+        }
+        threads.get(0).start();
+        threads.get(1).start();
+        for (Thread thread : threads.subList(2, threads.size())) {
+            thread.join();
+        }
+        stop.set(true);
+        threads.get(0).join();
+        threads.get(1).join();
+        assertEquals(0, failures.get());
+        assertValidTreap(treap);
+    }
+
+    // Checks the links, the order of the keys and the heap order of the priorities
+    private static void assertValidTreap(ConcurrentTreap treap) {
+        ConcurrentTreap.Node root = treap.rootHolder.right;
+        if (root != null) {
+            assertSame(treap.rootHolder, root.parent);
+        }
+        assertValidSubtree(root, Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    private static void assertValidSubtree(ConcurrentTreap.Node node, long min, long max) {
+        if (node == null) {
+            return;
+        }
+        // a routing node with a single child would have been unlinked
+        assertTrue(node.present || (node.left != null && node.right != null));
+        assertFalse(node.rising);
+        assertTrue(node.key >= min && node.key <= max);
+        for (ConcurrentTreap.Node child : new ConcurrentTreap.Node[] { node.left, node.right }) {
+            if (child != null) {
+                assertSame(node, child.parent);
+                assertTrue(node.priority < child.priority
+                        || (node.priority == child.priority && node.key < child.key));
+            }
+        }
+        assertValidSubtree(node.left, min, (long) node.key - 1);
+        assertValidSubtree(node.right, (long) node.key + 1, max);
+    }
+}
@@ -0,0 +1,133 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class ImplicitTreapTest {
+
+    @Test
+    public void testEmptySequence() {
+        ImplicitTreap sequence = new ImplicitTreap();
+        assertEquals(0, sequence.size());
+        assertTrue(sequence.isEmpty());
+        assertEquals(0, sequence.toArray().length);
+    }
+
+    @Test
+    public void testAddAndGet() {
+        ImplicitTreap sequence = new ImplicitTreap();
+        for (int i = 0; i < 100; i++) {
+            sequence.add(i * 10);
+        }
+        assertEquals(100, sequence.size());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i * 10, sequence.get(i));
+        }
+    }
+
+    @Test
+    public void testInsertAtTheFront() {
+        ImplicitTreap sequence = new ImplicitTreap();
+        for (int i = 0; i < 5; i++) {
+            sequence.insertAt(0, i);
+        }
+        assertArrayEquals(new int[] { 4, 3, 2, 1, 0 }, sequence.toArray());
+    }
+
+    @Test
+    public void testRemoveAt() {
+        ImplicitTreap sequence = new ImplicitTreap();
+        for (int i = 0; i < 5; i++) {
+            sequence.add(i);
+        }
+        assertEquals(2, sequence.removeAt(2));
+        assertEquals(0, sequence.removeAt(0));
+        assertEquals(4, sequence.removeAt(2));
+        assertArrayEquals(new int[] { 1, 3 }, sequence.toArray());
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testGetFromEmptySequence() {
+        new ImplicitTreap().get(0);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testInsertAfterTheEnd() {
+        ImplicitTreap sequence = new ImplicitTreap();
+        sequence.add(1);
+        sequence.insertAt(2, 5);
+    }
+
+    @Test
+    public void testSplitAndConcat() {
+        ImplicitTreap sequence = new ImplicitTreap();
+        for (int i = 0; i < 10; i++) {
+            sequence.add(i);
+        }
+        ImplicitTreap rest = sequence.split(4);
+        assertArrayEquals(new int[] { 0, 1, 2, 3 }, sequence.toArray());
+        assertArrayEquals(new int[] { 4, 5, 6, 7, 8, 9 }, rest.toArray());
+
+        rest.concat(sequence);
+        assertTrue(sequence.isEmpty());
+        assertArrayEquals(new int[] { 4, 5, 6, 7, 8, 9, 0, 1, 2, 3 }, rest.toArray());
+    }
+
+    @Test
+    public void testReverseAndAddToRange() {
+        ImplicitTreap sequence = new ImplicitTreap();
+        for (int i = 0; i < 8; i++) {
+            sequence.add(i);
+        }
+        sequence.reverse(2, 6);
+        assertArrayEquals(new int[] { 0, 1, 5, 4, 3, 2, 6, 7 }, sequence.toArray());
+        sequence.addToRange(1, 4, 100);
+        assertArrayEquals(new int[] { 0, 101, 105, 104, 3, 2, 6, 7 }, sequence.toArray());
+        sequence.reverse(0, 8);
+        assertArrayEquals(new int[] { 7, 6, 2, 3, 104, 105, 101, 0 }, sequence.toArray());
+        assertEquals(105, sequence.get(5));
+    }
+
+    @Test
+    public void testRandomOperationsMatchArrayList() {
+        Random random = new Random(31);
+        ImplicitTreap sequence = new ImplicitTreap();
+        List<Integer> expected = new ArrayList<Integer>();
+        for (int i = 0; i < 20_000; i++) {
+            int size = expected.size();
+            int operation = random.nextInt(6);
+            if (operation <= 1 || size == 0) {
+                int index = random.nextInt(size + 1);
+                int value = random.nextInt(1000);
+                sequence.insertAt(index, value);
+                expected.add(index, value);
+            } else if (operation == 2) {
+                int index = random.nextInt(size);
+                assertEquals((int) expected.remove(index), sequence.removeAt(index));
+            } else if (operation == 3) {
+                int index = random.nextInt(size);
+                assertEquals((int) expected.get(index), sequence.get(index));
+            } else {
+                int from = random.nextInt(size + 1);
+                int to = from + random.nextInt(size - from + 1);
+                if (operation == 4) {
+                    sequence.reverse(from, to);
+                    Collections.reverse(expected.subList(from, to));
+                } else {
+                    int delta = random.nextInt(21) - 10;
+                    sequence.addToRange(from, to, delta);
+                    for (int j = from; j < to; j++) {
+                        expected.set(j, expected.get(j) + delta);
+                    }
+                }
+            }
+            assertEquals(expected.size(), sequence.size());
+        }
+        int[] actual = sequence.toArray();
+        for (int i = 0; i < actual.length; i++) {
+            assertEquals((int) expected.get(i), actual[i]);
+        }
+    }
+}
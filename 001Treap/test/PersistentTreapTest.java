@@ -0,0 +1,155 @@
+import java.util.Random;
+import java.util.TreeSet;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class PersistentTreapTest {
+
+    @Test
+    public void testEmptyTreap() {
+        PersistentTreap treap = new PersistentTreap();
+        assertEquals(0, treap.size());
+        assertFalse(treap.containsKey(5));
+    }
+
+    @Test
+    public void testInsertAndRemove() {
+        PersistentTreap treap = new PersistentTreap();
+        for (int i = 0; i < 100; i++) {
+            treap.insert(i);
+        }
+        treap.insert(5);
+        assertEquals(100, treap.size());
+        for (int i = 0; i < 50; i++) {
+            treap.remove(i);
+        }
+        treap.remove(1000);
+        assertEquals(50, treap.size());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i >= 50, treap.containsKey(i));
+        }
+        assertValidTreap(treap.root, Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    @Test
+    public void testSnapshotDoesNotSeeLaterUpdates() {
+        PersistentTreap treap = new PersistentTreap();
+        for (int i = 0; i < 100; i++) {
+            treap.insert(i);
+        }
+        PersistentTreap snapshot = treap.snapshot();
+        for (int i = 0; i < 100; i += 2) {
+            treap.remove(i);
+        }
+        treap.insert(500);
+
+        assertEquals(100, snapshot.size());
+        assertEquals(51, treap.size());
+        for (int i = 0; i < 100; i++) {
+            assertTrue(snapshot.containsKey(i));
+            assertEquals(i % 2 == 1, treap.containsKey(i));
+        }
+        assertFalse(snapshot.containsKey(500));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testSnapshotIsReadOnly() {
+        PersistentTreap treap = new PersistentTreap();
+        treap.snapshot().insert(1);
+    }
+
+    @Test
+    public void testWithKeyAndWithoutKeyKeepTheOldVersion() {
+        PersistentTreap first = new PersistentTreap();
+        first.insert(1);
+        PersistentTreap second = first.withKey(2);
+        PersistentTreap third = second.withoutKey(1);
+        assertTrue(first.containsKey(1));
+        assertFalse(first.containsKey(2));
+        assertTrue(second.containsKey(1));
+        assertTrue(second.containsKey(2));
+        assertFalse(third.containsKey(1));
+        assertTrue(third.containsKey(2));
+    }
+
+    @Test
+    public void testUpdatesCopyOnlyAPath() {
+        PersistentTreap treap = new PersistentTreap(7);
+        for (int i = 0; i < 100_000; i++) {
+            treap.insert(i);
+        }
+        PersistentTreap.Node oldRoot = treap.root;
+        treap.insert(-1);
+        assertTrue(treap.getLastAllocationCount() > 0);
+        assertTrue(treap.getLastAllocationCount() < 100);
+        treap.remove(50_000);
+        assertTrue(treap.getLastAllocationCount() < 100);
+        treap.insert(-1);
+        assertEquals(0, treap.getLastAllocationCount());
+        assertEquals(100_000, size(oldRoot));
+    }
+
+    @Test
+    public void testHashedPrioritiesMatchTreapImpl() {
+        PersistentTreap persistent = new PersistentTreap(11);
+        TreapImpl treap = new TreapImpl(11);
+        for (int i = 0; i < 1000; i++) {
+            persistent.insert(i * 7 % 1000);
+            treap.insert(i * 7 % 1000);
+        }
+        assertSameShape(treap.root, persistent.root);
+    }
+
+    @Test
+    public void testRandomOperationsMatchTreeSet() {
+        Random random = new Random(9);
+        PersistentTreap treap = new PersistentTreap();
+        TreeSet<Integer> expected = new TreeSet<Integer>();
+        for (int i = 0; i < 20_000; i++) {
+            int key = random.nextInt(1000);
+            if (random.nextInt(3) == 0) {
+                treap.remove(key);
+                expected.remove(key);
+            } else {
+                treap.insert(key);
+                expected.add(key);
+            }
+        }
+        assertEquals(expected.size(), treap.size());
+        for (int key = 0; key < 1000; key++) {
+            assertEquals(expected.contains(key), treap.containsKey(key));
+        }
+        assertValidTreap(treap.root, Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    private static int size(PersistentTreap.Node node) {
+        return (node == null) ? 0 : size(node.left) + 1 + size(node.right);
+    }
+
+    private static void assertSameShape(TreapImpl.TreapNode expected, PersistentTreap.Node actual) {
+        if (expected == null) {
+            assertNull(actual);
+            return;
+        }
+        assertEquals(expected.key, actual.key);
+        assertSameShape(expected.left, actual.left);
+        assertSameShape(expected.right, actual.right);
+    }
+
+    private static int assertValidTreap(PersistentTreap.Node node, long min, long max) {
+        if (node == null) {
+            return 0;
+        }
+        assertTrue(node.key >= min && node.key <= max);
+        if (node.left != null) {
+            assertTrue(node.priority <= node.left.priority);
+        }
+        if (node.right != null) {
+            assertTrue(node.priority <= node.right.priority);
+        }
+        int size = assertValidTreap(node.left, min, (long) node.key - 1) + 1
+                + assertValidTreap(node.right, (long) node.key + 1, max);
+        assertEquals(size, node.size);
+        return size;
+    }
+}
@@ -0,0 +1,196 @@
+import java.util.Random;
+import java.util.TreeSet;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class TreapArrayImplUnitTest {
+
+    @Test
+    public void testEmptyTreapSizeIsZero() {
+        TreapArrayImpl treap = new TreapArrayImpl();
+        assertEquals(0, treap.size());
+        assertEquals(TreapArrayImpl.NIL, treap.root);
+    }
+
+    @Test
+    public void testInsertOneElement() {
+        TreapArrayImpl treap = new TreapArrayImpl();
+        treap.insert(5);
+        assertEquals(1, treap.size());
+        assertEquals(5, treap.keys[treap.root]);
+    }
+
+    @Test
+    public void testInsertRepeatingElement() {
+        TreapArrayImpl treap = new TreapArrayImpl();
+        treap.insert(5);
+        treap.insert(5);
+        assertEquals(1, treap.size());
+        assertEquals(5, treap.keys[treap.root]);
+    }
+
+    @Test
+    public void testRepeatingInsertsReuseTheSameSlot() {
+        TreapArrayImpl treap = new TreapArrayImpl();
+        for (int i = 0; i < 10; i++) {
+            treap.insert(i);
+        }
+        for (int round = 0; round < 100; round++) {
+            treap.insert(round % 10);
+        }
+        assertEquals(10, treap.size());
+        // the slot taken by a repeating key is freed and taken again by the next one
+        assertEquals(11, treap.used);
+    }
+
+    @Test
+    public void testEqualPrioritiesAreOrderedByKey() {
+        TreapArrayImpl treap = new TreapArrayImpl();
+        for (int key : new int[] { 3, 5, 1, 4, 2 }) {
+            int node = treap.allocateNode(key, 0.5f);
+            assertTrue(treap.insertBST(node));
+            treap.rotateUpHeapify(node);
+            treap.size++;
+        }
+        // like TreapImpl.isAbove() - the smallest key is on top, so the treap is a right path
+        int node = treap.root;
+        for (int key = 1; key <= 5; key++) {
+            assertEquals(key, treap.keys[node]);
+            assertEquals(TreapArrayImpl.NIL, treap.left[node]);
+            node = treap.right[node];
+        }
+        treap.remove(1);
+        assertEquals(2, treap.keys[treap.root]);
+        assertHeapAndBSTProperties(treap, treap.root, Integer.MIN_VALUE, Integer.MAX_VALUE);
+    }
+
+    @Test
+    public void testInsertGrowsTheArrays() {
+        TreapArrayImpl treap = new TreapArrayImpl(1);
+        for (int i = 0; i < 1000; i++) {
+            treap.insert(i);
+        }
+        assertEquals(1000, treap.size());
+        assertTrue(treap.capacity() >= 1000);
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(treap.containsKey(i));
+        }
+    }
+
+    @Test
+    public void testContainsOnEmptyTreap() {
+        TreapArrayImpl treap = new TreapArrayImpl();
+        assertFalse(treap.containsKey(5));
+    }
+
+    @Test
+    public void testContainsNonExistingElement() {
+        TreapArrayImpl treap = new TreapArrayImpl();
+        treap.insert(-1);
+        assertFalse(treap.containsKey(123));
+    }
+
+    @Test
+    public void testRemoveTheOnlyElement() {
+        TreapArrayImpl treap = new TreapArrayImpl();
+        treap.insert(5);
+        treap.remove(5);
+        assertEquals(0, treap.size());
+        assertEquals(TreapArrayImpl.NIL, treap.root);
+    }
+
+    @Test
+    public void testRemoveMultipleElements() {
+        TreapArrayImpl treap = new TreapArrayImpl();
+        for (int i = 0; i < 100; i++) {
+            treap.insert(i);
+        }
+        for (int i = 0; i < 50; i++) {
+            treap.remove(i);
+        }
+
+        assertEquals(50, treap.size());
+        for (int i = 0; i < 50; i++) {
+            assertFalse(treap.containsKey(i));
+        }
+        for (int i = 50; i < 100; i++) {
+            assertTrue(treap.containsKey(i));
+        }
+    }
+
+    @Test
+    public void testRemoveNonExistingElement() {
+        TreapArrayImpl treap = new TreapArrayImpl();
+        for (int i = 0; i < 100; i++) {
+            treap.insert(i);
+        }
+        treap.remove(1000);
+        assertEquals(100, treap.size());
+    }
+
+    @Test
+    public void testRemovedSlotsAreReused() {
+        TreapArrayImpl treap = new TreapArrayImpl();
+        for (int i = 0; i < 100; i++) {
+            treap.insert(i);
+        }
+        int capacity = treap.capacity();
+        for (int round = 0; round < 10; round++) {
+            for (int i = 0; i < 100; i++) {
+                treap.remove(i);
+            }
+            assertEquals(0, treap.size());
+            for (int i = 0; i < 100; i++) {
+                treap.insert(i);
+            }
+            assertEquals(100, treap.size());
+        }
+        assertEquals(capacity, treap.capacity());
+        assertEquals(100, treap.used);
+    }
+
+    @Test
+    public void testRandomOperationsMatchTreapImpl() {
+        Random random = new Random(123);
+        TreapArrayImpl treap = new TreapArrayImpl();
+        TreapImpl reference = new TreapImpl();
+        TreeSet<Integer> expected = new TreeSet<Integer>();
+        for (int i = 0; i < 20_000; i++) {
+            int key = random.nextInt(1000);
+            if (random.nextInt(3) == 0) {
+                treap.remove(key);
+                reference.remove(key);
+                expected.remove(key);
+            } else {
+                treap.insert(key);
+                reference.insert(key);
+                expected.add(key);
+            }
+            assertEquals(reference.size(), treap.size());
+        }
+        assertEquals(expected.size(), treap.size());
+        for (int key = 0; key < 1000; key++) {
+            assertEquals(reference.containsKey(key), treap.containsKey(key));
+        }
+        assertHeapAndBSTProperties(treap, treap.root, Integer.MIN_VALUE, Integer.MAX_VALUE);
+    }
+
+    private static void assertHeapAndBSTProperties(TreapArrayImpl treap, int node, long min, long max) {
+        if (node == TreapArrayImpl.NIL) {
+            return;
+        }
+        assertTrue(treap.keys[node] >= min && treap.keys[node] <= max);
+        int l = treap.left[node];
+        int r = treap.right[node];
+        if (l != TreapArrayImpl.NIL) {
+            assertEquals(node, treap.parent[l]);
+            assertTrue(treap.isAbove(node, l));
+        }
+        if (r != TreapArrayImpl.NIL) {
+            assertEquals(node, treap.parent[r]);
+            assertTrue(treap.isAbove(node, r));
+        }
+        assertHeapAndBSTProperties(treap, l, min, (long) treap.keys[node] - 1);
+        assertHeapAndBSTProperties(treap, r, (long) treap.keys[node] + 1, max);
+    }
+}
@@ -0,0 +1,159 @@
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class TreapSnapshotTest {
+
+    @Test
+    public void testSaveAndLoadEmptyTreap() throws IOException {
+        Path file = tempFile();
+        TreapSnapshot.save(new TreapImpl(), file);
+        TreapImpl loaded = TreapSnapshot.load(file);
+        assertEquals(0, loaded.size());
+        assertNull(loaded.root);
+    }
+
+    @Test
+    public void testLoadedTreapHasTheSameShape() throws IOException {
+        Random random = new Random(3);
+        TreapImpl treap = new TreapImpl();
+        for (int i = 0; i < 50_000; i++) {
+            treap.insert(random.nextInt());
+        }
+        for (int i = 0; i < 1000; i++) {
+            treap.remove(treap.select(random.nextInt(treap.size())));
+        }
+        Path file = tempFile();
+        TreapSnapshot.save(treap, file);
+        assertEquals(24 + 8L * treap.size(), file.toFile().length());
+
+        TreapImpl loaded = TreapSnapshot.load(file);
+        assertTrue(treap.structurallyEquals(loaded));
+        assertEquals(treap.size(), loaded.size());
+        assertEquals(treap.median(), loaded.median());
+        assertNull(loaded.root.parent);
+
+        loaded.insert(5);
+        loaded.remove(treap.select(10));
+        assertTrue(loaded.containsKey(5));
+    }
+
+    @Test
+    public void testHashedPrioritiesAreKept() throws IOException {
+        TreapImpl treap = new TreapImpl(99);
+        for (int i = 0; i < 1000; i++) {
+            treap.insert(i);
+        }
+        Path file = tempFile();
+        TreapSnapshot.save(treap, file);
+        TreapImpl loaded = TreapSnapshot.load(file);
+        assertTrue(loaded.hashedPriorities);
+        assertEquals(99, loaded.prioritySeed);
+
+        treap.insert(5000);
+        loaded.insert(5000);
+        assertTrue(treap.structurallyEquals(loaded));
+    }
+
+    @Test(expected = IOException.class)
+    public void testLoadFileWithoutHeader() throws IOException {
+        Path file = tempFile();
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(file.toFile()))) {
+            out.writeInt(1);
+        }
+        TreapSnapshot.load(file);
+    }
+
+    @Test(expected = IOException.class)
+    public void testLoadNodesNotInPreOrder() throws IOException {
+        Path file = tempFile();
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(file.toFile()))) {
+            out.writeInt(TreapSnapshot.MAGIC);
+            out.writeInt(TreapSnapshot.VERSION);
+            out.writeInt(0);
+            out.writeLong(0);
+            out.writeInt(4);
+            // 5 -> left 2, 7 -> right of 5, then 3 can not be in the right subtree of 5
+            out.writeInt(5);
+            out.writeFloat(0.1f);
+            out.writeInt(2);
+            out.writeFloat(0.2f);
+            out.writeInt(7);
+            out.writeFloat(0.3f);
+            out.writeInt(3);
+            out.writeFloat(0.4f);
+        }
+        TreapSnapshot.load(file);
+    }
+
+    @Test(expected = IOException.class)
+    public void testLoadRepeatingKeyAfterARightTurn() throws IOException {
+        Path file = tempFile();
+        // 5 -> left 3, then 5 again would be the right child of 3
+        writeNodes(file, new int[] { 5, 3, 5 }, new float[] { 0.1f, 0.2f, 0.3f });
+        TreapSnapshot.load(file);
+    }
+
+    @Test(expected = IOException.class)
+    public void testLoadRepeatingKeyRightAfterItself() throws IOException {
+        Path file = tempFile();
+        writeNodes(file, new int[] { 5, 5 }, new float[] { 0.1f, 0.2f });
+        TreapSnapshot.load(file);
+    }
+
+    @Test(expected = IOException.class)
+    public void testLoadChildAboveItsParent() throws IOException {
+        Path file = tempFile();
+        writeNodes(file, new int[] { 5, 3 }, new float[] { 0.2f, 0.1f });
+        TreapSnapshot.load(file);
+    }
+
+    @Test
+    public void testLoadEqualPrioritiesOnlyInTheOrderOfTreapImpl() throws IOException {
+        Path file = tempFile();
+        // with equal priorities the smaller key is on top, so 3 -> right 5 is valid
+        writeNodes(file, new int[] { 3, 5 }, new float[] { 0.5f, 0.5f });
+        TreapImpl loaded = TreapSnapshot.load(file);
+        assertEquals(3, loaded.root.key);
+        assertEquals(5, loaded.root.right.key);
+
+        // but 5 -> left 3 is not
+        writeNodes(file, new int[] { 5, 3 }, new float[] { 0.5f, 0.5f });
+        try {
+            TreapSnapshot.load(file);
+            fail("A shape that TreapImpl can not build was loaded");
+        } catch (IOException expected) {
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSaveAggregateTreap() throws IOException {
+        TreapSnapshot.save(AggregateTreap.sum(), tempFile());
+    }
+
+    // Writes a snapshot without hashed priorities with the given nodes in this order
+    private static void writeNodes(Path file, int[] keys, float[] priorities) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(file.toFile()))) {
+            out.writeInt(TreapSnapshot.MAGIC);
+            out.writeInt(TreapSnapshot.VERSION);
+            out.writeInt(0);
+            out.writeLong(0);
+            out.writeInt(keys.length);
+            for (int i = 0; i < keys.length; i++) {
+                out.writeInt(keys[i]);
+                out.writeFloat(priorities[i]);
+            }
+        }
+    }
+
+    private static Path tempFile() throws IOException {
+        File file = File.createTempFile("treap", ".bin");
+        file.deleteOnExit();
+        return file.toPath();
+    }
+}
@@ -1,3 +1,9 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Random;
+import java.util.TreeSet;
 import org.junit.Test;
 import static org.junit.Assert.*;
 
@@ -155,4 +161,502 @@ public class TreapUnitTest {
         assertEquals(0, treap.size);
         assertNull(treap.root);
     }
-}
\ No newline at end of file
+    
+    @Test
+    public void testSubtreeSizesAfterInsertsAndRemoves() {
+        Random random = new Random(5);
+        TreapImpl treap = new TreapImpl();
+        for (int i = 0; i < 10_000; i++) {
+            if (random.nextInt(3) == 0) {
+                treap.remove(random.nextInt(2000));
+            } else {
+                treap.insert(random.nextInt(2000));
+            }
+        }
+        assertValidTreap(treap);
+    }
+    
+    @Test
+    public void testRankAndSelect() {
+        TreapImpl treap = new TreapImpl();
+        for (int i = 0; i < 100; i++) {
+            treap.insert(i * 2);
+        }
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i * 2, treap.select(i));
+            assertEquals(i, treap.rank(i * 2));
+            assertEquals(i + 1, treap.rank(i * 2 + 1));
+        }
+        assertEquals(0, treap.rank(Integer.MIN_VALUE));
+        assertEquals(100, treap.rank(Integer.MAX_VALUE));
+    }
+    
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testSelectOutOfRange() {
+        TreapImpl treap = new TreapImpl();
+        treap.insert(1);
+        treap.select(1);
+    }
+    
+    @Test
+    public void testCountInRange() {
+        TreapImpl treap = new TreapImpl();
+        for (int i = 0; i < 100; i++) {
+            treap.insert(i * 2);
+        }
+        assertEquals(100, treap.countInRange(Integer.MIN_VALUE, Integer.MAX_VALUE));
+        assertEquals(6, treap.countInRange(10, 20));
+        assertEquals(5, treap.countInRange(11, 20));
+        assertEquals(1, treap.countInRange(10, 10));
+        assertEquals(0, treap.countInRange(11, 11));
+        assertEquals(0, treap.countInRange(20, 10));
+    }
+    
+    @Test
+    public void testMedian() {
+        TreapImpl treap = new TreapImpl();
+        for (int i = 1; i <= 5; i++) {
+            treap.insert(i * 10);
+        }
+        assertEquals(30, treap.median());
+        treap.insert(60);
+        assertEquals(30, treap.median());
+        treap.remove(10);
+        assertEquals(40, treap.median());
+    }
+    
+    @Test(expected = java.util.NoSuchElementException.class)
+    public void testMedianOfEmptyTreap() {
+        new TreapImpl().median();
+    }
+    
+    @Test
+    public void testFromSorted() {
+        int[] keys = new int[1000];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = i * 3 - 500;
+        }
+        TreapImpl treap = TreapImpl.fromSorted(keys);
+        assertEquals(1000, treap.size());
+        for (int i = 0; i < keys.length; i++) {
+            assertTrue(treap.containsKey(keys[i]));
+            assertFalse(treap.containsKey(keys[i] + 1));
+        }
+        assertValidTreap(treap);
+        
+        treap.insert(2);
+        treap.remove(keys[10]);
+        assertEquals(1000, treap.size());
+        assertValidTreap(treap);
+    }
+    
+    @Test
+    public void testFromSortedIgnoresRepeatingKeys() {
+        TreapImpl treap = TreapImpl.fromSorted(new int[] { 1, 1, 2, 3, 3, 3 });
+        assertEquals(3, treap.size());
+        assertValidTreap(treap);
+    }
+    
+    @Test
+    public void testFromSortedEmptyArray() {
+        TreapImpl treap = TreapImpl.fromSorted(new int[0]);
+        assertEquals(0, treap.size());
+        assertNull(treap.root);
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void testFromSortedWithUnsortedKeys() {
+        TreapImpl.fromSorted(new int[] { 1, 3, 2 });
+    }
+    
+    @Test
+    public void testFromUnsorted() {
+        int[] keys = { 5, -3, 8, 5, 0, 12, -3 };
+        TreapImpl treap = TreapImpl.fromUnsorted(keys);
+        assertEquals(5, treap.size());
+        assertArrayEquals(new int[] { 5, -3, 8, 5, 0, 12, -3 }, keys);
+        assertEquals(-3, treap.select(0));
+        assertEquals(12, treap.select(4));
+        assertValidTreap(treap);
+    }
+    
+    @Test
+    public void testHashedPrioritiesGiveTheSameShapeForTheSameKeys() {
+        TreapImpl ascending = new TreapImpl(17);
+        TreapImpl descending = new TreapImpl(17);
+        for (int i = 0; i < 1000; i++) {
+            ascending.insert(i);
+            descending.insert(999 - i);
+            descending.insert(5000 + i);
+        }
+        for (int i = 0; i < 1000; i++) {
+            descending.remove(5000 + i);
+        }
+        assertValidTreap(ascending);
+        assertValidTreap(descending);
+        assertTrue(ascending.structurallyEquals(descending));
+        assertTrue(descending.structurallyEquals(ascending));
+        
+        int[] keys = new int[1000];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = i;
+        }
+        assertTrue(ascending.structurallyEquals(TreapImpl.fromSorted(keys, 17)));
+    }
+    
+    @Test
+    public void testStructurallyEqualsWithDifferentTreaps() {
+        TreapImpl first = new TreapImpl(17);
+        TreapImpl second = new TreapImpl(18);
+        for (int i = 0; i < 1000; i++) {
+            first.insert(i);
+            second.insert(i);
+        }
+        assertFalse(first.structurallyEquals(second));
+        assertFalse(first.structurallyEquals(null));
+        second = new TreapImpl(17);
+        for (int i = 1; i < 1000; i++) {
+            second.insert(i);
+        }
+        assertFalse(first.structurallyEquals(second));
+        second.insert(0);
+        assertTrue(first.structurallyEquals(second));
+    }
+    
+    @Test
+    public void testStructuralDifference() {
+        TreapImpl first = new TreapImpl(17);
+        TreapImpl second = new TreapImpl(17);
+        for (int i = 0; i < 1000; i++) {
+            first.insert(i);
+            second.insert(i);
+        }
+        assertNull(first.structuralDifference(second));
+        assertNull(first.structuralDifference(first));
+        
+        // a leaf with another priority is found at its place
+        TreapImpl.TreapNode leaf = first.find(500);
+        while (leaf.left != null || leaf.right != null) {
+            leaf = (leaf.left != null) ? leaf.left : leaf.right;
+        }
+        TreapImpl.TreapNode otherLeaf = second.find(leaf.key);
+        float priority = otherLeaf.priority;
+        otherLeaf.priority = Math.nextUp(priority);
+        TreapImpl.TreapNode[] difference = first.structuralDifference(second);
+        assertSame(leaf, difference[0]);
+        assertSame(otherLeaf, difference[1]);
+        otherLeaf.priority = priority;
+        
+        // a missing leaf changes the sizes all the way up, so the roots differ
+        second.remove(leaf.key);
+        difference = first.structuralDifference(second);
+        assertSame(first.root, difference[0]);
+        assertSame(second.root, difference[1]);
+        second.insert(leaf.key);
+        assertNull(first.structuralDifference(second));
+        
+        // the same keys with other priorities differ right at the root
+        TreapImpl third = new TreapImpl(18);
+        for (int i = 0; i < 1000; i++) {
+            third.insert(i);
+        }
+        difference = first.structuralDifference(third);
+        assertSame(first.root, difference[0]);
+        assertSame(third.root, difference[1]);
+        assertArrayEquals(new TreapImpl.TreapNode[] { first.root, null },
+                first.structuralDifference(new TreapImpl()));
+    }
+    
+    @Test
+    public void testStructuralDifferenceOfADegenerateTreap() {
+        int[] keys = new int[200_000];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = i;
+        }
+        // every key is the right child of the previous one
+        TreapImpl first = new AscendingPriorities();
+        TreapImpl second = new AscendingPriorities();
+        first.buildFromSorted(keys);
+        second.buildFromSorted(keys);
+        assertEquals(keys.length, first.root.size);
+        assertNull(first.structuralDifference(second));
+        assertTrue(first.structurallyEquals(second));
+    }
+    
+    private static class AscendingPriorities extends TreapImpl {
+        @Override
+        protected float priorityFor(int key) {
+            return key;
+        }
+    }
+    
+    @Test
+    public void testSetOperationsRejectOtherKindsOfPriorities() {
+        TreapImpl[][] mixed = {
+            { new TreapImpl(3), new TreapImpl() },
+            { new TreapImpl(), new TreapImpl(3) },
+            { new TreapImpl(3), new TreapImpl(4) },
+        };
+        for (TreapImpl[] operands : mixed) {
+            operands[0].insert(1);
+            operands[1].insert(2);
+            try {
+                TreapImpl.union(operands[0], operands[1]);
+                fail("union() mixed treaps with other priorities");
+            } catch (IllegalArgumentException expected) {
+            }
+            try {
+                TreapImpl.join(operands[0], operands[1]);
+                fail("join() mixed treaps with other priorities");
+            } catch (IllegalArgumentException expected) {
+            }
+            assertTrue(operands[0].containsKey(1));
+            assertTrue(operands[1].containsKey(2));
+        }
+    }
+    
+    @Test
+    public void testSetOperationsKeepHashedPriorities() {
+        TreapImpl first = new TreapImpl(3);
+        TreapImpl second = new TreapImpl(3);
+        TreapImpl expected = new TreapImpl(3);
+        for (int i = 0; i < 500; i++) {
+            first.insert(i * 2);
+            second.insert(i * 3);
+            expected.insert(i * 2);
+            expected.insert(i * 3);
+        }
+        TreapImpl union = TreapImpl.union(first, second);
+        assertTrue(expected.structurallyEquals(union));
+        union.insert(-1);
+        expected.insert(-1);
+        assertTrue(expected.structurallyEquals(union));
+    }
+    
+    @Test
+    public void testFloorCeilingLowerHigher() {
+        TreapImpl treap = new TreapImpl();
+        for (int i = 0; i < 100; i++) {
+            treap.insert(i * 10);
+        }
+        assertEquals(50, treap.floor(50, -1));
+        assertEquals(50, treap.floor(55, -1));
+        assertEquals(-1, treap.floor(-1, -1));
+        assertEquals(50, treap.ceiling(50, -1));
+        assertEquals(60, treap.ceiling(55, -1));
+        assertEquals(-1, treap.ceiling(991, -1));
+        assertEquals(40, treap.lower(50, -1));
+        assertEquals(-1, treap.lower(0, -1));
+        assertEquals(-1, treap.lower(Integer.MIN_VALUE, -1));
+        assertEquals(60, treap.higher(50, -1));
+        assertEquals(-1, treap.higher(990, -1));
+        assertEquals(-1, treap.higher(Integer.MAX_VALUE, -1));
+        
+        // the keys at the ends of int are found like any other
+        treap.insert(Integer.MIN_VALUE);
+        treap.insert(Integer.MAX_VALUE);
+        assertEquals(Integer.MIN_VALUE, treap.floor(-1, 0));
+        assertEquals(Integer.MAX_VALUE, treap.ceiling(991, 0));
+        assertEquals(Integer.MIN_VALUE, treap.lower(0, 0));
+        assertEquals(Integer.MAX_VALUE, treap.higher(990, 0));
+    }
+    
+    @Test
+    public void testForEachInRange() {
+        TreapImpl treap = new TreapImpl();
+        for (int i = 0; i < 1000; i++) {
+            treap.insert(i * 2);
+        }
+        final List<Integer> keys = new ArrayList<Integer>();
+        treap.forEachInRange(101, 120, key -> keys.add(key));
+        assertEquals(10, keys.size());
+        for (int i = 0; i < keys.size(); i++) {
+            assertEquals(102 + i * 2, (int) keys.get(i));
+        }
+        
+        keys.clear();
+        treap.forEachInRange(Integer.MIN_VALUE, Integer.MAX_VALUE, key -> keys.add(key));
+        assertEquals(1000, keys.size());
+        keys.clear();
+        treap.forEachInRange(20, 10, key -> keys.add(key));
+        assertTrue(keys.isEmpty());
+    }
+    
+    @Test
+    public void testAscendingAndDescendingIterators() {
+        TreapImpl treap = new TreapImpl();
+        for (int i = 0; i < 1000; i++) {
+            treap.insert(i);
+        }
+        PrimitiveIterator.OfInt ascending = treap.iterator(500);
+        for (int i = 500; i < 1000; i++) {
+            assertTrue(ascending.hasNext());
+            assertEquals(i, ascending.nextInt());
+        }
+        assertFalse(ascending.hasNext());
+        
+        PrimitiveIterator.OfInt descending = treap.descendingIterator(500);
+        for (int i = 500; i >= 0; i--) {
+            assertEquals(i, descending.nextInt());
+        }
+        assertFalse(descending.hasNext());
+        assertFalse(treap.iterator(1000).hasNext());
+    }
+    
+    @Test(expected = NoSuchElementException.class)
+    public void testIteratorPastTheEnd() {
+        TreapImpl treap = new TreapImpl();
+        treap.insert(1);
+        PrimitiveIterator.OfInt iterator = treap.iterator(1);
+        iterator.nextInt();
+        iterator.nextInt();
+    }
+    
+    @Test
+    public void testSplit() {
+        TreapImpl treap = new TreapImpl();
+        for (int i = 0; i < 100; i++) {
+            treap.insert(i);
+        }
+        TreapImpl[] parts = treap.split(40);
+        assertEquals(0, treap.size());
+        assertNull(treap.root);
+        assertEquals(40, parts[0].size());
+        assertEquals(60, parts[1].size());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i < 40, parts[0].containsKey(i));
+            assertEquals(i >= 40, parts[1].containsKey(i));
+        }
+        assertValidTreap(parts[0]);
+        assertValidTreap(parts[1]);
+    }
+    
+    @Test
+    public void testSplitByMissingKey() {
+        TreapImpl treap = new TreapImpl();
+        for (int i = 0; i < 100; i += 2) {
+            treap.insert(i);
+        }
+        TreapImpl[] parts = treap.split(41);
+        assertEquals(21, parts[0].size());
+        assertEquals(29, parts[1].size());
+        assertValidTreap(parts[0]);
+        assertValidTreap(parts[1]);
+    }
+    
+    @Test
+    public void testSplitThenJoin() {
+        TreapImpl treap = new TreapImpl();
+        for (int i = 0; i < 100; i++) {
+            treap.insert(i);
+        }
+        TreapImpl[] parts = treap.split(70);
+        TreapImpl joined = TreapImpl.join(parts[0], parts[1]);
+        assertEquals(100, joined.size());
+        assertEquals(0, parts[0].size());
+        assertEquals(0, parts[1].size());
+        for (int i = 0; i < 100; i++) {
+            assertTrue(joined.containsKey(i));
+        }
+        assertValidTreap(joined);
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void testJoinOverlappingTreaps() {
+        TreapImpl left = new TreapImpl();
+        TreapImpl right = new TreapImpl();
+        left.insert(5);
+        right.insert(5);
+        TreapImpl.join(left, right);
+    }
+    
+    @Test
+    public void testSetOperationsWithEmptyTreap() {
+        TreapImpl treap = new TreapImpl();
+        treap.insert(1);
+        treap.insert(2);
+        TreapImpl union = TreapImpl.union(treap, new TreapImpl());
+        assertEquals(2, union.size());
+        TreapImpl intersection = TreapImpl.intersection(union, new TreapImpl());
+        assertEquals(0, intersection.size());
+        assertNull(intersection.root);
+    }
+    
+    @Test
+    public void testSetOperationsSmall() {
+        checkSetOperations(200, 1000, 1);
+    }
+    
+    @Test
+    public void testSetOperationsBigEnoughToRunInParallel() {
+        checkSetOperations(100_000, 150_000, 2);
+    }
+    
+    private static void checkSetOperations(int count, int range, long seed) {
+        Random random = new Random(seed);
+        TreeSet<Integer> firstKeys = new TreeSet<Integer>();
+        TreeSet<Integer> secondKeys = new TreeSet<Integer>();
+        for (int i = 0; i < count; i++) {
+            firstKeys.add(random.nextInt(range));
+            secondKeys.add(random.nextInt(range));
+        }
+        
+        TreeSet<Integer> expected = new TreeSet<Integer>(firstKeys);
+        expected.addAll(secondKeys);
+        TreapImpl union = TreapImpl.union(treapOf(firstKeys), treapOf(secondKeys));
+        assertSameKeys(expected, union, range);
+        
+        expected = new TreeSet<Integer>(firstKeys);
+        expected.retainAll(secondKeys);
+        TreapImpl intersection = TreapImpl.intersection(treapOf(firstKeys), treapOf(secondKeys));
+        assertSameKeys(expected, intersection, range);
+        
+        expected = new TreeSet<Integer>(firstKeys);
+        expected.removeAll(secondKeys);
+        TreapImpl difference = TreapImpl.difference(treapOf(firstKeys), treapOf(secondKeys));
+        assertSameKeys(expected, difference, range);
+    }
+    
+    private static TreapImpl treapOf(Iterable<Integer> keys) {
+        TreapImpl treap = new TreapImpl();
+        for (int key : keys) {
+            treap.insert(key);
+        }
+        return treap;
+    }
+    
+    private static void assertSameKeys(TreeSet<Integer> expected, TreapImpl treap, int range) {
+        assertEquals(expected.size(), treap.size());
+        for (int key = 0; key < range; key++) {
+            assertEquals(expected.contains(key), treap.containsKey(key));
+        }
+        assertValidTreap(treap);
+    }
+    
+    private static void assertValidTreap(TreapImpl treap) {
+        if (treap.root != null) {
+            assertNull(treap.root.parent);
+        }
+        assertEquals(treap.size(), assertValidSubtree(treap.root, Long.MIN_VALUE, Long.MAX_VALUE));
+    }
+    
+    // Checks the BST and heap properties and the parent links, returns the number of nodes
+    private static int assertValidSubtree(TreapImpl.TreapNode node, long min, long max) {
+        if (node == null) {
+            return 0;
+        }
+        assertTrue(node.key >= min && node.key <= max);
+        if (node.left != null) {
+            assertSame(node, node.left.parent);
+            assertTrue(node.priority <= node.left.priority);
+        }
+        if (node.right != null) {
+            assertSame(node, node.right.parent);
+            assertTrue(node.priority <= node.right.priority);
+        }
+        int size = assertValidSubtree(node.left, min, (long) node.key - 1) + 1
+                + assertValidSubtree(node.right, (long) node.key + 1, max);
+        assertEquals(size, node.size);
+        return size;
+    }
+}
@@ -0,0 +1,200 @@
+/**
+ * The AVL balancing shared by AVLTree, IntAVLTree, LongAVLTree and AVLTreeMap -
+ * unlinking a node, balanceUp() and the rotations. It knows nothing about the
+ * values in the nodes: each tree gives it a subclass that sets the root of the
+ * tree, swaps the contents of two nodes and, if the tree needs it, keeps its
+ * own data in the nodes up to date and counts the work.
+ *
+ * @param <N> The class of the nodes
+ */
+public abstract class AVLBalancer<N extends AVLNode<N>> {
+
+    // The cases of the rotations given to rotated()
+    public static final int LEFT_LEFT = 0;
+    public static final int LEFT_RIGHT = 1;
+    public static final int RIGHT_RIGHT = 2;
+    public static final int RIGHT_LEFT = 3;
+
+    // Called when @node becomes the root of the tree (null when the tree becomes empty)
+    protected abstract void setRoot(N node);
+
+    // Swaps everything but the links and the heights of the two nodes
+    protected abstract void swapContents(N n1, N n2);
+
+    // Recomputes the height of @node from its children, the trees add their own data
+    protected void update(N node){
+        int leftHeight = getHeight(node.leftChild);
+        int rightHeight = getHeight(node.rightChild);
+        node.height = ((leftHeight > rightHeight) ? leftHeight : rightHeight) + 1;
+    }
+
+    /*
+     * Called with the parent of the subtree where balanceUp() stops - the heights above
+     * it do not change, but the other data of the nodes (like their sizes) may.
+     */
+    protected void updateAbove(N node){
+    }
+
+    // Called for every node that the balancing goes through
+    protected void visited(N node){
+    }
+
+    // Called once for every single or double rotation, with its case
+    protected void rotated(int rotationCase){
+    }
+
+    /*
+     * Goes up from node, updating the heights and rotating where needed, and stops as soon
+     * as a subtree has the same height as before - nothing above it can change then.
+     * After an insert a single (or double) rotation always restores the height the subtree
+     * had before the insert, so insertion stops at the first rotation. After a delete
+     * the rotations may continue up to the root.
+     */
+    public void balanceUp(N node, boolean afterInsert){
+        N current = node;
+        while(current != null){
+            visited(current);
+            int oldHeight = current.height;
+            update(current);
+            N subtreeRoot = current;
+            // unbalanced, node was added to the left subtree or removed from the right subtree
+            if (getBalanceFactor(current) == 2){
+                // left-right case
+                if(getBalanceFactor(current.leftChild) == -1){
+                    rotateLeft(current.leftChild.rightChild);
+                    update(current.leftChild.leftChild);
+                    rotated(LEFT_RIGHT);
+                } else {
+                    rotated(LEFT_LEFT);
+                }
+                // left-left case
+                subtreeRoot = current.leftChild;
+                rotateRight(subtreeRoot);
+                update(current);
+                update(subtreeRoot);
+            // unbalanced, node was added to the right subtree or removed from the left subtree
+            } else if (getBalanceFactor(current) == -2){
+                // right-left case
+                if(getBalanceFactor(current.rightChild) == 1){
+                    rotateRight(current.rightChild.leftChild);
+                    update(current.rightChild.rightChild);
+                    rotated(RIGHT_LEFT);
+                } else {
+                    rotated(RIGHT_RIGHT);
+                }
+                // right-right case
+                subtreeRoot = current.rightChild;
+                rotateLeft(subtreeRoot);
+                update(current);
+                update(subtreeRoot);
+            }
+            if(subtreeRoot.height == oldHeight || (afterInsert && subtreeRoot != current)){
+                if(subtreeRoot.parent != null){
+                    updateAbove(subtreeRoot.parent);
+                }
+                return;
+            }
+            current = subtreeRoot.parent;
+        }
+    }
+
+    /*
+     * Unlinks node from the tree without rebalancing. A node with two children swaps its
+     * contents with its in-order predecessor, which is unlinked instead.
+     * The unlinked node is left without a parent.
+     * @return the parent of the unlinked node - the place to start balanceUp() from
+     */
+    public N unlink(N node){
+        if(node.leftChild != null && node.rightChild != null){ // node has both subtrees
+            N prev = getInOrderPredecessor(node);
+            swapContents(node, prev);
+            return unlink(prev);
+        }
+        N child = (node.leftChild != null) ? node.leftChild : node.rightChild;
+        if(node.parent != null){
+            changeChild(node.parent, node, child);
+        } else {
+            setRoot(child);
+        }
+        if(child != null){
+            child.parent = node.parent;
+        }
+        N nodeParent = node.parent;
+        // just to help the GC
+        node.leftChild = null;
+        node.rightChild = null;
+        node.parent = null;
+        return nodeParent;
+    }
+
+    /*
+     * @param node should have a leftChild (!=null)
+     */
+    private N getInOrderPredecessor(N node){
+        N current = node.leftChild;
+        while(current.rightChild != null){
+            visited(current);
+            current = current.rightChild;
+        }
+        return current;
+    }
+
+    /*
+     * @param bottom should have a parent!
+     */
+    public void rotateLeft(N bottom){
+        N top = bottom.parent;
+        N totalAncestor = top.parent;
+
+        top.parent = bottom;
+        top.rightChild = bottom.leftChild;
+        if (top.rightChild != null){
+            top.rightChild.parent = top;
+        }
+        bottom.leftChild = top;
+        bottom.parent = totalAncestor;
+        if(totalAncestor != null){
+            changeChild(totalAncestor, top, bottom);
+        } else {
+            setRoot(bottom);
+        }
+    }
+
+    /*
+     * @param bottom should have a parent!
+     */
+    public void rotateRight(N bottom){
+        N top = bottom.parent;
+        N totalAncestor = top.parent;
+
+        top.parent = bottom;
+        top.leftChild = bottom.rightChild;
+        if (top.leftChild != null){
+            top.leftChild.parent = top;
+        }
+        bottom.rightChild = top;
+        bottom.parent = totalAncestor;
+        if(totalAncestor != null){
+            changeChild(totalAncestor, top, bottom);
+        } else {
+            setRoot(bottom);
+        }
+    }
+
+    private static <N extends AVLNode<N>> void changeChild(N node, N currChild, N newChild){
+        if(node.leftChild == currChild){
+            node.leftChild = newChild;
+        } else if(node.rightChild == currChild){
+            node.rightChild = newChild;
+        }
+    }
+
+    // The height of the left subtree - the height of the right subtree
+    public static int getBalanceFactor(AVLNode<?> node){
+        return getHeight(node.leftChild) - getHeight(node.rightChild);
+    }
+
+    public static int getHeight(AVLNode<?> node){
+        return (node != null) ? node.height : 0;
+    }
+}
@@ -0,0 +1,12 @@
+/**
+ * The links and the height of a node of the AVL trees balanced by AVLBalancer.
+ * N is the class of the node itself, so the links have its type and the trees
+ * use them without any casts.
+ *
+ * @param <N> The class of the node
+ */
+public abstract class AVLNode<N extends AVLNode<N>> {
+    public N parent;
+    public N leftChild, rightChild;
+    public int height;
+}
@@ -3,7 +3,14 @@
  * @author Spas Kyuchukov
  */
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Queue;
 
 /**
@@ -15,8 +22,81 @@ public class AVLTree<T extends Comparable<T>> extends AVLTreeInterface<T> {
     public static final String MOODLE_NAME = "XXX";
     public static final String FACULTY_NUMBER = "ZZZ";
 
+    // Counters for checking how much restructuring the operations do, see resetCounters()
+    protected long operations;
+    protected long nodesVisited;
+    protected long heightUpdates;
+    protected long leftLeftRotations, leftRightRotations, rightRightRotations, rightLeftRotations;
+
+    // In multiset mode every node holds a distinct value and the number of its occurrences
+    protected final boolean multiset;
+
+    // Changed by every insert and delete, lets a Finger know that its cached nodes may be stale
+    protected int modCount;
+
+    // The balancing shared with the other AVL trees, with the sizes and the counters of this one
+    private final AVLBalancer<Node<T>> balancer = new AVLBalancer<Node<T>>() {
+        @Override
+        protected void setRoot(Node<T> node){
+            root = node;
+        }
+
+        @Override
+        protected void swapContents(Node<T> n1, Node<T> n2){
+            swapNodeValues(n1, n2);
+        }
+
+        @Override
+        protected void update(Node<T> node){
+            heightUpdates++;
+            super.update(node);
+            // the size changes together with the height
+            updateNodeSize(node);
+        }
+
+        // Above the stop of the balancing only the sizes are updated
+        @Override
+        protected void updateAbove(Node<T> node){
+            updateSizesUp(node);
+        }
+
+        @Override
+        protected void visited(Node<T> node){
+            nodesVisited++;
+        }
+
+        @Override
+        protected void rotated(int rotationCase){
+            if(rotationCase == LEFT_LEFT){
+                leftLeftRotations++;
+            } else if(rotationCase == LEFT_RIGHT){
+                leftRightRotations++;
+            } else if(rotationCase == RIGHT_RIGHT){
+                rightRightRotations++;
+            } else {
+                rightLeftRotations++;
+            }
+        }
+    };
+
+    /**
+     * Node for the multiset mode - size counts every occurrence, so the sum of the counts is size.
+     */
+    protected static class CountedNode<T extends Comparable<T>> extends Node<T> {
+        public int count;
+    }
+
     // public methods
     public AVLTree() {
+        this(false);
+    }
+
+    /**
+     * @param multiset: whether to keep a count in each node instead of adding a new node
+     * for each repeating value
+     */
+    public AVLTree(boolean multiset) {
+        this.multiset = multiset;
         root = null;
         size = 0;
     }
@@ -28,8 +108,10 @@ public class AVLTree<T extends Comparable<T>> extends AVLTreeInterface<T> {
 
     @Override
     public Node<T> findNode(T value) {
-        Node current = root;
+        operations++;
+        Node<T> current = root;
         while (current != null) {
+            nodesVisited++;
             if (current.value.compareTo(value) == 0) { // curr.val == val
                 break;
             } else if (current.value.compareTo(value) < 0) { // curr.val < val
@@ -51,22 +133,327 @@ public class AVLTree<T extends Comparable<T>> extends AVLTreeInterface<T> {
      * we don't have separate key and value fields.
      * We could have added a counter in each node instead of adding new
      * node for repeating elements but this would have meant a lot of wasted memory.
+     * That is what the multiset mode does, for the cases with a lot of repeating values.
      */
     public void insertNode(T value) {
-        Node newNode = constructNode(value);
-        insertBST(newNode);
-        balanceUp(newNode);
+        operations++;
+        if(multiset){
+            insertCounted(value, root);
+        } else {
+            Node<T> newNode = constructNode(value);
+            insertBST(newNode, root);
+            balancer.balanceUp(newNode, true);
+        }
         // size may overflow - we may throw exception here, or choose to use a longer type or an arbitary length one
         size++;
+        modCount++;
     }
 
     @Override
     public void deleteNode(T value) {
-        Node node = findNode(value);
-        if(node != null){
-            Node forBalance = deleteBST(node);
-            balanceUp(forBalance);
-            size--;
+        deleteOne(value);
+    }
+
+    /**
+     * Deletes a single occurrence of @value.
+     * @return false if @value is not in the tree
+     */
+    public boolean deleteOne(T value) {
+        Node<T> node = findNode(value);
+        if(node == null){
+            return false;
+        }
+        if(multiset && ((CountedNode<T>) node).count > 1){
+            ((CountedNode<T>) node).count--;
+            updateSizesUp(node);
+        } else {
+            removeNode(node);
+        }
+        size--;
+        modCount++;
+        return true;
+    }
+
+    /**
+     * Deletes all occurrences of @value.
+     * @return the number of deleted occurrences
+     */
+    public int deleteAll(T value) {
+        int deleted = 0;
+        if(multiset){
+            Node<T> node = findNode(value);
+            if(node != null){
+                deleted = ((CountedNode<T>) node).count;
+                removeNode(node);
+            }
+        } else {
+            for(Node<T> node = findNode(value); node != null; node = findNode(value)){
+                removeNode(node);
+                deleted++;
+            }
+        }
+        size -= deleted;
+        modCount++;
+        return deleted;
+    }
+
+    /**
+     * @return the number of occurrences of @value
+     */
+    public int count(T value) {
+        if(multiset){
+            Node<T> node = findNode(value);
+            return (node != null) ? ((CountedNode<T>) node).count : 0;
+        }
+        operations++;
+        return countEqual(root, value);
+    }
+
+    public boolean isMultiset() {
+        return multiset;
+    }
+
+    /**
+     * @return the number of values smaller than @value
+     */
+    public int rank(T value) {
+        int rank = 0;
+        Node<T> current = root;
+        while(current != null){
+            if(current.value.compareTo(value) < 0){ // curr.val < val
+                rank += getSubtreeSize(current.leftChild) + getCount(current);
+                current = current.rightChild;
+            } else {
+                current = current.leftChild;
+            }
+        }
+        return rank;
+    }
+
+    /**
+     * @return the value at position @index (0-based) in the sorted order of the values
+     * @throws IndexOutOfBoundsException if @index is not in [0, size)
+     */
+    public T select(int index) {
+        if(index < 0 || index >= size){
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        Node<T> current = root;
+        while(true){
+            int leftSize = getSubtreeSize(current.leftChild);
+            if(index < leftSize){
+                current = current.leftChild;
+            } else if(index < leftSize + getCount(current)){
+                return current.value;
+            } else {
+                index -= leftSize + getCount(current);
+                current = current.rightChild;
+            }
+        }
+    }
+
+    /**
+     * @return the number of values in [@low, @high]
+     */
+    public int countBetween(T low, T high) {
+        if(low.compareTo(high) > 0){
+            return 0;
+        }
+        return countLessOrEqual(high) - rank(low);
+    }
+
+    /**
+     * Nearest-rank percentile - the smallest value such that at least @percent percent
+     * of the values are smaller than or equal to it.
+     * @param percent: in (0, 100]
+     * @throws NoSuchElementException if the tree is empty
+     */
+    public T percentile(double percent) {
+        if(!(percent > 0 && percent <= 100)){
+            throw new IllegalArgumentException("The percent must be in (0, 100]: " + percent);
+        }
+        if(size == 0){
+            throw new NoSuchElementException("The tree is empty!");
+        }
+        int index = (int) Math.ceil(percent / 100 * size) - 1;
+        return select(Math.max(index, 0));
+    }
+
+    /**
+     * Builds a tree from sorted values in O(n), without any rotations.
+     * @throws IllegalArgumentException if the values are not sorted
+     */
+    public static <T extends Comparable<T>> AVLTree<T> fromSorted(T[] values) {
+        return fromSorted(Arrays.asList(values).iterator(), false);
+    }
+
+    public static <T extends Comparable<T>> AVLTree<T> fromSorted(T[] values, boolean multiset) {
+        return fromSorted(Arrays.asList(values).iterator(), multiset);
+    }
+
+    public static <T extends Comparable<T>> AVLTree<T> fromSorted(Iterator<? extends T> values) {
+        return fromSorted(values, false);
+    }
+
+    /**
+     * Builds a tree from the values of a sorted iterator in O(n), the repeating values
+     * go to a single node in multiset mode.
+     * @throws IllegalArgumentException if the values are not sorted
+     */
+    public static <T extends Comparable<T>> AVLTree<T> fromSorted(Iterator<? extends T> values, boolean multiset) {
+        AVLTree<T> tree = new AVLTree<T>(multiset);
+        List<Node<T>> nodes = new ArrayList<Node<T>>();
+        Node<T> last = null;
+        while(values.hasNext()){
+            T value = values.next();
+            int cmp = (last != null) ? value.compareTo(last.value) : 1;
+            if(cmp < 0){
+                throw new IllegalArgumentException("The values are not sorted!");
+            }
+            if(cmp == 0 && multiset){
+                ((CountedNode<T>) last).count++;
+            } else {
+                last = tree.constructNode(value);
+                nodes.add(last);
+            }
+            tree.size++;
+        }
+        tree.root = linkBalanced(nodes, 0, nodes.size() - 1, null);
+        return tree;
+    }
+
+    /**
+     * Rebuilds the tree into a perfectly balanced one in O(n), reusing the nodes.
+     */
+    public void rebuild() {
+        List<Node<T>> nodes = inOrderNodes(root);
+        root = linkBalanced(nodes, 0, nodes.size() - 1, null);
+    }
+
+    /**
+     * @return a new finger (cursor) for inserting and searching near the previous value
+     */
+    public Finger finger() {
+        return new Finger();
+    }
+
+    /**
+     * Remembers the node of the last insert or search and starts the next one from it -
+     * it goes up through the parents only until the value falls in the range of the subtree
+     * and then down, so for values at distance d (in sorted order) from the previous one
+     * the cost is usually O(log d) instead of O(log n). Good for nearly sorted input like timestamps.
+     * The finger stays valid after changes through the tree - if its node was deleted
+     * the next operation simply starts from the root.
+     */
+    public class Finger {
+
+        private Node<T> node;
+        // Nodes with the smallest and the biggest value - values beyond them go right next to them,
+        // otherwise climbing the left or right spine would take O(log n) each time.
+        // They are found again from the root after changes not made through this finger.
+        private Node<T> min, max;
+        private int expectedModCount = -1;
+
+        public void insertNode(T value) {
+            operations++;
+            Node<T> start = climbTo(value);
+            if(multiset){
+                node = insertCounted(value, start);
+            } else {
+                node = constructNode(value);
+                insertBST(node, start);
+                balancer.balanceUp(node, true);
+            }
+            size++;
+            if(expectedModCount == modCount){
+                if(value.compareTo(max.value) > 0){
+                    max = node;
+                } else if(value.compareTo(min.value) < 0){
+                    min = node;
+                }
+                expectedModCount++;
+            }
+            modCount++;
+        }
+
+        /**
+         * @return the node with @value or null, like AVLTree.findNode()
+         */
+        public Node<T> findNode(T value) {
+            operations++;
+            Node<T> current = climbTo(value);
+            while(current != null){
+                nodesVisited++;
+                // the next search starts from here even if value is not found
+                node = current;
+                int cmp = value.compareTo(current.value);
+                if(cmp == 0){
+                    break;
+                }
+                current = (cmp < 0) ? current.leftChild : current.rightChild;
+            }
+            return current;
+        }
+
+        /*
+         * The lowest ancestor of the finger (or the finger itself) with value in the range of its
+         * subtree. Going up from a right child only leads to smaller values, so when the value is
+         * bigger than the finger the climb stops at the first parent (of a left child) that is
+         * bigger than the value - and symmetrically when the value is smaller.
+         */
+        private Node<T> climbTo(T value) {
+            // not inserted/found anything yet, or the node was deleted from the tree
+            if(node == null || !inTree(node)){
+                return root;
+            }
+            if(expectedModCount != modCount){
+                min = extreme(true);
+                max = extreme(false);
+                expectedModCount = modCount;
+            }
+            Node<T> current = node;
+            int cmp = value.compareTo(current.value);
+            if(cmp > 0){
+                if(value.compareTo(max.value) > 0){
+                    return max;
+                }
+                while(current.parent != null){
+                    nodesVisited++;
+                    if(current == current.parent.leftChild && value.compareTo(current.parent.value) < 0){
+                        break;
+                    }
+                    current = current.parent;
+                }
+            } else if(cmp < 0){
+                if(value.compareTo(min.value) < 0){
+                    return min;
+                }
+                while(current.parent != null){
+                    nodesVisited++;
+                    if(current == current.parent.rightChild && value.compareTo(current.parent.value) > 0){
+                        break;
+                    }
+                    current = current.parent;
+                }
+            }
+            return current;
+        }
+
+        private Node<T> extreme(boolean smallest) {
+            Node<T> current = root;
+            while(true){
+                Node<T> next = smallest ? current.leftChild : current.rightChild;
+                if(next == null){
+                    return current;
+                }
+                nodesVisited++;
+                current = next;
+            }
+        }
+
+        // the deleted nodes are left without a parent
+        private boolean inTree(Node<T> n) {
+            return n.parent != null || n == root;
         }
     }
     
@@ -79,12 +466,12 @@ public class AVLTree<T extends Comparable<T>> extends AVLTreeInterface<T> {
         sb.append((root != null) ? root.value : "null");
         sb.append(System.lineSeparator());
         
-        Queue<Node> nodes = new LinkedList<Node>();
+        Queue<Node<T>> nodes = new LinkedList<Node<T>>();
         if(root != null){
             nodes.add(root);
         }
         while(!nodes.isEmpty()){
-            Node top = nodes.poll();
+            Node<T> top = nodes.poll();
             sb.append(getNodePrintableInfo(top));
             if(top.leftChild != null){
                 nodes.add(top.leftChild);
@@ -97,6 +484,55 @@ public class AVLTree<T extends Comparable<T>> extends AVLTreeInterface<T> {
         return sb.toString();
     }
     
+    /*
+     * The counters below are kept since the creation of the tree or the last resetCounters().
+     * An operation is an insertNode(), deleteNode(), count() or findNode() call (the deletes
+     * are counted through the findNode() they call).
+     */
+    public long getOperationCount(){
+        return operations;
+    }
+
+    // Nodes visited by the searches and the rebalancing
+    public long getNodesVisited(){
+        return nodesVisited;
+    }
+
+    public long getHeightUpdates(){
+        return heightUpdates;
+    }
+
+    // The double rotations are counted once, by their case
+    public long getLeftLeftRotations(){
+        return leftLeftRotations;
+    }
+
+    public long getLeftRightRotations(){
+        return leftRightRotations;
+    }
+
+    public long getRightRightRotations(){
+        return rightRightRotations;
+    }
+
+    public long getRightLeftRotations(){
+        return rightLeftRotations;
+    }
+
+    public long getRotationCount(){
+        return leftLeftRotations + leftRightRotations + rightRightRotations + rightLeftRotations;
+    }
+
+    public void resetCounters(){
+        operations = 0;
+        nodesVisited = 0;
+        heightUpdates = 0;
+        leftLeftRotations = 0;
+        leftRightRotations = 0;
+        rightRightRotations = 0;
+        rightLeftRotations = 0;
+    }
+    
     /*
      * Just for testing purposes
      */
@@ -106,57 +542,141 @@ public class AVLTree<T extends Comparable<T>> extends AVLTreeInterface<T> {
         }
     }
     
-    private void updateTreeHeightRecursive(Node node){
+    private void updateTreeHeightRecursive(Node<T> node){
         if(node.leftChild != null){
             updateTreeHeightRecursive(node.leftChild);
         }
         if(node.rightChild != null){
             updateTreeHeightRecursive(node.rightChild);
         }
-        updateNodeHeight(node);
+        balancer.update(node);
     }
     
-    private void balanceUp(Node node){
-        Node current = node;
+    private void updateSizesUp(Node<T> node){
+        Node<T> current = node;
         while(current != null){
-            updateNodeHeight(current);
-            // unbalanced, node was added to the left subtree or removed from the right subtree
-            if (getBalanceFactor(current) == 2){
-                // left-right case
-                if(getBalanceFactor(current.leftChild) == -1){
-                    rotateLeft(current.leftChild.rightChild);
-                    updateNodeHeight(current.leftChild.leftChild);
-                    updateNodeHeight(current.leftChild);
-                }
-                // left-left case
-                rotateRight(current.leftChild);
-                updateNodeHeight(current.rightChild);
-                updateNodeHeight(current);
-            // unbalanced, node was added to the right subtree or removed from the left subtree    
-            } else if (getBalanceFactor(current) == -2){
-                // right-left case
-                if(getBalanceFactor(current.rightChild) == 1){
-                    rotateRight(current.rightChild.leftChild);
-                    updateNodeHeight(current.rightChild.rightChild);
-                    updateNodeHeight(current.rightChild);
-                }
-                // right-right case
-                rotateLeft(current.rightChild);
-                updateNodeHeight(current.leftChild);
-                updateNodeHeight(current);
-            // balanced so far - no problems up to current
+            nodesVisited++;
+            updateNodeSize(current);
+            current = current.parent;
+        }
+    }
+    
+    /*
+     * Links nodes[from..to] into a tree with the middle one as root - the sizes of the
+     * subtrees differ with at most one, so their heights differ with at most one too.
+     * @return the root of the tree
+     */
+    private static <T extends Comparable<T>> Node<T> linkBalanced(List<Node<T>> nodes, int from, int to, Node<T> parent){
+        if(from > to){
+            return null;
+        }
+        int middle = (from + to) >>> 1;
+        Node<T> node = nodes.get(middle);
+        node.parent = parent;
+        node.leftChild = linkBalanced(nodes, from, middle - 1, node);
+        node.rightChild = linkBalanced(nodes, middle + 1, to, node);
+        updateNodeSize(node);
+        int leftHeight = AVLBalancer.getHeight(node.leftChild);
+        int rightHeight = AVLBalancer.getHeight(node.rightChild);
+        node.height = ((leftHeight > rightHeight) ? leftHeight : rightHeight) + 1;
+        return node;
+    }
+
+    private static <T extends Comparable<T>> List<Node<T>> inOrderNodes(Node<T> root){
+        List<Node<T>> nodes = new ArrayList<Node<T>>();
+        Deque<Node<T>> stack = new ArrayDeque<Node<T>>();
+        Node<T> current = root;
+        while(current != null || !stack.isEmpty()){
+            while(current != null){
+                stack.push(current);
+                current = current.leftChild;
+            }
+            current = stack.pop();
+            nodes.add(current);
+            current = current.rightChild;
+        }
+        return nodes;
+    }
+
+    // The number of values <= value
+    private int countLessOrEqual(T value){
+        int count = 0;
+        Node<T> current = root;
+        while(current != null){
+            if(current.value.compareTo(value) <= 0){ // curr.val <= val
+                count += getSubtreeSize(current.leftChild) + getCount(current);
+                current = current.rightChild;
             } else {
-                current = current.parent;
+                current = current.leftChild;
             }
         }
+        return count;
     }
-    
-    private void insertBST(Node node){
-        Node current = root;
+
+    // The equal values may be on both sides after the rotations
+    private int countEqual(Node<T> node, T value){
+        int count = 0;
+        while(node != null){
+            nodesVisited++;
+            int cmp = value.compareTo(node.value);
+            if(cmp < 0){
+                node = node.leftChild;
+            } else if(cmp > 0){
+                node = node.rightChild;
+            } else {
+                count += 1 + countEqual(node.leftChild, value);
+                node = node.rightChild;
+            }
+        }
+        return count;
+    }
+
+    /*
+     * Increases the count of the node with value or adds a new node - with a single search
+     * from start (the root or a subtree with value in its range), returns that node
+     */
+    private Node<T> insertCounted(T value, Node<T> start){
+        Node<T> parent = null;
+        Node<T> current = start;
+        int cmp = 0;
+        while(current != null){
+            nodesVisited++;
+            cmp = value.compareTo(current.value);
+            if(cmp == 0){
+                ((CountedNode<T>) current).count++;
+                updateSizesUp(current);
+                return current;
+            }
+            parent = current;
+            current = (cmp < 0) ? current.leftChild : current.rightChild;
+        }
+        Node<T> newNode = constructNode(value);
+        newNode.parent = parent;
+        if(parent == null){
+            root = newNode;
+        } else if(cmp < 0){
+            parent.leftChild = newNode;
+        } else {
+            parent.rightChild = newNode;
+        }
+        balancer.balanceUp(newNode, true);
+        return newNode;
+    }
+
+    // Unlinks node and rebalances, does not change size
+    private void removeNode(Node<T> node){
+        Node<T> forBalance = balancer.unlink(node);
+        balancer.balanceUp(forBalance, false);
+    }
+
+    // start is the root or a subtree with node.value in its range
+    private void insertBST(Node<T> node, Node<T> start){
+        Node<T> current = start;
         if(current == null){
             root = node;
         } else {
             while(true) {
+                nodesVisited++;
                 if(node.value.compareTo(current.value) <= 0){
                     if(current.leftChild == null){
                         current.leftChild = node;
@@ -178,144 +698,50 @@ public class AVLTree<T extends Comparable<T>> extends AVLTreeInterface<T> {
         }
     }
     
-    private Node deleteBST(Node node){
-        if(node.leftChild != null && node.rightChild != null){ // node has both subtrees
-            Node prev = getInOrderPredecessor(node);
-            swapNodeValues(node, prev);
-            Node prevParent = prev.parent;
-            deleteBST(prev);
-            return prevParent;
-        } else if(node.leftChild != null){ // node has only left subtree
-            if(node.parent != null){
-                changeChild(node.parent, node, node.leftChild);
-            } else {
-                root = node.leftChild;
-            }
-            node.leftChild.parent = node.parent;
-            // just to help the GC
-            node.leftChild = null;
-        } else if(node.rightChild != null){ // node has only right subtree
-            if(node.parent != null){
-                changeChild(node.parent, node, node.rightChild);
-            } else {
-                root = node.rightChild;
-            }
-            node.rightChild.parent = node.parent;
-            // just to help the GC
-            node.rightChild = null;
-        } else { // node is a leaf
-            if(node.parent != null){
-                changeChild(node.parent, node, null);
-            } else {
-                root = null;
-            }
-        }
-        Node nodeParent = node.parent;
-        // just to help the GC
-        node.parent = null;
-        return nodeParent;
-    }
-    
-    /*
-     * @param node should have a leftChild (!=null)
-     */
-    private Node getInOrderPredecessor(Node node){
-        Node current = node;
-        current = current.leftChild;
-        while(current.rightChild != null){
-            current = current.rightChild;
-        }
-        return current;
-    }
-    
-    private static void swapNodeValues(Node n1, Node n2){
-        Comparable val = n1.value;
+    private static <T extends Comparable<T>> void swapNodeValues(Node<T> n1, Node<T> n2){
+        T val = n1.value;
         n1.value = n2.value;
         n2.value = val;
-    }
-    
-    /*
-     * @param bottom should have a parent!
-     */
-    private void rotateLeft(Node bottom){
-        Node top = bottom.parent;
-        Node totalAncestor = top.parent;
-        if(root == top){
-            root = bottom;
-        }
-        
-        top.parent = bottom;
-        top.rightChild = bottom.leftChild;
-        if (top.rightChild != null){
-            top.rightChild.parent = top;
-        }
-        bottom.leftChild = top;
-        bottom.parent = totalAncestor;
-        if(totalAncestor != null){
-            changeChild(totalAncestor, top, bottom);
-        }
-    }
-    
-    /*
-     * @param bottom should have a parent!
-     */
-    private void rotateRight(Node bottom){
-        Node top = bottom.parent;
-        Node totalAncestor = top.parent;
-        if(root == top){
-            root = bottom;
-        }
-        
-        top.parent = bottom;
-        top.leftChild = bottom.rightChild;
-        if (top.leftChild != null){
-            top.leftChild.parent = top;
-        }
-        bottom.rightChild = top;
-        bottom.parent = totalAncestor;
-        if(totalAncestor != null){
-            changeChild(totalAncestor, top, bottom);
-        }
-    }
-    
-    private static void changeChild(Node node, Node currChild, Node newChild){
-        if(node.leftChild == currChild){
-            node.leftChild = newChild;
-        } else if(node.rightChild == currChild){
-            node.rightChild = newChild;
+        if(n1 instanceof CountedNode){
+            int count = ((CountedNode<T>) n1).count;
+            ((CountedNode<T>) n1).count = ((CountedNode<T>) n2).count;
+            ((CountedNode<T>) n2).count = count;
         }
     }
     
     // Because, you know, Node does not have a constructor
-    private Node constructNode(T value){
-        Node newNode = new Node();
+    private Node<T> constructNode(T value){
+        Node<T> newNode;
+        if(multiset){
+            CountedNode<T> countedNode = new CountedNode<T>();
+            countedNode.count = 1;
+            newNode = countedNode;
+        } else {
+            newNode = new Node<T>();
+        }
         newNode.value = value;
         newNode.height = 0;
+        newNode.size = 1;
         newNode.leftChild = null;
         newNode.rightChild = null;
         newNode.parent = null;
         return newNode;
     }
     
-    // The height of the left subtree - the height of the right subtree
-    private static int getBalanceFactor(Node node){
-        return getHeight(node.leftChild) - getHeight(node.rightChild);
+    private static void updateNodeSize(Node<?> node){
+        node.size = getSubtreeSize(node.leftChild) + getCount(node) + getSubtreeSize(node.rightChild);
     }
 
-    private static void updateNodeHeight(Node node){
-        if(node != null){
-            int leftHeight = getHeight(node.leftChild);
-            int rightHeight = getHeight(node.rightChild);
-            int bigger = (leftHeight > rightHeight) ? leftHeight : rightHeight;
-            node.height = bigger + 1;
-        }
+    private static int getSubtreeSize(Node<?> node){
+        return (node != null) ? node.size : 0;
     }
-    
-    private static int getHeight(Node node){
-        return (node != null) ? node.height : 0;
+
+    // The number of occurrences of the value of node
+    private static int getCount(Node<?> node){
+        return (node instanceof CountedNode) ? ((CountedNode<?>) node).count : 1;
     }
     
-    private static String getNodePrintableInfo(Node node){
+    private static String getNodePrintableInfo(Node<?> node){
         StringBuilder sb = new StringBuilder();
         if(node != null){
             sb.append("Node: value = ");
@@ -332,4 +758,4 @@ public class AVLTree<T extends Comparable<T>> extends AVLTreeInterface<T> {
         }
         return sb.toString();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,201 @@
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Compares the generic AVLTree<Integer> with the primitive IntAVLTree and
+ * LongAVLTree on random values, and the n insertNode() calls with
+ * AVLTree.fromSorted() on sorted values, and insertNode() and findNode() from the
+ * root with the ones through an AVLTree.Finger on monotone and jittered-monotone values.
+ * Usage: java -Xmx4g AVLTreeBenchmark [count]
+ */
+public class AVLTreeBenchmark {
+
+    public static void main(String[] args) {
+        int count = (args.length > 0) ? Integer.parseInt(args[0]) : 10_000_000;
+        int[] values = randomValues(count, 42);
+
+        // warm up the JIT on a smaller input
+        int[] warmUp = randomValues(count / 10, 7);
+        runGeneric(warmUp, false);
+        runInt(warmUp, false);
+        runLong(warmUp, false);
+
+        runGeneric(values, true);
+        runInt(values, true);
+        runLong(values, true);
+
+        Integer[] sorted = new Integer[count];
+        Arrays.sort(values);
+        for (int i = 0; i < count; i++) {
+            sorted[i] = values[i];
+        }
+        runBulkLoad(Arrays.copyOf(sorted, count / 10), false);
+        runBulkLoad(sorted, true);
+
+        int[] monotone = new int[count];
+        int[] jittered = new int[count];
+        Random random = new Random(11);
+        for (int i = 0; i < count; i++) {
+            monotone[i] = i * 16;
+            // timestamps arriving slightly out of order
+            jittered[i] = i * 16 + random.nextInt(128) - 64;
+        }
+        runFinger("monotone", Arrays.copyOf(monotone, count / 10), false);
+        runFinger("jittered", Arrays.copyOf(jittered, count / 10), false);
+        runFinger("monotone", monotone, true);
+        runFinger("jittered", jittered, true);
+    }
+
+    private static void runFinger(String name, int[] values, boolean print) {
+        AVLTree<Integer> fromRoot = new AVLTree<Integer>();
+        long begin = System.nanoTime();
+        for (int value : values) {
+            fromRoot.insertNode(value);
+        }
+        long inserted = System.nanoTime();
+        for (int value : values) {
+            fromRoot.findNode(value);
+        }
+        long searched = System.nanoTime();
+        long rootVisited = fromRoot.getNodesVisited();
+        fromRoot = null;
+
+        AVLTree<Integer> tree = new AVLTree<Integer>();
+        AVLTree<Integer>.Finger finger = tree.finger();
+        long fingerBegin = System.nanoTime();
+        for (int value : values) {
+            finger.insertNode(value);
+        }
+        long fingerInserted = System.nanoTime();
+        for (int value : values) {
+            finger.findNode(value);
+        }
+        long fingerSearched = System.nanoTime();
+        if (print) {
+            System.out.println("Finger on " + values.length + " " + name + " values:");
+            System.out.println("  from root: insertNode " + nanosPerOp(inserted - begin, values.length)
+                    + ", findNode " + nanosPerOp(searched - inserted, values.length)
+                    + ", " + String.format("%.1f", (double) rootVisited / values.length / 2) + " nodes/op");
+            System.out.println("  finger:    insertNode " + nanosPerOp(fingerInserted - fingerBegin, values.length)
+                    + ", findNode " + nanosPerOp(fingerSearched - fingerInserted, values.length)
+                    + ", " + String.format("%.1f", (double) tree.getNodesVisited() / values.length / 2) + " nodes/op");
+        }
+    }
+
+    private static String nanosPerOp(long nanos, int count) {
+        return String.format("%.1f", (double) nanos / count) + " ns/op";
+    }
+
+    private static void runBulkLoad(Integer[] sorted, boolean print) {
+        long begin = System.nanoTime();
+        AVLTree<Integer> inserted = new AVLTree<Integer>();
+        for (Integer value : sorted) {
+            inserted.insertNode(value);
+        }
+        long insertNanos = System.nanoTime() - begin;
+        long rotations = inserted.getRotationCount();
+        inserted = null;
+
+        begin = System.nanoTime();
+        AVLTree<Integer> built = AVLTree.fromSorted(sorted);
+        long buildNanos = System.nanoTime() - begin;
+
+        begin = System.nanoTime();
+        built.rebuild();
+        long rebuildNanos = System.nanoTime() - begin;
+        if (print) {
+            System.out.println("Bulk load of " + sorted.length + " sorted values:");
+            System.out.println("  insertNode loop: " + (insertNanos / 1_000_000) + " ms, " + rotations + " rotations");
+            System.out.println("  fromSorted:      " + (buildNanos / 1_000_000) + " ms, height " + built.root.height);
+            System.out.println("  rebuild:         " + (rebuildNanos / 1_000_000) + " ms");
+        }
+    }
+
+    private static void runGeneric(int[] values, boolean print) {
+        AVLTree<Integer> tree = new AVLTree<Integer>();
+        long begin = System.nanoTime();
+        for (int value : values) {
+            tree.insertNode(value);
+        }
+        long inserted = System.nanoTime();
+        int found = 0;
+        for (int value : values) {
+            if (tree.findNode(value) != null) {
+                found++;
+            }
+        }
+        long searched = System.nanoTime();
+        for (int value : values) {
+            tree.deleteNode(value);
+        }
+        long deleted = System.nanoTime();
+        if (print) {
+            report("AVLTree<Integer>", values.length, found, inserted - begin, searched - inserted, deleted - searched);
+        }
+    }
+
+    private static void runInt(int[] values, boolean print) {
+        IntAVLTree tree = new IntAVLTree();
+        long begin = System.nanoTime();
+        for (int value : values) {
+            tree.insertNode(value);
+        }
+        long inserted = System.nanoTime();
+        int found = 0;
+        for (int value : values) {
+            if (tree.findNode(value) != null) {
+                found++;
+            }
+        }
+        long searched = System.nanoTime();
+        for (int value : values) {
+            tree.deleteNode(value);
+        }
+        long deleted = System.nanoTime();
+        if (print) {
+            report("IntAVLTree", values.length, found, inserted - begin, searched - inserted, deleted - searched);
+        }
+    }
+
+    private static void runLong(int[] values, boolean print) {
+        LongAVLTree tree = new LongAVLTree();
+        long begin = System.nanoTime();
+        for (int value : values) {
+            tree.insertNode(value);
+        }
+        long inserted = System.nanoTime();
+        int found = 0;
+        for (int value : values) {
+            if (tree.findNode(value) != null) {
+                found++;
+            }
+        }
+        long searched = System.nanoTime();
+        for (int value : values) {
+            tree.deleteNode(value);
+        }
+        long deleted = System.nanoTime();
+        if (print) {
+            report("LongAVLTree", values.length, found, inserted - begin, searched - inserted, deleted - searched);
+        }
+    }
+
+    static void report(String name, int count, int found, long insertNanos, long findNanos, long deleteNanos) {
+        System.out.println(name + ": " + count + " values, " + found + " found");
+        System.out.println("  insertNode: " + (insertNanos / 1_000_000) + " ms, "
+                + String.format("%.1f", (double) insertNanos / count) + " ns/op");
+        System.out.println("  findNode:   " + (findNanos / 1_000_000) + " ms, "
+                + String.format("%.1f", (double) findNanos / count) + " ns/op");
+        System.out.println("  deleteNode: " + (deleteNanos / 1_000_000) + " ms, "
+                + String.format("%.1f", (double) deleteNanos / count) + " ns/op");
+    }
+
+    static int[] randomValues(int count, long seed) {
+        Random random = new Random(seed);
+        int[] values = new int[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = random.nextInt();
+        }
+        return values;
+    }
+}
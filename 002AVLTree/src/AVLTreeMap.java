@@ -0,0 +1,1101 @@
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+
+/**
+ * Key-value map on top of the AVL tree from AVLTree - the same insertBST and
+ * the same balancing from AVLBalancer, but the nodes hold a key and a value,
+ * the order can be given by a Comparator and every search does a single
+ * comparison per level.
+ * It implements NavigableMap (with the sub map and descending views), so it
+ * can be used wherever a TreeMap is used.
+ *
+ * @param <K> The type of the keys
+ * @param <V> The type of the values
+ */
+public class AVLTreeMap<K, V> extends AbstractMap<K, V> implements NavigableMap<K, V> {
+
+    protected TreeEntry<K, V> root;
+    protected int size;
+    // for the fail-fast iterators
+    protected int modCount;
+    private final Comparator<? super K> comparator;
+    // the balancing swaps the keys and the values, the links stay where they are
+    private final AVLBalancer<TreeEntry<K, V>> balancer = new AVLBalancer<TreeEntry<K, V>>() {
+        @Override
+        protected void setRoot(TreeEntry<K, V> entry) {
+            root = entry;
+        }
+
+        @Override
+        protected void swapContents(TreeEntry<K, V> e1, TreeEntry<K, V> e2) {
+            K key = e1.key;
+            e1.key = e2.key;
+            e2.key = key;
+            V value = e1.value;
+            e1.value = e2.value;
+            e2.value = value;
+        }
+    };
+
+    /**
+     * Single node of the tree, like Node<T>, but with a key and a value.
+     */
+    protected static final class TreeEntry<K, V> extends AVLNode<TreeEntry<K, V>> implements Map.Entry<K, V> {
+        K key;
+        V value;
+
+        TreeEntry(K key, V value, TreeEntry<K, V> parent) {
+            this.key = key;
+            this.value = value;
+            this.height = 1;
+            this.parent = parent;
+            this.leftChild = null;
+            this.rightChild = null;
+        }
+
+        @Override
+        public K getKey() {
+            return key;
+        }
+
+        @Override
+        public V getValue() {
+            return value;
+        }
+
+        @Override
+        public V setValue(V value) {
+            V oldValue = this.value;
+            this.value = value;
+            return oldValue;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Map.Entry)) {
+                return false;
+            }
+            Map.Entry<?, ?> e = (Map.Entry<?, ?>) o;
+            return valueEquals(key, e.getKey()) && valueEquals(value, e.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return ((key == null) ? 0 : key.hashCode()) ^ ((value == null) ? 0 : value.hashCode());
+        }
+
+        @Override
+        public String toString() {
+            return key + "=" + value;
+        }
+    }
+
+    // public methods
+    public AVLTreeMap() {
+        this((Comparator<? super K>) null);
+    }
+
+    /**
+     * @param comparator: the order of the keys, null for their natural ordering
+     */
+    public AVLTreeMap(Comparator<? super K> comparator) {
+        this.comparator = comparator;
+        root = null;
+        size = 0;
+        modCount = 0;
+    }
+
+    public AVLTreeMap(Map<? extends K, ? extends V> map) {
+        this((Comparator<? super K>) null);
+        putAll(map);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Comparator<? super K> comparator() {
+        return comparator;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return getEntry(key) != null;
+    }
+
+    @Override
+    public V get(Object key) {
+        TreeEntry<K, V> entry = getEntry(key);
+        return (entry != null) ? entry.value : null;
+    }
+
+    @Override
+    public V put(K key, V value) {
+        TreeEntry<K, V> current = root;
+        if (current == null) {
+            compare(key, key); // type and null check
+            root = new TreeEntry<K, V>(key, value, null);
+            size = 1;
+            modCount++;
+            return null;
+        }
+        TreeEntry<K, V> parent;
+        int cmp;
+        do {
+            parent = current;
+            cmp = compare(key, current.key);
+            if (cmp < 0) {
+                current = current.leftChild;
+            } else if (cmp > 0) {
+                current = current.rightChild;
+            } else {
+                return current.setValue(value);
+            }
+        } while (current != null);
+
+        TreeEntry<K, V> newEntry = new TreeEntry<K, V>(key, value, parent);
+        if (cmp < 0) {
+            parent.leftChild = newEntry;
+        } else {
+            parent.rightChild = newEntry;
+        }
+        balancer.balanceUp(parent, true);
+        // size may overflow - we may throw exception here, or choose to use a longer type or an arbitary length one
+        size++;
+        modCount++;
+        return null;
+    }
+
+    @Override
+    public V remove(Object key) {
+        TreeEntry<K, V> entry = getEntry(key);
+        if (entry == null) {
+            return null;
+        }
+        V oldValue = entry.value;
+        deleteEntry(entry);
+        return oldValue;
+    }
+
+    @Override
+    public void clear() {
+        modCount++;
+        size = 0;
+        root = null;
+    }
+
+    @Override
+    public Map.Entry<K, V> firstEntry() {
+        return exportEntry(firstNode());
+    }
+
+    @Override
+    public Map.Entry<K, V> lastEntry() {
+        return exportEntry(lastNode());
+    }
+
+    @Override
+    public Map.Entry<K, V> pollFirstEntry() {
+        TreeEntry<K, V> entry = firstNode();
+        Map.Entry<K, V> result = exportEntry(entry);
+        if (entry != null) {
+            deleteEntry(entry);
+        }
+        return result;
+    }
+
+    @Override
+    public Map.Entry<K, V> pollLastEntry() {
+        TreeEntry<K, V> entry = lastNode();
+        Map.Entry<K, V> result = exportEntry(entry);
+        if (entry != null) {
+            deleteEntry(entry);
+        }
+        return result;
+    }
+
+    @Override
+    public K firstKey() {
+        return keyOrThrow(firstNode());
+    }
+
+    @Override
+    public K lastKey() {
+        return keyOrThrow(lastNode());
+    }
+
+    @Override
+    public Map.Entry<K, V> lowerEntry(K key) {
+        return exportEntry(getLowerEntry(key));
+    }
+
+    @Override
+    public K lowerKey(K key) {
+        return keyOrNull(getLowerEntry(key));
+    }
+
+    @Override
+    public Map.Entry<K, V> floorEntry(K key) {
+        return exportEntry(getFloorEntry(key));
+    }
+
+    @Override
+    public K floorKey(K key) {
+        return keyOrNull(getFloorEntry(key));
+    }
+
+    @Override
+    public Map.Entry<K, V> ceilingEntry(K key) {
+        return exportEntry(getCeilingEntry(key));
+    }
+
+    @Override
+    public K ceilingKey(K key) {
+        return keyOrNull(getCeilingEntry(key));
+    }
+
+    @Override
+    public Map.Entry<K, V> higherEntry(K key) {
+        return exportEntry(getHigherEntry(key));
+    }
+
+    @Override
+    public K higherKey(K key) {
+        return keyOrNull(getHigherEntry(key));
+    }
+
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        return new EntrySet(null);
+    }
+
+    @Override
+    public Set<K> keySet() {
+        return navigableKeySet();
+    }
+
+    @Override
+    public NavigableSet<K> navigableKeySet() {
+        return new KeySet<K>(this);
+    }
+
+    @Override
+    public NavigableSet<K> descendingKeySet() {
+        return descendingMap().navigableKeySet();
+    }
+
+    @Override
+    public NavigableMap<K, V> descendingMap() {
+        return new SubMap(true, null, true, true, null, true, true);
+    }
+
+    @Override
+    public NavigableMap<K, V> subMap(K fromKey, boolean fromInclusive, K toKey, boolean toInclusive) {
+        if (compare(fromKey, toKey) > 0) {
+            throw new IllegalArgumentException("fromKey > toKey");
+        }
+        return new SubMap(false, fromKey, fromInclusive, false, toKey, toInclusive, false);
+    }
+
+    @Override
+    public NavigableMap<K, V> headMap(K toKey, boolean inclusive) {
+        compare(toKey, toKey);
+        return new SubMap(true, null, true, false, toKey, inclusive, false);
+    }
+
+    @Override
+    public NavigableMap<K, V> tailMap(K fromKey, boolean inclusive) {
+        compare(fromKey, fromKey);
+        return new SubMap(false, fromKey, inclusive, true, null, true, false);
+    }
+
+    @Override
+    public SortedMap<K, V> subMap(K fromKey, K toKey) {
+        return subMap(fromKey, true, toKey, false);
+    }
+
+    @Override
+    public SortedMap<K, V> headMap(K toKey) {
+        return headMap(toKey, false);
+    }
+
+    @Override
+    public SortedMap<K, V> tailMap(K fromKey) {
+        return tailMap(fromKey, true);
+    }
+
+    /*
+     * Just for testing purposes
+     */
+    public int getHeight() {
+        return AVLBalancer.getHeight(root);
+    }
+
+    // Comparisons and searches - a single comparison per level
+
+    @SuppressWarnings("unchecked")
+    protected final int compare(Object k1, Object k2) {
+        return (comparator == null) ? ((Comparable<Object>) k1).compareTo(k2) : comparator.compare((K) k1, (K) k2);
+    }
+
+    // Return null if the key is not found
+    protected TreeEntry<K, V> getEntry(Object key) {
+        if (key == null && comparator == null) {
+            throw new NullPointerException();
+        }
+        TreeEntry<K, V> current = root;
+        while (current != null) {
+            int cmp = compare(key, current.key);
+            if (cmp < 0) {
+                current = current.leftChild;
+            } else if (cmp > 0) {
+                current = current.rightChild;
+            } else {
+                return current;
+            }
+        }
+        return null;
+    }
+
+    // The entry with the smallest key >= key
+    protected TreeEntry<K, V> getCeilingEntry(K key) {
+        TreeEntry<K, V> candidate = null;
+        TreeEntry<K, V> current = root;
+        while (current != null) {
+            int cmp = compare(key, current.key);
+            if (cmp < 0) {
+                candidate = current;
+                current = current.leftChild;
+            } else if (cmp > 0) {
+                current = current.rightChild;
+            } else {
+                return current;
+            }
+        }
+        return candidate;
+    }
+
+    // The entry with the biggest key <= key
+    protected TreeEntry<K, V> getFloorEntry(K key) {
+        TreeEntry<K, V> candidate = null;
+        TreeEntry<K, V> current = root;
+        while (current != null) {
+            int cmp = compare(key, current.key);
+            if (cmp < 0) {
+                current = current.leftChild;
+            } else if (cmp > 0) {
+                candidate = current;
+                current = current.rightChild;
+            } else {
+                return current;
+            }
+        }
+        return candidate;
+    }
+
+    // The entry with the smallest key > key
+    protected TreeEntry<K, V> getHigherEntry(K key) {
+        TreeEntry<K, V> candidate = null;
+        TreeEntry<K, V> current = root;
+        while (current != null) {
+            if (compare(key, current.key) < 0) {
+                candidate = current;
+                current = current.leftChild;
+            } else {
+                current = current.rightChild;
+            }
+        }
+        return candidate;
+    }
+
+    // The entry with the biggest key < key
+    protected TreeEntry<K, V> getLowerEntry(K key) {
+        TreeEntry<K, V> candidate = null;
+        TreeEntry<K, V> current = root;
+        while (current != null) {
+            if (compare(key, current.key) > 0) {
+                candidate = current;
+                current = current.rightChild;
+            } else {
+                current = current.leftChild;
+            }
+        }
+        return candidate;
+    }
+
+    protected TreeEntry<K, V> firstNode() {
+        TreeEntry<K, V> current = root;
+        if (current != null) {
+            while (current.leftChild != null) {
+                current = current.leftChild;
+            }
+        }
+        return current;
+    }
+
+    protected TreeEntry<K, V> lastNode() {
+        TreeEntry<K, V> current = root;
+        if (current != null) {
+            while (current.rightChild != null) {
+                current = current.rightChild;
+            }
+        }
+        return current;
+    }
+
+    protected static <K, V> TreeEntry<K, V> successor(TreeEntry<K, V> entry) {
+        if (entry.rightChild != null) {
+            TreeEntry<K, V> current = entry.rightChild;
+            while (current.leftChild != null) {
+                current = current.leftChild;
+            }
+            return current;
+        }
+        TreeEntry<K, V> child = entry;
+        TreeEntry<K, V> current = entry.parent;
+        while (current != null && child == current.rightChild) {
+            child = current;
+            current = current.parent;
+        }
+        return current;
+    }
+
+    protected static <K, V> TreeEntry<K, V> predecessor(TreeEntry<K, V> entry) {
+        if (entry.leftChild != null) {
+            TreeEntry<K, V> current = entry.leftChild;
+            while (current.rightChild != null) {
+                current = current.rightChild;
+            }
+            return current;
+        }
+        TreeEntry<K, V> child = entry;
+        TreeEntry<K, V> current = entry.parent;
+        while (current != null && child == current.leftChild) {
+            child = current;
+            current = current.parent;
+        }
+        return current;
+    }
+
+    // Balancing - the one of AVLTree, from AVLBalancer
+
+    protected void deleteEntry(TreeEntry<K, V> entry) {
+        balancer.balanceUp(balancer.unlink(entry), false);
+        size--;
+        modCount++;
+    }
+
+    // Helpers for the views
+
+    // The entries returned by the navigation methods are snapshots, like in TreeMap
+    protected static <K, V> Map.Entry<K, V> exportEntry(TreeEntry<K, V> entry) {
+        return (entry == null) ? null : new AbstractMap.SimpleImmutableEntry<K, V>(entry);
+    }
+
+    protected static <K> K keyOrNull(TreeEntry<K, ?> entry) {
+        return (entry == null) ? null : entry.key;
+    }
+
+    protected static <K> K keyOrThrow(TreeEntry<K, ?> entry) {
+        if (entry == null) {
+            throw new NoSuchElementException();
+        }
+        return entry.key;
+    }
+
+    protected static boolean valueEquals(Object o1, Object o2) {
+        return (o1 == null) ? o2 == null : o1.equals(o2);
+    }
+
+    /*
+     * Iterates from the given entry in ascending or descending order while the keys are in
+     * the range of the view (all keys if view is null).
+     */
+    protected class EntryIterator implements Iterator<Map.Entry<K, V>> {
+
+        private TreeEntry<K, V> next;
+        private TreeEntry<K, V> lastReturned;
+        private int expectedModCount;
+        private final boolean descending;
+        private final SubMap view;
+
+        EntryIterator(TreeEntry<K, V> first, boolean descending, SubMap view) {
+            this.next = first;
+            this.lastReturned = null;
+            this.expectedModCount = modCount;
+            this.descending = descending;
+            this.view = view;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null && (view == null || view.inRange(next.key));
+        }
+
+        @Override
+        public Map.Entry<K, V> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            lastReturned = next;
+            next = descending ? predecessor(next) : successor(next);
+            return lastReturned;
+        }
+
+        @Override
+        public void remove() {
+            if (lastReturned == null) {
+                throw new IllegalStateException();
+            }
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            // the predecessor moves into the node of a deleted node with two children
+            if (descending && lastReturned.leftChild != null && lastReturned.rightChild != null) {
+                next = lastReturned;
+            }
+            deleteEntry(lastReturned);
+            expectedModCount = modCount;
+            lastReturned = null;
+        }
+    }
+
+    protected class EntrySet extends AbstractSet<Map.Entry<K, V>> {
+
+        // null for the whole map
+        private final SubMap view;
+
+        EntrySet(SubMap view) {
+            this.view = view;
+        }
+
+        @Override
+        public Iterator<Map.Entry<K, V>> iterator() {
+            if (view == null) {
+                return new EntryIterator(firstNode(), false, null);
+            }
+            return new EntryIterator(view.first(), view.descending, view);
+        }
+
+        @Override
+        public int size() {
+            if (view == null) {
+                return AVLTreeMap.this.size;
+            }
+            int count = 0;
+            for (Iterator<Map.Entry<K, V>> it = iterator(); it.hasNext(); it.next()) {
+                count++;
+            }
+            return count;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return findEqualEntry(o) != null;
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            TreeEntry<K, V> entry = findEqualEntry(o);
+            if (entry == null) {
+                return false;
+            }
+            deleteEntry(entry);
+            return true;
+        }
+
+        @Override
+        public void clear() {
+            if (view == null) {
+                AVLTreeMap.this.clear();
+            } else {
+                super.clear();
+            }
+        }
+
+        private TreeEntry<K, V> findEqualEntry(Object o) {
+            if (!(o instanceof Map.Entry)) {
+                return null;
+            }
+            Map.Entry<?, ?> e = (Map.Entry<?, ?>) o;
+            Object key = e.getKey();
+            if (view != null && !view.inRange(key)) {
+                return null;
+            }
+            TreeEntry<K, V> entry = getEntry(key);
+            return (entry != null && valueEquals(entry.value, e.getValue())) ? entry : null;
+        }
+    }
+
+    /*
+     * NavigableSet of the keys of any NavigableMap - this map or one of its views.
+     */
+    protected static class KeySet<E> extends AbstractSet<E> implements NavigableSet<E> {
+
+        private final NavigableMap<E, ?> map;
+
+        KeySet(NavigableMap<E, ?> map) {
+            this.map = map;
+        }
+
+        @Override
+        public Iterator<E> iterator() {
+            final Iterator<? extends Map.Entry<E, ?>> entries = map.entrySet().iterator();
+            return new Iterator<E>() {
+                @Override
+                public boolean hasNext() {
+                    return entries.hasNext();
+                }
+
+                @Override
+                public E next() {
+                    return entries.next().getKey();
+                }
+
+                @Override
+                public void remove() {
+                    entries.remove();
+                }
+            };
+        }
+
+        @Override
+        public Iterator<E> descendingIterator() {
+            return descendingSet().iterator();
+        }
+
+        @Override
+        public int size() {
+            return map.size();
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return map.isEmpty();
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return map.containsKey(o);
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            if (!map.containsKey(o)) {
+                return false;
+            }
+            map.remove(o);
+            return true;
+        }
+
+        @Override
+        public void clear() {
+            map.clear();
+        }
+
+        @Override
+        public E lower(E e) {
+            return map.lowerKey(e);
+        }
+
+        @Override
+        public E floor(E e) {
+            return map.floorKey(e);
+        }
+
+        @Override
+        public E ceiling(E e) {
+            return map.ceilingKey(e);
+        }
+
+        @Override
+        public E higher(E e) {
+            return map.higherKey(e);
+        }
+
+        @Override
+        public E first() {
+            return map.firstKey();
+        }
+
+        @Override
+        public E last() {
+            return map.lastKey();
+        }
+
+        @Override
+        public Comparator<? super E> comparator() {
+            return map.comparator();
+        }
+
+        @Override
+        public E pollFirst() {
+            Map.Entry<E, ?> entry = map.pollFirstEntry();
+            return (entry == null) ? null : entry.getKey();
+        }
+
+        @Override
+        public E pollLast() {
+            Map.Entry<E, ?> entry = map.pollLastEntry();
+            return (entry == null) ? null : entry.getKey();
+        }
+
+        @Override
+        public NavigableSet<E> descendingSet() {
+            return new KeySet<E>(map.descendingMap());
+        }
+
+        @Override
+        public NavigableSet<E> subSet(E fromElement, boolean fromInclusive, E toElement, boolean toInclusive) {
+            return new KeySet<E>(map.subMap(fromElement, fromInclusive, toElement, toInclusive));
+        }
+
+        @Override
+        public NavigableSet<E> headSet(E toElement, boolean inclusive) {
+            return new KeySet<E>(map.headMap(toElement, inclusive));
+        }
+
+        @Override
+        public NavigableSet<E> tailSet(E fromElement, boolean inclusive) {
+            return new KeySet<E>(map.tailMap(fromElement, inclusive));
+        }
+
+        @Override
+        public SortedSet<E> subSet(E fromElement, E toElement) {
+            return subSet(fromElement, true, toElement, false);
+        }
+
+        @Override
+        public SortedSet<E> headSet(E toElement) {
+            return headSet(toElement, false);
+        }
+
+        @Override
+        public SortedSet<E> tailSet(E fromElement) {
+            return tailSet(fromElement, true);
+        }
+    }
+
+    /*
+     * A view of the keys in a range (low/high are in the order of the map, regardless
+     * of descending), possibly in descending order. All the changes go to the map.
+     */
+    protected class SubMap extends AbstractMap<K, V> implements NavigableMap<K, V> {
+
+        final boolean fromStart, toEnd;
+        final K low, high;
+        final boolean lowInclusive, highInclusive;
+        final boolean descending;
+
+        SubMap(boolean fromStart, K low, boolean lowInclusive,
+                boolean toEnd, K high, boolean highInclusive, boolean descending) {
+            this.fromStart = fromStart;
+            this.low = low;
+            this.lowInclusive = lowInclusive;
+            this.toEnd = toEnd;
+            this.high = high;
+            this.highInclusive = highInclusive;
+            this.descending = descending;
+        }
+
+        // Range checks
+
+        boolean tooLow(Object key) {
+            if (!fromStart) {
+                int cmp = compare(key, low);
+                return cmp < 0 || (cmp == 0 && !lowInclusive);
+            }
+            return false;
+        }
+
+        boolean tooHigh(Object key) {
+            if (!toEnd) {
+                int cmp = compare(key, high);
+                return cmp > 0 || (cmp == 0 && !highInclusive);
+            }
+            return false;
+        }
+
+        boolean inRange(Object key) {
+            return !tooLow(key) && !tooHigh(key);
+        }
+
+        // An exclusive bound of a new view may be equal to an exclusive bound of this one
+        boolean inClosedRange(Object key) {
+            return (fromStart || compare(key, low) >= 0) && (toEnd || compare(high, key) >= 0);
+        }
+
+        // An inclusive bound of a new view has to be in this one, like in TreeMap
+        boolean inRange(Object key, boolean inclusive) {
+            return inclusive ? inRange(key) : inClosedRange(key);
+        }
+
+        // Navigation in the order of the map
+
+        TreeEntry<K, V> absLowest() {
+            TreeEntry<K, V> entry = fromStart ? firstNode() : (lowInclusive ? getCeilingEntry(low) : getHigherEntry(low));
+            return (entry == null || tooHigh(entry.key)) ? null : entry;
+        }
+
+        TreeEntry<K, V> absHighest() {
+            TreeEntry<K, V> entry = toEnd ? lastNode() : (highInclusive ? getFloorEntry(high) : getLowerEntry(high));
+            return (entry == null || tooLow(entry.key)) ? null : entry;
+        }
+
+        TreeEntry<K, V> absCeiling(K key) {
+            if (tooLow(key)) {
+                return absLowest();
+            }
+            TreeEntry<K, V> entry = getCeilingEntry(key);
+            return (entry == null || tooHigh(entry.key)) ? null : entry;
+        }
+
+        TreeEntry<K, V> absHigher(K key) {
+            if (tooLow(key)) {
+                return absLowest();
+            }
+            TreeEntry<K, V> entry = getHigherEntry(key);
+            return (entry == null || tooHigh(entry.key)) ? null : entry;
+        }
+
+        TreeEntry<K, V> absFloor(K key) {
+            if (tooHigh(key)) {
+                return absHighest();
+            }
+            TreeEntry<K, V> entry = getFloorEntry(key);
+            return (entry == null || tooLow(entry.key)) ? null : entry;
+        }
+
+        TreeEntry<K, V> absLower(K key) {
+            if (tooHigh(key)) {
+                return absHighest();
+            }
+            TreeEntry<K, V> entry = getLowerEntry(key);
+            return (entry == null || tooLow(entry.key)) ? null : entry;
+        }
+
+        // Navigation in the order of the view
+
+        TreeEntry<K, V> first() {
+            return descending ? absHighest() : absLowest();
+        }
+
+        TreeEntry<K, V> last() {
+            return descending ? absLowest() : absHighest();
+        }
+
+        @Override
+        public Comparator<? super K> comparator() {
+            return descending ? Collections.reverseOrder(AVLTreeMap.this.comparator) : AVLTreeMap.this.comparator;
+        }
+
+        @Override
+        public int size() {
+            return entrySet().size();
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return first() == null;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return inRange(key) && AVLTreeMap.this.containsKey(key);
+        }
+
+        @Override
+        public V get(Object key) {
+            return inRange(key) ? AVLTreeMap.this.get(key) : null;
+        }
+
+        @Override
+        public V put(K key, V value) {
+            if (!inRange(key)) {
+                throw new IllegalArgumentException("The key is out of the range of the view!");
+            }
+            return AVLTreeMap.this.put(key, value);
+        }
+
+        @Override
+        public V remove(Object key) {
+            return inRange(key) ? AVLTreeMap.this.remove(key) : null;
+        }
+
+        @Override
+        public Set<Map.Entry<K, V>> entrySet() {
+            return new EntrySet(this);
+        }
+
+        @Override
+        public Set<K> keySet() {
+            return navigableKeySet();
+        }
+
+        @Override
+        public Map.Entry<K, V> firstEntry() {
+            return exportEntry(first());
+        }
+
+        @Override
+        public Map.Entry<K, V> lastEntry() {
+            return exportEntry(last());
+        }
+
+        @Override
+        public Map.Entry<K, V> pollFirstEntry() {
+            return poll(first());
+        }
+
+        @Override
+        public Map.Entry<K, V> pollLastEntry() {
+            return poll(last());
+        }
+
+        private Map.Entry<K, V> poll(TreeEntry<K, V> entry) {
+            Map.Entry<K, V> result = exportEntry(entry);
+            if (entry != null) {
+                deleteEntry(entry);
+            }
+            return result;
+        }
+
+        @Override
+        public K firstKey() {
+            return keyOrThrow(first());
+        }
+
+        @Override
+        public K lastKey() {
+            return keyOrThrow(last());
+        }
+
+        @Override
+        public Map.Entry<K, V> lowerEntry(K key) {
+            return exportEntry(descending ? absHigher(key) : absLower(key));
+        }
+
+        @Override
+        public K lowerKey(K key) {
+            return keyOrNull(descending ? absHigher(key) : absLower(key));
+        }
+
+        @Override
+        public Map.Entry<K, V> floorEntry(K key) {
+            return exportEntry(descending ? absCeiling(key) : absFloor(key));
+        }
+
+        @Override
+        public K floorKey(K key) {
+            return keyOrNull(descending ? absCeiling(key) : absFloor(key));
+        }
+
+        @Override
+        public Map.Entry<K, V> ceilingEntry(K key) {
+            return exportEntry(descending ? absFloor(key) : absCeiling(key));
+        }
+
+        @Override
+        public K ceilingKey(K key) {
+            return keyOrNull(descending ? absFloor(key) : absCeiling(key));
+        }
+
+        @Override
+        public Map.Entry<K, V> higherEntry(K key) {
+            return exportEntry(descending ? absLower(key) : absHigher(key));
+        }
+
+        @Override
+        public K higherKey(K key) {
+            return keyOrNull(descending ? absLower(key) : absHigher(key));
+        }
+
+        @Override
+        public NavigableSet<K> navigableKeySet() {
+            return new KeySet<K>(this);
+        }
+
+        @Override
+        public NavigableSet<K> descendingKeySet() {
+            return descendingMap().navigableKeySet();
+        }
+
+        @Override
+        public NavigableMap<K, V> descendingMap() {
+            return new SubMap(fromStart, low, lowInclusive, toEnd, high, highInclusive, !descending);
+        }
+
+        @Override
+        public NavigableMap<K, V> subMap(K fromKey, boolean fromInclusive, K toKey, boolean toInclusive) {
+            if (descending) {
+                // in the order of the map the range is [toKey, fromKey]
+                return absSubMap(toKey, toInclusive, fromKey, fromInclusive);
+            }
+            return absSubMap(fromKey, fromInclusive, toKey, toInclusive);
+        }
+
+        private NavigableMap<K, V> absSubMap(K newLow, boolean newLowInclusive, K newHigh, boolean newHighInclusive) {
+            if (compare(newLow, newHigh) > 0) {
+                throw new IllegalArgumentException("fromKey > toKey");
+            }
+            checkInRange(newLow, newLowInclusive);
+            checkInRange(newHigh, newHighInclusive);
+            return new SubMap(false, newLow, newLowInclusive, false, newHigh, newHighInclusive, descending);
+        }
+
+        @Override
+        public NavigableMap<K, V> headMap(K toKey, boolean inclusive) {
+            checkInRange(toKey, inclusive);
+            if (descending) {
+                return new SubMap(false, toKey, inclusive, toEnd, high, highInclusive, true);
+            }
+            return new SubMap(fromStart, low, lowInclusive, false, toKey, inclusive, false);
+        }
+
+        @Override
+        public NavigableMap<K, V> tailMap(K fromKey, boolean inclusive) {
+            checkInRange(fromKey, inclusive);
+            if (descending) {
+                return new SubMap(fromStart, low, lowInclusive, false, fromKey, inclusive, true);
+            }
+            return new SubMap(false, fromKey, inclusive, toEnd, high, highInclusive, false);
+        }
+
+        private void checkInRange(K key, boolean inclusive) {
+            if (!inRange(key, inclusive)) {
+                throw new IllegalArgumentException("The key is out of the range of the view!");
+            }
+        }
+
+        @Override
+        public SortedMap<K, V> subMap(K fromKey, K toKey) {
+            return subMap(fromKey, true, toKey, false);
+        }
+
+        @Override
+        public SortedMap<K, V> headMap(K toKey) {
+            return headMap(toKey, false);
+        }
+
+        @Override
+        public SortedMap<K, V> tailMap(K fromKey) {
+            return tailMap(fromKey, true);
+        }
+    }
+}
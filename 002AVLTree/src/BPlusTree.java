@@ -0,0 +1,399 @@
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * B+tree of int values behind the same interface as AVLTree<Integer>, for lookups
+ * over a lot of values. Every page holds up to capacity keys in a sorted int array,
+ * so a search reads a few neighbouring cache lines per level over about
+ * log(n) / log(capacity / 2) levels, instead of one node (a cache miss) per level
+ * over up to 1.44 * log2(n) levels.
+ * All the values are in the leaves, which are linked for the range scans. A repeating
+ * value is kept once with a count, like in the multiset mode of AVLTree.
+ * The root (Node) of AVLTreeInterface is not used.
+ */
+public class BPlusTree extends AVLTreeInterface<Integer> {
+
+    public static final int DEFAULT_CAPACITY = 64;
+
+    protected final int capacity;
+    // every page except the root has at least minKeys keys
+    protected final int minKeys;
+    protected Page rootPage;
+    protected Leaf firstLeaf;
+    protected int height;
+
+    // set by the insert that split a page - the smallest key of the new right page
+    private int splitKey;
+
+    /**
+     * Page with keyCount sorted keys. The arrays have room for one more key, so a page
+     * is first overfilled and then split.
+     */
+    protected static abstract class Page {
+        int[] keys;
+        int keyCount;
+    }
+
+    protected static final class Leaf extends Page {
+        int[] counts;
+        Leaf next;
+
+        Leaf(int capacity) {
+            keys = new int[capacity + 1];
+            counts = new int[capacity + 1];
+        }
+    }
+
+    /**
+     * The keys in children[i] are smaller than keys[i], the ones in children[i + 1] are not.
+     */
+    protected static final class Inner extends Page {
+        Page[] children;
+
+        Inner(int capacity) {
+            keys = new int[capacity + 1];
+            children = new Page[capacity + 2];
+        }
+    }
+
+    // public methods
+    public BPlusTree() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity: the maximum number of keys in a page, at least 4
+     */
+    public BPlusTree(int capacity) {
+        if(capacity < 4){
+            throw new IllegalArgumentException("The capacity must be at least 4: " + capacity);
+        }
+        this.capacity = capacity;
+        this.minKeys = capacity / 2;
+        root = null;
+        size = 0;
+    }
+
+    @Override
+    public int getSize() {
+        return size;
+    }
+
+    // The number of levels, 0 for an empty tree
+    public int getHeight() {
+        return height;
+    }
+
+    /*
+     * There are no nodes with links here, so the returned node is created just to hold the value.
+     */
+    @Override
+    public Node<Integer> findNode(Integer value) {
+        if(!contains(value)){
+            return null;
+        }
+        Node<Integer> node = new Node<Integer>();
+        node.value = value;
+        return node;
+    }
+
+    public boolean contains(int value) {
+        return count(value) > 0;
+    }
+
+    /**
+     * @return the number of occurrences of @value
+     */
+    public int count(int value) {
+        if(rootPage == null){
+            return 0;
+        }
+        Leaf leaf = findLeaf(value);
+        int position = Arrays.binarySearch(leaf.keys, 0, leaf.keyCount, value);
+        return (position >= 0) ? leaf.counts[position] : 0;
+    }
+
+    @Override
+    public void insertNode(Integer value) {
+        if(rootPage == null){
+            rootPage = firstLeaf = new Leaf(capacity);
+            height = 1;
+        }
+        Page split = insert(rootPage, value);
+        if(split != null){
+            Inner newRoot = new Inner(capacity);
+            newRoot.keys[0] = splitKey;
+            newRoot.children[0] = rootPage;
+            newRoot.children[1] = split;
+            newRoot.keyCount = 1;
+            rootPage = newRoot;
+            height++;
+        }
+        size++;
+    }
+
+    @Override
+    public void deleteNode(Integer value) {
+        if(rootPage == null || !delete(rootPage, value)){
+            return;
+        }
+        size--;
+        if(rootPage.keyCount == 0){
+            if(rootPage instanceof Inner){
+                rootPage = ((Inner) rootPage).children[0];
+            } else {
+                rootPage = firstLeaf = null;
+            }
+            height--;
+        }
+    }
+
+    /**
+     * @return the number of values in [@low, @high]
+     */
+    public int countBetween(int low, int high) {
+        int[] count = new int[1];
+        forEachBetween(low, high, value -> count[0]++);
+        return count[0];
+    }
+
+    /**
+     * Calls @action for each value in [@low, @high] in ascending order (once for each occurrence),
+     * going through the linked leaves after a single search.
+     */
+    public void forEachBetween(int low, int high, IntConsumer action) {
+        if(rootPage == null || low > high){
+            return;
+        }
+        Leaf leaf = findLeaf(low);
+        int position = Arrays.binarySearch(leaf.keys, 0, leaf.keyCount, low);
+        if(position < 0){
+            position = -position - 1;
+        }
+        while(leaf != null){
+            for(; position < leaf.keyCount; position++){
+                int key = leaf.keys[position];
+                if(key > high){
+                    return;
+                }
+                for(int i = 0; i < leaf.counts[position]; i++){
+                    action.accept(key);
+                }
+            }
+            leaf = leaf.next;
+            position = 0;
+        }
+    }
+
+    // private methods
+    private Leaf findLeaf(int key) {
+        Page page = rootPage;
+        while(page instanceof Inner){
+            page = ((Inner) page).children[childIndex((Inner) page, key)];
+        }
+        return (Leaf) page;
+    }
+
+    // The first key bigger than key - the index of the child that may contain key
+    private static int childIndex(Inner inner, int key) {
+        int low = 0;
+        int high = inner.keyCount;
+        while(low < high){
+            int middle = (low + high) >>> 1;
+            if(key < inner.keys[middle]){
+                high = middle;
+            } else {
+                low = middle + 1;
+            }
+        }
+        return low;
+    }
+
+    /*
+     * Inserts key under page, returns the new right page if page was split (and sets splitKey)
+     */
+    private Page insert(Page page, int key) {
+        if(page instanceof Leaf){
+            return insertInLeaf((Leaf) page, key);
+        }
+        Inner inner = (Inner) page;
+        int index = childIndex(inner, key);
+        Page split = insert(inner.children[index], key);
+        if(split == null){
+            return null;
+        }
+        // the new page goes right after the split one
+        System.arraycopy(inner.keys, index, inner.keys, index + 1, inner.keyCount - index);
+        System.arraycopy(inner.children, index + 1, inner.children, index + 2, inner.keyCount - index);
+        inner.keys[index] = splitKey;
+        inner.children[index + 1] = split;
+        inner.keyCount++;
+        return (inner.keyCount > capacity) ? splitInner(inner) : null;
+    }
+
+    private Page insertInLeaf(Leaf leaf, int key) {
+        int position = Arrays.binarySearch(leaf.keys, 0, leaf.keyCount, key);
+        if(position >= 0){
+            leaf.counts[position]++;
+            return null;
+        }
+        position = -position - 1;
+        System.arraycopy(leaf.keys, position, leaf.keys, position + 1, leaf.keyCount - position);
+        System.arraycopy(leaf.counts, position, leaf.counts, position + 1, leaf.keyCount - position);
+        leaf.keys[position] = key;
+        leaf.counts[position] = 1;
+        leaf.keyCount++;
+        if(leaf.keyCount <= capacity){
+            return null;
+        }
+        // the bigger half goes to a new leaf
+        Leaf right = new Leaf(capacity);
+        int keep = leaf.keyCount - leaf.keyCount / 2;
+        right.keyCount = leaf.keyCount - keep;
+        System.arraycopy(leaf.keys, keep, right.keys, 0, right.keyCount);
+        System.arraycopy(leaf.counts, keep, right.counts, 0, right.keyCount);
+        leaf.keyCount = keep;
+        right.next = leaf.next;
+        leaf.next = right;
+        splitKey = right.keys[0];
+        return right;
+    }
+
+    // The middle key goes up to the parent, the keys after it and their children to a new page
+    private Page splitInner(Inner inner) {
+        Inner right = new Inner(capacity);
+        int middle = inner.keyCount / 2;
+        right.keyCount = inner.keyCount - middle - 1;
+        System.arraycopy(inner.keys, middle + 1, right.keys, 0, right.keyCount);
+        System.arraycopy(inner.children, middle + 1, right.children, 0, right.keyCount + 1);
+        // just to help the GC
+        Arrays.fill(inner.children, middle + 1, inner.keyCount + 1, null);
+        splitKey = inner.keys[middle];
+        inner.keyCount = middle;
+        return right;
+    }
+
+    /*
+     * Deletes an occurrence of key under page, returns false if it is not there. The underfull
+     * pages are fixed by their parents on the way back.
+     */
+    private boolean delete(Page page, int key) {
+        if(page instanceof Leaf){
+            Leaf leaf = (Leaf) page;
+            int position = Arrays.binarySearch(leaf.keys, 0, leaf.keyCount, key);
+            if(position < 0){
+                return false;
+            }
+            if(leaf.counts[position] > 1){
+                leaf.counts[position]--;
+            } else {
+                leaf.keyCount--;
+                System.arraycopy(leaf.keys, position + 1, leaf.keys, position, leaf.keyCount - position);
+                System.arraycopy(leaf.counts, position + 1, leaf.counts, position, leaf.keyCount - position);
+            }
+            return true;
+        }
+        Inner inner = (Inner) page;
+        int index = childIndex(inner, key);
+        if(!delete(inner.children[index], key)){
+            return false;
+        }
+        if(inner.children[index].keyCount < minKeys){
+            fixUnderfull(inner, index);
+        }
+        return true;
+    }
+
+    /*
+     * Merges the child at index with a neighbour if they fit in one page,
+     * otherwise moves a single key from the neighbour
+     */
+    private void fixUnderfull(Inner parent, int index) {
+        int separator = (index > 0) ? index - 1 : index;
+        Page left = parent.children[separator];
+        Page right = parent.children[separator + 1];
+        boolean leaves = left instanceof Leaf;
+        if(left.keyCount + right.keyCount + (leaves ? 0 : 1) <= capacity){
+            if(leaves){
+                mergeLeaves((Leaf) left, (Leaf) right);
+            } else {
+                mergeInners((Inner) left, (Inner) right, parent.keys[separator]);
+            }
+            parent.keyCount--;
+            System.arraycopy(parent.keys, separator + 1, parent.keys, separator, parent.keyCount - separator);
+            System.arraycopy(parent.children, separator + 2, parent.children, separator + 1, parent.keyCount - separator);
+            parent.children[parent.keyCount + 1] = null;
+        } else if(leaves){
+            if(left.keyCount < right.keyCount){
+                moveFirstToLeft((Leaf) left, (Leaf) right);
+            } else {
+                moveLastToRight((Leaf) left, (Leaf) right);
+            }
+            parent.keys[separator] = right.keys[0];
+        } else {
+            if(left.keyCount < right.keyCount){
+                parent.keys[separator] = moveFirstToLeft((Inner) left, (Inner) right, parent.keys[separator]);
+            } else {
+                parent.keys[separator] = moveLastToRight((Inner) left, (Inner) right, parent.keys[separator]);
+            }
+        }
+    }
+
+    private static void mergeLeaves(Leaf left, Leaf right) {
+        System.arraycopy(right.keys, 0, left.keys, left.keyCount, right.keyCount);
+        System.arraycopy(right.counts, 0, left.counts, left.keyCount, right.keyCount);
+        left.keyCount += right.keyCount;
+        left.next = right.next;
+    }
+
+    // The separator comes down between the keys of the two pages
+    private static void mergeInners(Inner left, Inner right, int separator) {
+        left.keys[left.keyCount] = separator;
+        System.arraycopy(right.keys, 0, left.keys, left.keyCount + 1, right.keyCount);
+        System.arraycopy(right.children, 0, left.children, left.keyCount + 1, right.keyCount + 1);
+        left.keyCount += right.keyCount + 1;
+    }
+
+    private static void moveFirstToLeft(Leaf left, Leaf right) {
+        left.keys[left.keyCount] = right.keys[0];
+        left.counts[left.keyCount] = right.counts[0];
+        left.keyCount++;
+        right.keyCount--;
+        System.arraycopy(right.keys, 1, right.keys, 0, right.keyCount);
+        System.arraycopy(right.counts, 1, right.counts, 0, right.keyCount);
+    }
+
+    private static void moveLastToRight(Leaf left, Leaf right) {
+        System.arraycopy(right.keys, 0, right.keys, 1, right.keyCount);
+        System.arraycopy(right.counts, 0, right.counts, 1, right.keyCount);
+        left.keyCount--;
+        right.keys[0] = left.keys[left.keyCount];
+        right.counts[0] = left.counts[left.keyCount];
+        right.keyCount++;
+    }
+
+    // Rotates through the parent - the separator comes down, the first key of right goes up
+    private static int moveFirstToLeft(Inner left, Inner right, int separator) {
+        left.keys[left.keyCount] = separator;
+        left.children[left.keyCount + 1] = right.children[0];
+        left.keyCount++;
+        int up = right.keys[0];
+        right.keyCount--;
+        System.arraycopy(right.keys, 1, right.keys, 0, right.keyCount);
+        System.arraycopy(right.children, 1, right.children, 0, right.keyCount + 1);
+        right.children[right.keyCount + 1] = null;
+        return up;
+    }
+
+    // Rotates through the parent - the separator comes down, the last key of left goes up
+    private static int moveLastToRight(Inner left, Inner right, int separator) {
+        System.arraycopy(right.keys, 0, right.keys, 1, right.keyCount);
+        System.arraycopy(right.children, 0, right.children, 1, right.keyCount + 1);
+        right.keys[0] = separator;
+        right.children[0] = left.children[left.keyCount];
+        right.keyCount++;
+        left.children[left.keyCount] = null;
+        left.keyCount--;
+        return left.keys[left.keyCount];
+    }
+}
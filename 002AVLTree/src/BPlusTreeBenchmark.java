@@ -0,0 +1,78 @@
+/**
+ * Lookups through AVLTreeInterface in AVLTree<Integer> vs BPlusTree on random values,
+ * and a range scan in each. The cache misses can't be counted from Java, so the levels
+ * that a lookup goes through are printed instead - a miss for every AVL node, a few
+ * neighbouring cache lines for every B+tree page. The range is counted with the
+ * order statistics of AVLTree and scanned through the linked leaves of BPlusTree.
+ * Usage: java -Xmx4g BPlusTreeBenchmark [count] [lookups] [capacity]
+ */
+public class BPlusTreeBenchmark {
+
+    public static void main(String[] args) {
+        int count = (args.length > 0) ? Integer.parseInt(args[0]) : 10_000_000;
+        int lookups = (args.length > 1) ? Integer.parseInt(args[1]) : 10_000_000;
+        int capacity = (args.length > 2) ? Integer.parseInt(args[2]) : BPlusTree.DEFAULT_CAPACITY;
+        int[] values = AVLTreeBenchmark.randomValues(count, 42);
+        int[] searched = AVLTreeBenchmark.randomValues(lookups, 43);
+        // half of the lookups are for existing values
+        for (int i = 0; i < lookups; i += 2) {
+            searched[i] = values[(int) ((i * 31L) % count)];
+        }
+
+        AVLTree<Integer> avl = new AVLTree<Integer>();
+        long avlInsert = insert(avl, values);
+        lookup(avl, searched);
+        avl.resetCounters();
+        long avlLookup = lookup(avl, searched);
+        double avlLevels = (double) avl.getNodesVisited() / lookups;
+        long begin = System.nanoTime();
+        int avlRange = avl.countBetween(0, Integer.MAX_VALUE / 8);
+        long avlScan = System.nanoTime() - begin;
+        print("AVLTree<Integer>", count, lookups, avlInsert, avlLookup);
+        System.out.println("  " + String.format("%.1f", avlLevels) + " nodes per lookup, height " + avl.root.height
+                + ", countBetween " + avlRange + " values in " + (avlScan / 1_000_000) + " ms");
+        avl = null;
+
+        BPlusTree tree = new BPlusTree(capacity);
+        long treeInsert = insert(tree, values);
+        lookup(tree, searched);
+        long treeLookup = lookup(tree, searched);
+        begin = System.nanoTime();
+        int[] treeRange = new int[1];
+        tree.forEachBetween(0, Integer.MAX_VALUE / 8, value -> treeRange[0]++);
+        long treeScan = System.nanoTime() - begin;
+        print("BPlusTree(" + capacity + ")", count, lookups, treeInsert, treeLookup);
+        System.out.println("  " + tree.getHeight() + " pages per lookup"
+                + ", forEachBetween " + treeRange[0] + " values in " + (treeScan / 1_000_000) + " ms");
+    }
+
+    private static long insert(AVLTreeInterface<Integer> tree, int[] values) {
+        long begin = System.nanoTime();
+        for (int value : values) {
+            tree.insertNode(value);
+        }
+        return System.nanoTime() - begin;
+    }
+
+    private static long lookup(AVLTreeInterface<Integer> tree, int[] searched) {
+        long begin = System.nanoTime();
+        int found = 0;
+        for (int value : searched) {
+            if (tree.findNode(value) != null) {
+                found++;
+            }
+        }
+        if (found == 0) {
+            System.out.println("nothing found");
+        }
+        return System.nanoTime() - begin;
+    }
+
+    private static void print(String name, int count, int lookups, long insertNanos, long lookupNanos) {
+        System.out.println(name + ": " + count + " values");
+        System.out.println("  insertNode: " + (insertNanos / 1_000_000) + " ms, "
+                + (long) (count * 1e9 / insertNanos) + " ops/s");
+        System.out.println("  findNode:   " + (lookupNanos / 1_000_000) + " ms, "
+                + (long) (lookups * 1e9 / lookupNanos) + " ops/s");
+    }
+}
@@ -0,0 +1,684 @@
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread-safe AVL tree (a set - repeating values are not added again) after
+ * Bronson, Casper, Chafi, Olukotun "A Practical Concurrent Binary Search Tree".
+ *
+ * contains() never takes a lock: it goes down with hand-over-hand optimistic
+ * validation - each node has a version that changes when a rotation moves
+ * keys out of its subtree, and a reader that sees a changed version goes back
+ * to the parent and retries from there. insertNode() and deleteNode() lock
+ * only the nodes they link, unlink or rotate, so writers in different parts
+ * of the tree do not wait for each other.
+ *
+ * The balance is relaxed: the heights are fixed and the rotations are done
+ * after the change, bottom-up, one locked node at a time, so the tree is an
+ * AVL tree whenever there are no writers in progress.
+ * Deleting a node with two children only marks it as a routing node (it
+ * keeps guiding the searches), it is unlinked once it has at most one child.
+ *
+ * @param <T> The type of the values to be stored in the tree.
+ */
+public class ConcurrentAVLTree<T extends Comparable<T>> {
+
+    // The version of a node: the unlinked mark, or the shrinking bit plus a count of the shrinks
+    protected static final long UNLINKED = 1L;
+    protected static final long SHRINKING = 2L;
+    protected static final long SHRINK_COUNT_INCREMENT = 4L;
+    // A reader spins that many times on a node in a rotation before it starts yielding
+    protected static final int SPIN_COUNT = 100;
+
+    // Results of the attempts, RETRY means go back to the parent
+    protected static final int RETRY = -1;
+    protected static final int FALSE = 0;
+    protected static final int TRUE = 1;
+
+    // Returned by nodeCondition() instead of a new height
+    protected static final int UNLINK_REQUIRED = -1;
+    protected static final int REBALANCE_REQUIRED = -2;
+    protected static final int NOTHING_REQUIRED = -3;
+
+    /**
+     * The nodes are locked with synchronized, always the parent before the child.
+     */
+    protected static final class Node<T> {
+        final T value;
+        // false for a routing node - its value was deleted, but it is still in the tree
+        volatile boolean present;
+        volatile int height;
+        volatile long version;
+        volatile Node<T> parent;
+        volatile Node<T> leftChild, rightChild;
+
+        Node(T value, boolean present, int height, Node<T> parent) {
+            this.value = value;
+            this.present = present;
+            this.height = height;
+            this.version = 0;
+            this.parent = parent;
+            this.leftChild = null;
+            this.rightChild = null;
+        }
+
+        // direction < 0 is the left child, > 0 is the right one
+        Node<T> child(int direction) {
+            return (direction < 0) ? leftChild : rightChild;
+        }
+
+        void setChild(int direction, Node<T> child) {
+            if (direction < 0) {
+                leftChild = child;
+            } else {
+                rightChild = child;
+            }
+        }
+    }
+
+    // Its right child is the root, so the root is changed like any other child
+    protected final Node<T> rootHolder;
+    protected final LongAdder size;
+
+    // public methods
+    public ConcurrentAVLTree() {
+        rootHolder = new Node<T>(null, false, 0, null);
+        size = new LongAdder();
+    }
+
+    /*
+     * Exact when there are no writers in progress.
+     */
+    public int getSize() {
+        return size.intValue();
+    }
+
+    /**
+     * Never blocks - it only spins (and yields) while a node on its path is being rotated.
+     */
+    public boolean contains(T value) {
+        return attemptGet(value, rootHolder, 1, 0) == TRUE;
+    }
+
+    /**
+     * @return false if @value is already in the tree
+     */
+    public boolean insertNode(T value) {
+        boolean inserted = attemptInsert(value, rootHolder, 1, 0) == TRUE;
+        if (inserted) {
+            size.increment();
+        }
+        return inserted;
+    }
+
+    /**
+     * @return false if @value is not in the tree
+     */
+    public boolean deleteNode(T value) {
+        boolean deleted = attemptDelete(value, rootHolder, 1, 0) == TRUE;
+        if (deleted) {
+            size.decrement();
+        }
+        return deleted;
+    }
+
+    /*
+     * Just for testing purposes
+     */
+    public int getHeight() {
+        return height(rootHolder.rightChild);
+    }
+
+    // Searches, node is validated with nodeVersion after reading each link
+
+    private int attemptGet(T value, Node<T> node, int direction, long nodeVersion) {
+        while (true) {
+            Node<T> child = node.child(direction);
+            if (node.version != nodeVersion) {
+                return RETRY;
+            }
+            if (child == null) {
+                return FALSE;
+            }
+            int nextDirection = value.compareTo(child.value);
+            if (nextDirection == 0) {
+                return child.present ? TRUE : FALSE;
+            }
+            long childVersion = child.version;
+            if ((childVersion & SHRINKING) != 0) {
+                waitUntilNotShrinking(child);
+            } else if (childVersion != UNLINKED && child == node.child(direction)) {
+                if (node.version != nodeVersion) {
+                    return RETRY;
+                }
+                int result = attemptGet(value, child, nextDirection, childVersion);
+                if (result != RETRY) {
+                    return result;
+                }
+            }
+        }
+    }
+
+    private int attemptInsert(T value, Node<T> node, int direction, long nodeVersion) {
+        int result;
+        do {
+            result = RETRY;
+            Node<T> child = node.child(direction);
+            if (node.version != nodeVersion) {
+                return RETRY;
+            }
+            if (child == null) {
+                result = attemptLinkNew(value, node, direction, nodeVersion);
+            } else {
+                int nextDirection = value.compareTo(child.value);
+                if (nextDirection == 0) {
+                    result = attemptMakePresent(child);
+                } else {
+                    long childVersion = child.version;
+                    if ((childVersion & SHRINKING) != 0) {
+                        waitUntilNotShrinking(child);
+                    } else if (childVersion != UNLINKED && child == node.child(direction)) {
+                        if (node.version != nodeVersion) {
+                            return RETRY;
+                        }
+                        result = attemptInsert(value, child, nextDirection, childVersion);
+                    }
+                }
+            }
+        } while (result == RETRY);
+        return result;
+    }
+
+    private int attemptDelete(T value, Node<T> node, int direction, long nodeVersion) {
+        int result;
+        do {
+            result = RETRY;
+            Node<T> child = node.child(direction);
+            if (node.version != nodeVersion) {
+                return RETRY;
+            }
+            if (child == null) {
+                return FALSE;
+            }
+            int nextDirection = value.compareTo(child.value);
+            if (nextDirection == 0) {
+                result = attemptRemoveNode(node, child);
+            } else {
+                long childVersion = child.version;
+                if ((childVersion & SHRINKING) != 0) {
+                    waitUntilNotShrinking(child);
+                } else if (childVersion != UNLINKED && child == node.child(direction)) {
+                    if (node.version != nodeVersion) {
+                        return RETRY;
+                    }
+                    result = attemptDelete(value, child, nextDirection, childVersion);
+                }
+            }
+        } while (result == RETRY);
+        return result;
+    }
+
+    private static void waitUntilNotShrinking(Node<?> node) {
+        for (int spins = 0; (node.version & SHRINKING) != 0; spins++) {
+            if (spins > SPIN_COUNT) {
+                Thread.yield();
+            }
+        }
+    }
+
+    // Changes of single nodes
+
+    private int attemptLinkNew(T value, Node<T> node, int direction, long nodeVersion) {
+        synchronized (node) {
+            if (node.version != nodeVersion || node.child(direction) != null) {
+                return RETRY;
+            }
+            node.setChild(direction, new Node<T>(value, true, 1, node));
+        }
+        fixHeightAndRebalance(node);
+        return TRUE;
+    }
+
+    // The value is already in the tree, maybe in a routing node
+    private int attemptMakePresent(Node<T> node) {
+        synchronized (node) {
+            if (node.version == UNLINKED) {
+                return RETRY;
+            }
+            if (node.present) {
+                return FALSE;
+            }
+            node.present = true;
+            return TRUE;
+        }
+    }
+
+    private int attemptRemoveNode(Node<T> parent, Node<T> node) {
+        if (!node.present) {
+            return FALSE;
+        }
+        if (!canUnlink(node)) {
+            // two children - it becomes a routing node
+            synchronized (node) {
+                if (node.version == UNLINKED || canUnlink(node)) {
+                    return RETRY;
+                }
+                if (!node.present) {
+                    return FALSE;
+                }
+                node.present = false;
+            }
+            return TRUE;
+        }
+        synchronized (parent) {
+            if (parent.version == UNLINKED || node.parent != parent) {
+                return RETRY;
+            }
+            synchronized (node) {
+                if (node.version == UNLINKED) {
+                    return RETRY;
+                }
+                if (!node.present) {
+                    return FALSE;
+                }
+                if (!canUnlink(node)) {
+                    return RETRY;
+                }
+                Node<T> child = (node.leftChild != null) ? node.leftChild : node.rightChild;
+                changeChild(parent, node, child);
+                if (child != null) {
+                    child.parent = parent;
+                }
+                node.present = false;
+                node.version = UNLINKED;
+            }
+        }
+        fixHeightAndRebalance(parent);
+        return TRUE;
+    }
+
+    private static boolean canUnlink(Node<?> node) {
+        return node.leftChild == null || node.rightChild == null;
+    }
+
+    // Relaxed balancing - the methods ending with _nl expect the nodes to be locked by the caller
+
+    /*
+     * @return UNLINK_REQUIRED, REBALANCE_REQUIRED, the new height of node if only it has to be
+     * changed, or NOTHING_REQUIRED
+     */
+    private int nodeCondition(Node<T> node) {
+        Node<T> left = node.leftChild;
+        Node<T> right = node.rightChild;
+        if ((left == null || right == null) && !node.present) {
+            return UNLINK_REQUIRED;
+        }
+        int height = node.height;
+        int leftHeight = height(left);
+        int rightHeight = height(right);
+        int newHeight = 1 + Math.max(leftHeight, rightHeight);
+        int balance = leftHeight - rightHeight;
+        if (balance < -1 || balance > 1) {
+            return REBALANCE_REQUIRED;
+        }
+        return (height != newHeight) ? newHeight : NOTHING_REQUIRED;
+    }
+
+    private void fixHeightAndRebalance(Node<T> node) {
+        /*
+         * A rotation may return a node under it that still has to be fixed (an unbalanced
+         * node or a routing node with a single child) before the height of its parent is
+         * fixed. The fixes of that node may stop before they reach the parent, so the parents
+         * of the rotated nodes are checked again at the end.
+         */
+        Deque<Node<T>> rotationParents = null;
+        while (true) {
+            int condition = NOTHING_REQUIRED;
+            if (node != null && node != rootHolder && node.version != UNLINKED) {
+                condition = nodeCondition(node);
+            }
+            if (condition == NOTHING_REQUIRED) {
+                if (rotationParents == null || rotationParents.isEmpty()) {
+                    return;
+                }
+                node = rotationParents.pop();
+            } else if (condition != UNLINK_REQUIRED && condition != REBALANCE_REQUIRED) {
+                synchronized (node) {
+                    node = fixHeight_nl(node);
+                }
+            } else {
+                Node<T> parent = node.parent;
+                synchronized (parent) {
+                    if (parent.version != UNLINKED && node.parent == parent) {
+                        synchronized (node) {
+                            node = rebalance_nl(parent, node);
+                        }
+                        if (rotationParents == null) {
+                            rotationParents = new ArrayDeque<Node<T>>();
+                        }
+                        rotationParents.push(parent);
+                    }
+                }
+            }
+        }
+    }
+
+    // @return the next node that has to be fixed, or null
+    private Node<T> fixHeight_nl(Node<T> node) {
+        int condition = nodeCondition(node);
+        switch (condition) {
+            case REBALANCE_REQUIRED:
+            case UNLINK_REQUIRED:
+                return node;
+            case NOTHING_REQUIRED:
+                return null;
+            default:
+                node.height = condition;
+                return node.parent;
+        }
+    }
+
+    private Node<T> rebalance_nl(Node<T> parent, Node<T> node) {
+        Node<T> left = node.leftChild;
+        Node<T> right = node.rightChild;
+        if ((left == null || right == null) && !node.present) {
+            if (attemptUnlink_nl(parent, node)) {
+                return fixHeight_nl(parent);
+            }
+            return node;
+        }
+        int height = node.height;
+        int leftHeight = height(left);
+        int rightHeight = height(right);
+        int newHeight = 1 + Math.max(leftHeight, rightHeight);
+        int balance = leftHeight - rightHeight;
+        if (balance > 1) {
+            return rebalanceToRight_nl(parent, node, left, rightHeight);
+        } else if (balance < -1) {
+            return rebalanceToLeft_nl(parent, node, right, leftHeight);
+        } else if (newHeight != height) {
+            node.height = newHeight;
+            return fixHeight_nl(parent);
+        }
+        return null;
+    }
+
+    // Unlinks a routing node with at most one child
+    private boolean attemptUnlink_nl(Node<T> parent, Node<T> node) {
+        if (parent.leftChild != node && parent.rightChild != node) {
+            return false;
+        }
+        Node<T> left = node.leftChild;
+        Node<T> right = node.rightChild;
+        if (left != null && right != null) {
+            return false;
+        }
+        Node<T> child = (left != null) ? left : right;
+        changeChild(parent, node, child);
+        if (child != null) {
+            child.parent = parent;
+        }
+        node.version = UNLINKED;
+        return true;
+    }
+
+    // The left subtree of node is too high
+    private Node<T> rebalanceToRight_nl(Node<T> parent, Node<T> node, Node<T> left, int rightHeight) {
+        synchronized (left) {
+            int leftHeight = left.height;
+            if (leftHeight - rightHeight <= 1) {
+                return node; // changed meanwhile, try again
+            }
+            Node<T> leftRight = left.rightChild;
+            int leftLeftHeight = height(left.leftChild);
+            int leftRightHeight = height(leftRight);
+            // left-left case
+            if (leftLeftHeight >= leftRightHeight) {
+                return rotateRight_nl(parent, node, left, rightHeight, leftLeftHeight, leftRight, leftRightHeight);
+            }
+            synchronized (leftRight) {
+                leftRightHeight = leftRight.height;
+                if (leftLeftHeight >= leftRightHeight) {
+                    return rotateRight_nl(parent, node, left, rightHeight, leftLeftHeight, leftRight, leftRightHeight);
+                }
+                // left-right case
+                int leftRightLeftHeight = height(leftRight.leftChild);
+                int balance = leftLeftHeight - leftRightLeftHeight;
+                if (balance >= -1 && balance <= 1 && !((leftLeftHeight == 0 || leftRightLeftHeight == 0) && !left.present)) {
+                    return rotateRightOverLeft_nl(parent, node, left, rightHeight, leftLeftHeight, leftRight,
+                            leftRightLeftHeight);
+                }
+                /*
+                 * The double rotation would leave left unbalanced or as a routing node with a single
+                 * child, so only its first rotation is done now - node is fixed in the next step.
+                 */
+                if (leftRightHeight - leftLeftHeight <= 1) {
+                    return rotateLeft_nl(node, left, leftLeftHeight, leftRight, leftRight.leftChild,
+                            leftRightLeftHeight, height(leftRight.rightChild));
+                }
+            }
+            // left itself is unbalanced
+            return rebalanceToLeft_nl(node, left, leftRight, leftLeftHeight);
+        }
+    }
+
+    // The right subtree of node is too high
+    private Node<T> rebalanceToLeft_nl(Node<T> parent, Node<T> node, Node<T> right, int leftHeight) {
+        synchronized (right) {
+            int rightHeight = right.height;
+            if (leftHeight - rightHeight >= -1) {
+                return node; // changed meanwhile, try again
+            }
+            Node<T> rightLeft = right.leftChild;
+            int rightLeftHeight = height(rightLeft);
+            int rightRightHeight = height(right.rightChild);
+            // right-right case
+            if (rightRightHeight >= rightLeftHeight) {
+                return rotateLeft_nl(parent, node, leftHeight, right, rightLeft, rightLeftHeight, rightRightHeight);
+            }
+            synchronized (rightLeft) {
+                rightLeftHeight = rightLeft.height;
+                if (rightRightHeight >= rightLeftHeight) {
+                    return rotateLeft_nl(parent, node, leftHeight, right, rightLeft, rightLeftHeight, rightRightHeight);
+                }
+                // right-left case
+                int rightLeftRightHeight = height(rightLeft.rightChild);
+                int balance = rightRightHeight - rightLeftRightHeight;
+                if (balance >= -1 && balance <= 1 && !((rightRightHeight == 0 || rightLeftRightHeight == 0) && !right.present)) {
+                    return rotateLeftOverRight_nl(parent, node, leftHeight, right, rightLeft, rightRightHeight,
+                            rightLeftRightHeight);
+                }
+                // only the first rotation, like in rebalanceToRight_nl()
+                if (rightLeftHeight - rightRightHeight <= 1) {
+                    return rotateRight_nl(node, right, rightLeft, rightRightHeight, height(rightLeft.leftChild),
+                            rightLeft.rightChild, rightLeftRightHeight);
+                }
+            }
+            // right itself is unbalanced
+            return rebalanceToRight_nl(node, right, rightLeft, rightRightHeight);
+        }
+    }
+
+    /*
+     * The rotations mark the node that goes down as shrinking, as the readers in its subtree
+     * may be looking for a key that moves out of it.
+     * @return the next node that has to be fixed, or null
+     */
+    private Node<T> rotateRight_nl(Node<T> parent, Node<T> node, Node<T> left, int rightHeight,
+            int leftLeftHeight, Node<T> leftRight, int leftRightHeight) {
+        long nodeVersion = node.version;
+        node.version = nodeVersion | SHRINKING;
+
+        node.leftChild = leftRight;
+        if (leftRight != null) {
+            leftRight.parent = node;
+        }
+        left.rightChild = node;
+        node.parent = left;
+        changeChild(parent, node, left);
+        left.parent = parent;
+
+        int nodeHeight = 1 + Math.max(leftRightHeight, rightHeight);
+        node.height = nodeHeight;
+        left.height = 1 + Math.max(leftLeftHeight, nodeHeight);
+        node.version = nodeVersion + SHRINK_COUNT_INCREMENT;
+
+        int nodeBalance = leftRightHeight - rightHeight;
+        if (nodeBalance < -1 || nodeBalance > 1) {
+            return node;
+        }
+        if ((leftRight == null || rightHeight == 0) && !node.present) {
+            return node;
+        }
+        int leftBalance = leftLeftHeight - nodeHeight;
+        if (leftBalance < -1 || leftBalance > 1) {
+            return left;
+        }
+        if (leftLeftHeight == 0 && !left.present) {
+            return left;
+        }
+        return fixHeight_nl(parent);
+    }
+
+    private Node<T> rotateLeft_nl(Node<T> parent, Node<T> node, int leftHeight, Node<T> right,
+            Node<T> rightLeft, int rightLeftHeight, int rightRightHeight) {
+        long nodeVersion = node.version;
+        node.version = nodeVersion | SHRINKING;
+
+        node.rightChild = rightLeft;
+        if (rightLeft != null) {
+            rightLeft.parent = node;
+        }
+        right.leftChild = node;
+        node.parent = right;
+        changeChild(parent, node, right);
+        right.parent = parent;
+
+        int nodeHeight = 1 + Math.max(leftHeight, rightLeftHeight);
+        node.height = nodeHeight;
+        right.height = 1 + Math.max(nodeHeight, rightRightHeight);
+        node.version = nodeVersion + SHRINK_COUNT_INCREMENT;
+
+        int nodeBalance = rightLeftHeight - leftHeight;
+        if (nodeBalance < -1 || nodeBalance > 1) {
+            return node;
+        }
+        if ((rightLeft == null || leftHeight == 0) && !node.present) {
+            return node;
+        }
+        int rightBalance = rightRightHeight - nodeHeight;
+        if (rightBalance < -1 || rightBalance > 1) {
+            return right;
+        }
+        if (rightRightHeight == 0 && !right.present) {
+            return right;
+        }
+        return fixHeight_nl(parent);
+    }
+
+    private Node<T> rotateRightOverLeft_nl(Node<T> parent, Node<T> node, Node<T> left, int rightHeight,
+            int leftLeftHeight, Node<T> leftRight, int leftRightLeftHeight) {
+        long nodeVersion = node.version;
+        long leftVersion = left.version;
+        Node<T> leftRightLeft = leftRight.leftChild;
+        Node<T> leftRightRight = leftRight.rightChild;
+        int leftRightRightHeight = height(leftRightRight);
+        node.version = nodeVersion | SHRINKING;
+        left.version = leftVersion | SHRINKING;
+
+        node.leftChild = leftRightRight;
+        if (leftRightRight != null) {
+            leftRightRight.parent = node;
+        }
+        left.rightChild = leftRightLeft;
+        if (leftRightLeft != null) {
+            leftRightLeft.parent = left;
+        }
+        leftRight.leftChild = left;
+        left.parent = leftRight;
+        leftRight.rightChild = node;
+        node.parent = leftRight;
+        changeChild(parent, node, leftRight);
+        leftRight.parent = parent;
+
+        int nodeHeight = 1 + Math.max(leftRightRightHeight, rightHeight);
+        node.height = nodeHeight;
+        int leftNewHeight = 1 + Math.max(leftLeftHeight, leftRightLeftHeight);
+        left.height = leftNewHeight;
+        leftRight.height = 1 + Math.max(leftNewHeight, nodeHeight);
+        node.version = nodeVersion + SHRINK_COUNT_INCREMENT;
+        left.version = leftVersion + SHRINK_COUNT_INCREMENT;
+
+        int nodeBalance = leftRightRightHeight - rightHeight;
+        if (nodeBalance < -1 || nodeBalance > 1) {
+            return node;
+        }
+        if ((leftRightRight == null || rightHeight == 0) && !node.present) {
+            return node;
+        }
+        int leftRightBalance = leftNewHeight - nodeHeight;
+        if (leftRightBalance < -1 || leftRightBalance > 1) {
+            return leftRight;
+        }
+        return fixHeight_nl(parent);
+    }
+
+    private Node<T> rotateLeftOverRight_nl(Node<T> parent, Node<T> node, int leftHeight, Node<T> right,
+            Node<T> rightLeft, int rightRightHeight, int rightLeftRightHeight) {
+        long nodeVersion = node.version;
+        long rightVersion = right.version;
+        Node<T> rightLeftLeft = rightLeft.leftChild;
+        Node<T> rightLeftRight = rightLeft.rightChild;
+        int rightLeftLeftHeight = height(rightLeftLeft);
+        node.version = nodeVersion | SHRINKING;
+        right.version = rightVersion | SHRINKING;
+
+        node.rightChild = rightLeftLeft;
+        if (rightLeftLeft != null) {
+            rightLeftLeft.parent = node;
+        }
+        right.leftChild = rightLeftRight;
+        if (rightLeftRight != null) {
+            rightLeftRight.parent = right;
+        }
+        rightLeft.rightChild = right;
+        right.parent = rightLeft;
+        rightLeft.leftChild = node;
+        node.parent = rightLeft;
+        changeChild(parent, node, rightLeft);
+        rightLeft.parent = parent;
+
+        int nodeHeight = 1 + Math.max(leftHeight, rightLeftLeftHeight);
+        node.height = nodeHeight;
+        int rightNewHeight = 1 + Math.max(rightLeftRightHeight, rightRightHeight);
+        right.height = rightNewHeight;
+        rightLeft.height = 1 + Math.max(nodeHeight, rightNewHeight);
+        node.version = nodeVersion + SHRINK_COUNT_INCREMENT;
+        right.version = rightVersion + SHRINK_COUNT_INCREMENT;
+
+        int nodeBalance = rightLeftLeftHeight - leftHeight;
+        if (nodeBalance < -1 || nodeBalance > 1) {
+            return node;
+        }
+        if ((rightLeftLeft == null || leftHeight == 0) && !node.present) {
+            return node;
+        }
+        int rightLeftBalance = rightNewHeight - nodeHeight;
+        if (rightLeftBalance < -1 || rightLeftBalance > 1) {
+            return rightLeft;
+        }
+        return fixHeight_nl(parent);
+    }
+
+    private static <T> void changeChild(Node<T> node, Node<T> currChild, Node<T> newChild) {
+        if (node.leftChild == currChild) {
+            node.leftChild = newChild;
+        } else if (node.rightChild == currChild) {
+            node.rightChild = newChild;
+        }
+    }
+
+    private static int height(Node<?> node) {
+        return (node != null) ? node.height : 0;
+    }
+}
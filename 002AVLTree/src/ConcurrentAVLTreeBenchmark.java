@@ -0,0 +1,138 @@
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Scaling of ConcurrentAVLTree vs an AVLTree behind a ReentrantReadWriteLock,
+ * with 90% lookups and 10% insertNode/deleteNode, from 1 to N threads.
+ * Usage: java ConcurrentAVLTreeBenchmark [values] [maxThreads] [millisPerRun]
+ */
+public class ConcurrentAVLTreeBenchmark {
+
+    private static final int READ_PERCENT = 90;
+
+    private interface Tree {
+        boolean contains(int value);
+
+        void insert(int value);
+
+        void delete(int value);
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int values = (args.length > 0) ? Integer.parseInt(args[0]) : 1_000_000;
+        int maxThreads = (args.length > 1) ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        long millis = (args.length > 2) ? Long.parseLong(args[2]) : 2000;
+
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            ConcurrentAVLTree<Integer> concurrent = new ConcurrentAVLTree<Integer>();
+            for (int i = 0; i < values; i += 2) {
+                concurrent.insertNode(i);
+            }
+            long concurrentOps = run(new Tree() {
+                @Override
+                public boolean contains(int value) {
+                    return concurrent.contains(value);
+                }
+
+                @Override
+                public void insert(int value) {
+                    concurrent.insertNode(value);
+                }
+
+                @Override
+                public void delete(int value) {
+                    concurrent.deleteNode(value);
+                }
+            }, values, threads, millis);
+
+            AVLTree<Integer> avl = new AVLTree<Integer>();
+            for (int i = 0; i < values; i += 2) {
+                avl.insertNode(i);
+            }
+            long lockedOps = run(new ReadWriteLockedTree(avl), values, threads, millis);
+
+            System.out.println(threads + " threads: ConcurrentAVLTree " + (concurrentOps * 1000 / millis)
+                    + " ops/s, AVLTree with ReadWriteLock " + (lockedOps * 1000 / millis) + " ops/s");
+            if (threads < maxThreads && threads * 2 > maxThreads) {
+                threads = maxThreads / 2;
+            }
+        }
+    }
+
+    private static long run(Tree tree, int values, int threads, long millis) throws InterruptedException {
+        AtomicBoolean stop = new AtomicBoolean(false);
+        LongAdder operations = new LongAdder();
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                long count = 0;
+                while (!stop.get()) {
+                    int value = random.nextInt(values);
+                    int dice = random.nextInt(100);
+                    if (dice < READ_PERCENT) {
+                        tree.contains(value);
+                    } else if ((dice & 1) == 0) {
+                        tree.insert(value);
+                    } else {
+                        tree.delete(value);
+                    }
+                    count++;
+                }
+                operations.add(count);
+                done.countDown();
+            }).start();
+        }
+        Thread.sleep(millis);
+        stop.set(true);
+        done.await();
+        return operations.sum();
+    }
+
+    // The current way - the readers share a lock that the writers take exclusively
+    private static class ReadWriteLockedTree implements Tree {
+
+        private final AVLTree<Integer> avl;
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+        ReadWriteLockedTree(AVLTree<Integer> avl) {
+            this.avl = avl;
+        }
+
+        @Override
+        public boolean contains(int value) {
+            lock.readLock().lock();
+            try {
+                return avl.findNode(value) != null;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        @Override
+        public void insert(int value) {
+            lock.writeLock().lock();
+            try {
+                // keep it a set like ConcurrentAVLTree
+                if (avl.findNode(value) == null) {
+                    avl.insertNode(value);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        @Override
+        public void delete(int value) {
+            lock.writeLock().lock();
+            try {
+                avl.deleteNode(value);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,26 @@
+/**
+ * The interface of AVLTreeInterface for int values - the same operations, but the
+ * values are not boxed.
+ */
+public abstract class IntAVLTreeInterface {
+	protected IntAVLTree.Node root;
+	protected int size;
+
+	/* Returns the number of nodes in the tree. 0 in case of empty tree. */
+	abstract public int getSize();
+
+	/* Inserts the given value as node in the tree. */
+	abstract public void insertNode(int value);
+
+	/*
+	 * Finds a node with value equal to the given parameter. Returns NULL if no
+	 * such is found.
+	 */
+	abstract IntAVLTree.Node findNode(int value);
+
+	/*
+	 * Deletes a node with the given value from the tree. If the value is not
+	 * found in the tree no modification to the tree should be made.
+	 */
+	abstract public void deleteNode(int value);
+}
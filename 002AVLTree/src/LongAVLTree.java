@@ -0,0 +1,182 @@
+import java.util.LinkedList;
+import java.util.Queue;
+
+/**
+ * AVL tree specialized for long values. It has the operations of AVLTreeInterface
+ * (see LongAVLTreeInterface), but the values are not boxed and are compared directly
+ * instead of through Comparable.compareTo(). The balancing is the one of
+ * AVLTree, from AVLBalancer - only the searches are specialized.
+ */
+public class LongAVLTree extends LongAVLTreeInterface {
+
+    /**
+     * Single node of the tree, like Node<T>, but with a long value.
+     */
+    public static class Node extends AVLNode<Node> {
+        public long value;
+
+        Node(long value) {
+            this.value = value;
+            this.height = 0;
+            this.leftChild = null;
+            this.rightChild = null;
+            this.parent = null;
+        }
+    }
+
+    private final AVLBalancer<Node> balancer = new AVLBalancer<Node>() {
+        @Override
+        protected void setRoot(Node node){
+            root = node;
+        }
+
+        @Override
+        protected void swapContents(Node n1, Node n2){
+            long val = n1.value;
+            n1.value = n2.value;
+            n2.value = val;
+        }
+    };
+
+    // public methods
+    public LongAVLTree() {
+        root = null;
+        size = 0;
+    }
+
+    @Override
+    public int getSize() {
+        return size;
+    }
+
+    @Override
+    public Node findNode(long value) {
+        Node current = root;
+        while (current != null) {
+            long currentValue = current.value;
+            if (value == currentValue) {
+                break;
+            } else if (value > currentValue) {
+                current = current.rightChild;
+            } else {
+                current = current.leftChild;
+            }
+        }
+        return current;
+    }
+
+    @Override
+    /*
+     * Inserts a new element in the AVL tree with the given value.
+     * If there are already other elements with this value the new element is
+     * always inserted in their left subtrees - the same as in AVLTree.
+     */
+    public void insertNode(long value) {
+        Node newNode = new Node(value);
+        insertBST(newNode);
+        balancer.balanceUp(newNode, true);
+        // size may overflow - we may throw exception here, or choose to use a longer type or an arbitary length one
+        size++;
+    }
+
+    @Override
+    public void deleteNode(long value) {
+        Node node = findNode(value);
+        if(node != null){
+            Node forBalance = balancer.unlink(node);
+            balancer.balanceUp(forBalance, false);
+            size--;
+        }
+    }
+    
+    public String getAVLInfoInLevelOrder(){
+        StringBuilder sb = new StringBuilder();
+        sb.append(System.lineSeparator());
+        sb.append("LongAVLTree with size = ");
+        sb.append(size);
+        sb.append(" and root = ");
+        sb.append((root != null) ? root.value : "null");
+        sb.append(System.lineSeparator());
+        
+        Queue<Node> nodes = new LinkedList<Node>();
+        if(root != null){
+            nodes.add(root);
+        }
+        while(!nodes.isEmpty()){
+            Node top = nodes.poll();
+            sb.append(getNodePrintableInfo(top));
+            if(top.leftChild != null){
+                nodes.add(top.leftChild);
+            }
+            if(top.rightChild != null){
+                nodes.add(top.rightChild);
+            }
+        }
+        
+        return sb.toString();
+    }
+    
+    /*
+     * Just for testing purposes
+     */
+    public void updateTreeHeight(){
+        if(root != null){
+            updateTreeHeightRecursive(root);
+        }
+    }
+    
+    private void updateTreeHeightRecursive(Node node){
+        if(node.leftChild != null){
+            updateTreeHeightRecursive(node.leftChild);
+        }
+        if(node.rightChild != null){
+            updateTreeHeightRecursive(node.rightChild);
+        }
+        balancer.update(node);
+    }
+    
+    private void insertBST(Node node){
+        Node current = root;
+        if(current == null){
+            root = node;
+        } else {
+            while(true) {
+                if(node.value <= current.value){
+                    if(current.leftChild == null){
+                        current.leftChild = node;
+                        node.parent = current;
+                        break;
+                    } else {
+                        current = current.leftChild;
+                    }
+                } else {
+                    if(current.rightChild == null){
+                        current.rightChild = node;
+                        node.parent = current;
+                        break;
+                    } else {
+                        current = current.rightChild;
+                    }
+                }
+            }
+        }
+    }
+    
+    private static String getNodePrintableInfo(Node node){
+        StringBuilder sb = new StringBuilder();
+        if(node != null){
+            sb.append("Node: value = ");
+            sb.append(node.value);
+            sb.append(";\t\t height = ");
+            sb.append(node.height);
+            sb.append(";\t parent = ");
+            sb.append((node.parent != null) ? node.parent.value : "null");
+            sb.append(";\t\t leftChild = ");
+            sb.append((node.leftChild != null) ? node.leftChild.value : "null");
+            sb.append(";\t\t rightChild = ");
+            sb.append((node.rightChild != null) ? node.rightChild.value : "null");
+            sb.append(System.lineSeparator());
+        }
+        return sb.toString();
+    }
+}
\ No newline at end of file
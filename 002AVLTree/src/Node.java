@@ -5,9 +5,9 @@
  *
  * @param <T> The type of values stored in the tree.
  */
-public class Node<T extends Comparable<T>> {
-	public Node<T> parent;
-	public Node<T> leftChild, rightChild;
-	public int height;
+public class Node<T extends Comparable<T>> extends AVLNode<Node<T>> {
+	// the links and the height are in AVLNode
+	// the number of values in the subtree, used by the order statistics of AVLTree
+	public int size;
 	public T value;
 }
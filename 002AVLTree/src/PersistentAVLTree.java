@@ -0,0 +1,274 @@
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Fully persistent AVL tree. The nodes are immutable and have no parent pointers,
+ * so an update copies only the nodes on the search path (and the ones a rotation
+ * touches) and shares all the other subtrees with the previous version. The balancing
+ * is the one of AVLTree - the same left-left, left-right, right-right and right-left
+ * cases, but done while the path is copied on the way back up.
+ * A snapshot is just a reference to the current root - it is O(1), and readers of a
+ * snapshot never block and never see a half done update, while the ingestion goes on.
+ *
+ * insertNode() and deleteNode() move this tree to the new version. They are
+ * synchronized, so there can be several writers, while the readers are not
+ * synchronized at all.
+ *
+ * @param <T> The type of the values to be stored in the tree.
+ */
+public class PersistentAVLTree<T extends Comparable<T>> implements Iterable<T> {
+
+    protected static final class Node<T> {
+
+        final T value;
+        final int height;
+        final int size; // number of values in the subtree
+        final Node<T> leftChild;
+        final Node<T> rightChild;
+
+        Node(T value, Node<T> leftChild, Node<T> rightChild) {
+            this.value = value;
+            this.leftChild = leftChild;
+            this.rightChild = rightChild;
+            this.height = Math.max(height(leftChild), height(rightChild)) + 1;
+            this.size = size(leftChild) + 1 + size(rightChild);
+        }
+    }
+
+    // the current version, published to the readers
+    protected volatile Node<T> root;
+    // nodes allocated by the last update, only for the writer
+    protected int allocations;
+    // the biggest value of a subtree, set by removeMax() for the writer
+    private T removedMax;
+
+    public PersistentAVLTree() {
+        this(null);
+    }
+
+    protected PersistentAVLTree(Node<T> root) {
+        this.root = root;
+        this.allocations = 0;
+    }
+
+    public int getSize() {
+        return size(root);
+    }
+
+    public int getHeight() {
+        return height(root);
+    }
+
+    /*
+     * Inserts a new element with the given value. Like in AVLTree, if there are
+     * already other elements with this value the new one goes to their left subtrees.
+     */
+    public synchronized void insertNode(T value) {
+        root = insertVersion(root, value);
+    }
+
+    // Deletes a single occurrence of value, if there is one
+    public synchronized void deleteNode(T value) {
+        root = deleteVersion(root, value);
+    }
+
+    public boolean contains(T value) {
+        return find(root, value) != null;
+    }
+
+    /**
+     * Returns a read-only view of the current version in O(1). Later updates
+     * of this tree are not visible in the snapshot.
+     */
+    public PersistentAVLTree<T> snapshot() {
+        return new Snapshot<T>(root);
+    }
+
+    /**
+     * Returns a new version with @value added. This tree is not changed.
+     */
+    public synchronized PersistentAVLTree<T> withValue(T value) {
+        return new PersistentAVLTree<T>(insertVersion(root, value));
+    }
+
+    /**
+     * Returns a new version with an occurrence of @value removed. This tree is not changed.
+     */
+    public synchronized PersistentAVLTree<T> withoutValue(T value) {
+        return new PersistentAVLTree<T>(deleteVersion(root, value));
+    }
+
+    /**
+     * @return the number of nodes allocated by the last insertNode/deleteNode/withValue/withoutValue
+     */
+    public synchronized int getLastAllocationCount() {
+        return allocations;
+    }
+
+    /**
+     * Iterates over the values of the version at the time of the call in ascending order.
+     */
+    @Override
+    public Iterator<T> iterator() {
+        final Node<T> version = root;
+        return new Iterator<T>() {
+            private final Deque<Node<T>> path = new ArrayDeque<Node<T>>();
+
+            {
+                pushLeft(version);
+            }
+
+            @Override
+            public boolean hasNext() {
+                return !path.isEmpty();
+            }
+
+            @Override
+            public T next() {
+                if (path.isEmpty()) {
+                    throw new NoSuchElementException();
+                }
+                Node<T> node = path.pop();
+                pushLeft(node.rightChild);
+                return node.value;
+            }
+
+            private void pushLeft(Node<T> node) {
+                for (; node != null; node = node.leftChild) {
+                    path.push(node);
+                }
+            }
+        };
+    }
+
+    protected Node<T> insertVersion(Node<T> current, T value) {
+        allocations = 0;
+        return insert(current, value);
+    }
+
+    protected Node<T> deleteVersion(Node<T> current, T value) {
+        allocations = 0;
+        if (find(current, value) == null) {
+            return current;
+        }
+        return delete(current, value);
+    }
+
+    // Return null if the node is not found
+    protected static <T extends Comparable<T>> Node<T> find(Node<T> current, T value) {
+        while (current != null) {
+            int cmp = value.compareTo(current.value);
+            if (cmp == 0) {
+                break;
+            }
+            current = (cmp < 0) ? current.leftChild : current.rightChild;
+        }
+        return current;
+    }
+
+    protected Node<T> insert(Node<T> node, T value) {
+        if (node == null) {
+            return newNode(value, null, null);
+        }
+        if (value.compareTo(node.value) <= 0) {
+            return balance(node.value, insert(node.leftChild, value), node.rightChild);
+        } else {
+            return balance(node.value, node.leftChild, insert(node.rightChild, value));
+        }
+    }
+
+    // @value must be in the subtree
+    protected Node<T> delete(Node<T> node, T value) {
+        int cmp = value.compareTo(node.value);
+        if (cmp < 0) {
+            return balance(node.value, delete(node.leftChild, value), node.rightChild);
+        } else if (cmp > 0) {
+            return balance(node.value, node.leftChild, delete(node.rightChild, value));
+        } else if (node.leftChild == null) {
+            return node.rightChild;
+        } else if (node.rightChild == null) {
+            return node.leftChild;
+        } else {
+            // like deleteBST in AVLTree - the in-order predecessor takes the place of the node
+            Node<T> leftChild = removeMax(node.leftChild);
+            return balance(removedMax, leftChild, node.rightChild);
+        }
+    }
+
+    // Removes the biggest value of the subtree of node and keeps it in removedMax
+    private Node<T> removeMax(Node<T> node) {
+        if (node.rightChild == null) {
+            removedMax = node.value;
+            return node.leftChild;
+        }
+        return balance(node.value, node.leftChild, removeMax(node.rightChild));
+    }
+
+    /*
+     * Creates the node with value and the given subtrees, whose heights differ by at most 2,
+     * rotating where needed. The rotated nodes are built in their final place, so a single
+     * rotation allocates 2 nodes and a double rotation 3.
+     */
+    protected Node<T> balance(T value, Node<T> leftChild, Node<T> rightChild) {
+        int balanceFactor = height(leftChild) - height(rightChild);
+        // unbalanced, node was added to the left subtree or removed from the right subtree
+        if (balanceFactor == 2) {
+            // left-right case
+            if (height(leftChild.leftChild) < height(leftChild.rightChild)) {
+                Node<T> middle = leftChild.rightChild;
+                return newNode(middle.value,
+                        newNode(leftChild.value, leftChild.leftChild, middle.leftChild),
+                        newNode(value, middle.rightChild, rightChild));
+            }
+            // left-left case
+            return newNode(leftChild.value, leftChild.leftChild, newNode(value, leftChild.rightChild, rightChild));
+        // unbalanced, node was added to the right subtree or removed from the left subtree
+        } else if (balanceFactor == -2) {
+            // right-left case
+            if (height(rightChild.rightChild) < height(rightChild.leftChild)) {
+                Node<T> middle = rightChild.leftChild;
+                return newNode(middle.value,
+                        newNode(value, leftChild, middle.leftChild),
+                        newNode(rightChild.value, middle.rightChild, rightChild.rightChild));
+            }
+            // right-right case
+            return newNode(rightChild.value, newNode(value, leftChild, rightChild.leftChild), rightChild.rightChild);
+        }
+        return newNode(value, leftChild, rightChild);
+    }
+
+    protected Node<T> newNode(T value, Node<T> leftChild, Node<T> rightChild) {
+        allocations++;
+        return new Node<T>(value, leftChild, rightChild);
+    }
+
+    protected static int height(Node<?> node) {
+        return (node != null) ? node.height : 0;
+    }
+
+    protected static int size(Node<?> node) {
+        return (node != null) ? node.size : 0;
+    }
+
+    /*
+     * A version that can only be read.
+     */
+    protected static class Snapshot<T extends Comparable<T>> extends PersistentAVLTree<T> {
+
+        Snapshot(Node<T> root) {
+            super(root);
+        }
+
+        @Override
+        public void insertNode(T value) {
+            throw new UnsupportedOperationException("The snapshot is read-only!");
+        }
+
+        @Override
+        public void deleteNode(T value) {
+            throw new UnsupportedOperationException("The snapshot is read-only!");
+        }
+    }
+}
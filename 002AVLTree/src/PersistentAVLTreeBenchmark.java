@@ -0,0 +1,114 @@
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * The cost of keeping the old versions in PersistentAVLTree: the nodes (and bytes,
+ * where the JVM can count them) allocated per update compared to AVLTree, and the
+ * lookup and scan throughput on an old version while the current one keeps changing.
+ * Usage: java -Xmx4g PersistentAVLTreeBenchmark [count]
+ */
+public class PersistentAVLTreeBenchmark {
+
+    public static void main(String[] args) {
+        int count = (args.length > 0) ? Integer.parseInt(args[0]) : 1_000_000;
+        int[] values = AVLTreeBenchmark.randomValues(count, 42);
+        int[] updates = AVLTreeBenchmark.randomValues(count / 2, 43);
+
+        AVLTree<Integer> avl = new AVLTree<Integer>();
+        long avlBytes = allocatedBytes();
+        long begin = System.nanoTime();
+        for (int value : values) {
+            avl.insertNode(value);
+        }
+        long avlNanos = System.nanoTime() - begin;
+        avlBytes = allocatedBytes() - avlBytes;
+
+        PersistentAVLTree<Integer> persistent = new PersistentAVLTree<Integer>();
+        long nodes = 0;
+        long persistentBytes = allocatedBytes();
+        begin = System.nanoTime();
+        for (int value : values) {
+            persistent.insertNode(value);
+            nodes += persistent.getLastAllocationCount();
+        }
+        long persistentNanos = System.nanoTime() - begin;
+        persistentBytes = allocatedBytes() - persistentBytes;
+
+        System.out.println(count + " inserts, height " + avl.root.height + " / " + persistent.getHeight() + ":");
+        System.out.println("  AVLTree:           " + nanosPerOp(avlNanos, count) + ", 1 node"
+                + bytesPerOp(avlBytes, count) + " per insert");
+        System.out.println("  PersistentAVLTree: " + nanosPerOp(persistentNanos, count) + ", "
+                + String.format("%.1f", (double) nodes / count) + " nodes" + bytesPerOp(persistentBytes, count)
+                + " per insert");
+
+        // a report reads the old version while the ingestion goes on
+        PersistentAVLTree<Integer> old = persistent.snapshot();
+        for (int i = 0; i < updates.length; i++) {
+            if ((i & 1) == 0) {
+                persistent.insertNode(updates[i]);
+            } else {
+                persistent.deleteNode(values[i]);
+            }
+        }
+        lookups(avl, old, persistent, values, false);
+        lookups(avl, old, persistent, values, true);
+
+        begin = System.nanoTime();
+        long sum = 0;
+        for (int value : old) {
+            sum += value;
+        }
+        long scanNanos = System.nanoTime() - begin;
+        System.out.println("  in-order scan of the old version: " + nanosPerOp(scanNanos, old.getSize())
+                + " (checksum " + sum + ")");
+    }
+
+    private static void lookups(AVLTree<Integer> avl, PersistentAVLTree<Integer> old,
+            PersistentAVLTree<Integer> current, int[] values, boolean print) {
+        long begin = System.nanoTime();
+        int found = 0;
+        for (int value : values) {
+            if (avl.findNode(value) != null) {
+                found++;
+            }
+        }
+        long avlNanos = System.nanoTime() - begin;
+        begin = System.nanoTime();
+        for (int value : values) {
+            if (old.contains(value)) {
+                found++;
+            }
+        }
+        long oldNanos = System.nanoTime() - begin;
+        begin = System.nanoTime();
+        for (int value : values) {
+            if (current.contains(value)) {
+                found++;
+            }
+        }
+        long currentNanos = System.nanoTime() - begin;
+        if (print) {
+            System.out.println("Lookups after " + (values.length / 2) + " more updates (" + found + " found):");
+            System.out.println("  AVLTree:                " + nanosPerOp(avlNanos, values.length));
+            System.out.println("  old persistent version: " + nanosPerOp(oldNanos, values.length));
+            System.out.println("  current version:        " + nanosPerOp(currentNanos, values.length));
+        }
+    }
+
+    private static String nanosPerOp(long nanos, int count) {
+        return String.format("%.1f", (double) nanos / count) + " ns/op";
+    }
+
+    private static String bytesPerOp(long bytes, int count) {
+        return (bytes >= 0) ? " (" + (bytes / count) + " bytes)" : "";
+    }
+
+    // -1 if the JVM can't count the allocations of a thread
+    private static long allocatedBytes() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threads).getCurrentThreadAllocatedBytes();
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,263 @@
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/*
+ * AVLTreeMap must behave exactly like TreeMap, including the views.
+ */
+
+public class AVLTreeMapTest {
+
+    @Test
+    public void testEmptyMap() {
+        AVLTreeMap<Integer, String> map = new AVLTreeMap<Integer, String>();
+        assertEquals(0, map.size());
+        assertTrue(map.isEmpty());
+        assertNull(map.get(5));
+        assertNull(map.firstEntry());
+        assertNull(map.pollLastEntry());
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void testFirstKeyOfEmptyMap() {
+        new AVLTreeMap<Integer, String>().firstKey();
+    }
+
+    @Test
+    public void testPutReplacesValue() {
+        AVLTreeMap<String, Integer> map = new AVLTreeMap<String, Integer>();
+        assertNull(map.put("a", 1));
+        assertEquals(Integer.valueOf(1), map.put("a", 2));
+        assertEquals(1, map.size());
+        assertEquals(Integer.valueOf(2), map.get("a"));
+    }
+
+    @Test
+    public void testComparatorOrder() {
+        AVLTreeMap<String, Integer> map = new AVLTreeMap<String, Integer>(String.CASE_INSENSITIVE_ORDER);
+        map.put("b", 1);
+        map.put("A", 2);
+        map.put("B", 3);
+        map.put("c", 4);
+        assertEquals(3, map.size());
+        assertEquals(Integer.valueOf(3), map.get("b"));
+        assertEquals("A", map.firstKey());
+        assertSame(String.CASE_INSENSITIVE_ORDER, map.comparator());
+    }
+
+    @Test
+    public void testOneComparisonPerLevel() {
+        final int[] comparisons = new int[1];
+        Comparator<Integer> counting = (a, b) -> {
+            comparisons[0]++;
+            return Integer.compare(a, b);
+        };
+        AVLTreeMap<Integer, Integer> map = new AVLTreeMap<Integer, Integer>(counting);
+        for (int i = 0; i < 1000; i++) {
+            map.put(i, i);
+        }
+        for (int i = 0; i < 1000; i++) {
+            comparisons[0] = 0;
+            map.get(i);
+            assertTrue(comparisons[0] <= map.getHeight());
+            comparisons[0] = 0;
+            map.ceilingKey(i);
+            assertTrue(comparisons[0] <= map.getHeight());
+        }
+    }
+
+    @Test
+    public void testRandomOperationsMatchTreeMap() {
+        Random random = new Random(13);
+        AVLTreeMap<Integer, Integer> map = new AVLTreeMap<Integer, Integer>();
+        TreeMap<Integer, Integer> expected = new TreeMap<Integer, Integer>();
+        for (int i = 0; i < 50_000; i++) {
+            int key = random.nextInt(2000);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), map.remove(key));
+            } else {
+                assertEquals(expected.put(key, i), map.put(key, i));
+            }
+        }
+        assertEquals(expected, map);
+        assertEquals(map, expected);
+        assertEquals(expected.hashCode(), map.hashCode());
+        assertValidAVL(map.root);
+        for (int key = -1; key <= 2001; key++) {
+            assertEquals(expected.get(key), map.get(key));
+            assertEquals(expected.floorKey(key), map.floorKey(key));
+            assertEquals(expected.ceilingKey(key), map.ceilingKey(key));
+            assertEquals(expected.lowerKey(key), map.lowerKey(key));
+            assertEquals(expected.higherKey(key), map.higherKey(key));
+        }
+    }
+
+    @Test
+    public void testIteratorRemove() {
+        AVLTreeMap<Integer, Integer> map = new AVLTreeMap<Integer, Integer>();
+        TreeMap<Integer, Integer> expected = new TreeMap<Integer, Integer>();
+        for (int i = 0; i < 1000; i++) {
+            map.put(i, i);
+            expected.put(i, i);
+        }
+        for (Iterator<Integer> it = map.keySet().iterator(); it.hasNext();) {
+            if (it.next() % 3 == 0) {
+                it.remove();
+            }
+        }
+        for (Iterator<Integer> it = map.descendingKeySet().iterator(); it.hasNext();) {
+            if (it.next() % 5 == 0) {
+                it.remove();
+            }
+        }
+        expected.keySet().removeIf(key -> key % 3 == 0 || key % 5 == 0);
+        assertEquals(expected, map);
+        assertValidAVL(map.root);
+    }
+
+    @Test
+    public void testViewsMatchTreeMap() {
+        Random random = new Random(5);
+        AVLTreeMap<Integer, Integer> map = new AVLTreeMap<Integer, Integer>();
+        TreeMap<Integer, Integer> expected = new TreeMap<Integer, Integer>();
+        for (int i = 0; i < 500; i++) {
+            int key = random.nextInt(1000);
+            map.put(key, i);
+            expected.put(key, i);
+        }
+        assertViewsEqual(expected.subMap(100, true, 700, false), map.subMap(100, true, 700, false));
+        assertViewsEqual(expected.headMap(300, true), map.headMap(300, true));
+        assertViewsEqual(expected.tailMap(300, false), map.tailMap(300, false));
+        assertViewsEqual(expected.descendingMap(), map.descendingMap());
+        assertViewsEqual(expected.descendingMap().subMap(800, true, 200, true),
+                map.descendingMap().subMap(800, true, 200, true));
+        assertViewsEqual(expected.descendingMap().headMap(400, false).tailMap(600, true),
+                map.descendingMap().headMap(400, false).tailMap(600, true));
+        assertEquals(Collections.reverseOrder(), map.descendingMap().comparator());
+    }
+
+    @Test
+    public void testChangesThroughViews() {
+        AVLTreeMap<Integer, Integer> map = new AVLTreeMap<Integer, Integer>();
+        for (int i = 0; i < 100; i++) {
+            map.put(i, i);
+        }
+        NavigableMap<Integer, Integer> view = map.subMap(10, true, 20, true);
+        assertEquals(11, view.size());
+        assertEquals(Integer.valueOf(10), view.pollFirstEntry().getKey());
+        view.remove(15);
+        view.remove(50);
+        view.put(20, -1);
+        assertEquals(98, map.size());
+        assertEquals(Integer.valueOf(-1), map.get(20));
+        assertTrue(map.containsKey(50));
+        view.clear();
+        assertEquals(89, map.size());
+        assertEquals(Integer.valueOf(21), map.ceilingKey(10));
+        assertValidAVL(map.root);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testPutOutsideTheView() {
+        AVLTreeMap<Integer, Integer> map = new AVLTreeMap<Integer, Integer>();
+        map.headMap(10).put(10, 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInclusiveBoundOnAnExclusiveBoundOfTheView() {
+        AVLTreeMap<Integer, Integer> map = new AVLTreeMap<Integer, Integer>();
+        map.subMap(1, false, 10, false).subMap(1, true, 5, true);
+    }
+
+    @Test
+    public void testNestedViewBoundsMatchTreeMap() {
+        AVLTreeMap<Integer, Integer> map = new AVLTreeMap<Integer, Integer>();
+        TreeMap<Integer, Integer> expected = new TreeMap<Integer, Integer>();
+        for (int i = 0; i < 12; i++) {
+            map.put(i, i);
+            expected.put(i, i);
+        }
+        NavigableMap<Integer, Integer> view = map.subMap(1, false, 10, false);
+        NavigableMap<Integer, Integer> expectedView = expected.subMap(1, false, 10, false);
+        for (int bound : new int[]{0, 1, 5, 10, 11}) {
+            for (boolean inclusive : new boolean[]{false, true}) {
+                assertSameBoundCheck(() -> expectedView.headMap(bound, inclusive), () -> view.headMap(bound, inclusive));
+                assertSameBoundCheck(() -> expectedView.tailMap(bound, inclusive), () -> view.tailMap(bound, inclusive));
+                assertSameBoundCheck(() -> expectedView.subMap(bound, inclusive, 10, false),
+                        () -> view.subMap(bound, inclusive, 10, false));
+                assertSameBoundCheck(() -> expectedView.subMap(1, false, bound, inclusive),
+                        () -> view.subMap(1, false, bound, inclusive));
+                assertSameBoundCheck(() -> expectedView.descendingMap().headMap(bound, inclusive),
+                        () -> view.descendingMap().headMap(bound, inclusive));
+                assertSameBoundCheck(() -> expectedView.descendingMap().tailMap(bound, inclusive),
+                        () -> view.descendingMap().tailMap(bound, inclusive));
+            }
+        }
+    }
+
+    // Either both views are created and equal, or both are rejected
+    private static void assertSameBoundCheck(Supplier<NavigableMap<Integer, Integer>> expected,
+            Supplier<NavigableMap<Integer, Integer>> actual) {
+        NavigableMap<Integer, Integer> expectedView;
+        try {
+            expectedView = expected.get();
+        } catch (IllegalArgumentException e) {
+            try {
+                actual.get();
+                fail("The view should have been rejected");
+            } catch (IllegalArgumentException expectedException) {
+                // like TreeMap
+            }
+            return;
+        }
+        assertViewsEqual(expectedView, actual.get());
+    }
+
+    private static void assertViewsEqual(NavigableMap<Integer, Integer> expected, NavigableMap<Integer, Integer> actual) {
+        assertEquals(expected.size(), actual.size());
+        Iterator<Map.Entry<Integer, Integer>> expectedIt = expected.entrySet().iterator();
+        Iterator<Map.Entry<Integer, Integer>> actualIt = actual.entrySet().iterator();
+        while (expectedIt.hasNext()) {
+            assertEquals(expectedIt.next(), actualIt.next());
+        }
+        assertFalse(actualIt.hasNext());
+        assertEquals(expected.firstEntry(), actual.firstEntry());
+        assertEquals(expected.lastEntry(), actual.lastEntry());
+        assertEquals(expected.descendingMap().firstEntry(), actual.descendingMap().firstEntry());
+        for (int key = -1; key <= 1001; key += 7) {
+            assertEquals(expected.get(key), actual.get(key));
+            assertEquals(expected.floorKey(key), actual.floorKey(key));
+            assertEquals(expected.ceilingKey(key), actual.ceilingKey(key));
+            assertEquals(expected.lowerKey(key), actual.lowerKey(key));
+            assertEquals(expected.higherKey(key), actual.higherKey(key));
+        }
+    }
+
+    // Checks the order, the heights and the balance, returns the height
+    private static int assertValidAVL(AVLTreeMap.TreeEntry<Integer, Integer> node) {
+        if (node == null) {
+            return 0;
+        }
+        if (node.leftChild != null) {
+            assertSame(node, node.leftChild.parent);
+            assertTrue(node.leftChild.key < node.key);
+        }
+        if (node.rightChild != null) {
+            assertSame(node, node.rightChild.parent);
+            assertTrue(node.rightChild.key > node.key);
+        }
+        int leftHeight = assertValidAVL(node.leftChild);
+        int rightHeight = assertValidAVL(node.rightChild);
+        assertTrue(Math.abs(leftHeight - rightHeight) <= 1);
+        assertEquals(Math.max(leftHeight, rightHeight) + 1, node.height);
+        return node.height;
+    }
+}
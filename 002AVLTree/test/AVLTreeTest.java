@@ -1,7 +1,12 @@
 
 import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Deque;
+import java.util.List;
+import java.util.Map;
 import java.util.Random;
+import java.util.TreeMap;
 import org.junit.Test;
 import static org.junit.Assert.*;
 
@@ -171,6 +176,309 @@ public class AVLTreeTest {
         assertNull(avl.root);
     }
     
+    @Test
+    public void testHeightsAreCorrectAfterRandomOperations() {
+        Random random = new Random(21);
+        AVLTree<Integer> avl = new AVLTree<Integer>();
+        for (int i = 0; i < 100_000; i++) {
+            int value = random.nextInt(5000);
+            if (random.nextInt(3) == 0) {
+                avl.deleteNode(value);
+            } else {
+                avl.insertNode(value);
+            }
+        }
+        assertValidHeights(avl.root);
+    }
+    
+    @Test
+    public void testInsertDoesAtMostOneRotation() {
+        AVLTree<Integer> avl = new AVLTree<Integer>();
+        for (int i = 0; i < 10_000; i++) {
+            long rotationsBefore = avl.getRotationCount();
+            avl.insertNode(rand.nextInt());
+            assertTrue(avl.getRotationCount() - rotationsBefore <= 1);
+        }
+    }
+    
+    @Test
+    public void testCounters() {
+        AVLTree<Integer> avl = new AVLTree<Integer>();
+        // ascending values need only right-right rotations
+        for (int i = 0; i < 1000; i++) {
+            avl.insertNode(i);
+        }
+        assertEquals(1000, avl.getOperationCount());
+        assertTrue(avl.getRightRightRotations() > 0);
+        assertEquals(0, avl.getLeftLeftRotations() + avl.getLeftRightRotations() + avl.getRightLeftRotations());
+        assertTrue(avl.getHeightUpdates() > 0);
+        
+        avl.resetCounters();
+        for (int i = 0; i < 1000; i++) {
+            avl.insertNode(rand.nextInt());
+        }
+        // the restructuring per insert is amortized constant
+        assertTrue(avl.getRotationCount() < 1000);
+        assertTrue(avl.getHeightUpdates() < 10 * 1000);
+        assertTrue(avl.getNodesVisited() > 1000);
+        
+        avl.resetCounters();
+        assertEquals(0, avl.getOperationCount());
+        assertEquals(0, avl.getNodesVisited());
+        assertEquals(0, avl.getRotationCount());
+    }
+    
+    @Test
+    public void testMultisetKeepsOneNodePerValue() {
+        AVLTree<Integer> avl = new AVLTree<Integer>(true);
+        for (int i = 0; i < 1000; i++) {
+            avl.insertNode(i % 10);
+        }
+        assertTrue(avl.isMultiset());
+        assertEquals(1000, avl.getSize());
+        assertEquals(100, avl.count(3));
+        assertEquals(0, avl.count(10));
+        assertEquals(4, avl.root.height);
+        assertValidHeights(avl.root);
+    }
+    
+    @Test
+    public void testMultisetDeleteOneAndDeleteAll() {
+        AVLTree<Integer> avl = new AVLTree<Integer>(true);
+        for (int i = 0; i < 100; i++) {
+            avl.insertNode(i % 10);
+        }
+        assertTrue(avl.deleteOne(5));
+        avl.deleteNode(5);
+        assertEquals(8, avl.count(5));
+        assertEquals(98, avl.getSize());
+        assertEquals(8, avl.deleteAll(5));
+        assertEquals(0, avl.count(5));
+        assertNull(avl.findNode(5));
+        assertFalse(avl.deleteOne(5));
+        assertEquals(0, avl.deleteAll(5));
+        assertEquals(90, avl.getSize());
+        assertValidHeights(avl.root);
+    }
+    
+    @Test
+    public void testMultisetMatchesNormalMode() {
+        Random random = new Random(8);
+        AVLTree<Integer> multiset = new AVLTree<Integer>(true);
+        AVLTree<Integer> normal = new AVLTree<Integer>();
+        for (int i = 0; i < 50_000; i++) {
+            int value = random.nextInt(200);
+            int operation = random.nextInt(10);
+            if (operation == 0) {
+                assertEquals(normal.deleteAll(value), multiset.deleteAll(value));
+            } else if (operation < 4) {
+                assertEquals(normal.deleteOne(value), multiset.deleteOne(value));
+            } else {
+                normal.insertNode(value);
+                multiset.insertNode(value);
+            }
+        }
+        assertEquals(normal.getSize(), multiset.getSize());
+        for (int value = 0; value < 200; value++) {
+            assertEquals(normal.count(value), multiset.count(value));
+        }
+        assertValidHeights(normal.root);
+        assertValidHeights(multiset.root);
+    }
+    
+    @Test
+    public void testFromSorted() {
+        Integer[] values = new Integer[1000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = i / 2;
+        }
+        AVLTree<Integer> avl = AVLTree.fromSorted(values);
+        assertEquals(1000, avl.getSize());
+        assertEquals(10, avl.root.height);
+        assertValidHeights(avl.root);
+        assertEquals(2, avl.count(7));
+        avl.insertNode(-1);
+        avl.deleteNode(250);
+        assertNotNull(avl.findNode(-1));
+        assertEquals(1, avl.count(250));
+        assertValidHeights(avl.root);
+        
+        AVLTree<Integer> multiset = AVLTree.fromSorted(Arrays.asList(values).iterator(), true);
+        assertEquals(1000, multiset.getSize());
+        assertEquals(9, multiset.root.height);
+        assertEquals(2, multiset.count(7));
+        assertValidHeights(multiset.root);
+        
+        assertNull(AVLTree.fromSorted(new Integer[0]).root);
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void testFromSortedWithUnsortedValues() {
+        AVLTree.fromSorted(new Integer[] {1, 3, 2});
+    }
+    
+    @Test
+    public void testRebuild() {
+        AVLTree<Integer> avl = new AVLTree<Integer>();
+        for (int i = 0; i < 10_000; i++) {
+            avl.insertNode(rand.nextInt(1000));
+        }
+        avl.rebuild();
+        assertEquals(10_000, avl.getSize());
+        assertEquals(14, avl.root.height);
+        assertValidHeights(avl.root);
+        for (int i = 0; i < 1000; i++) {
+            avl.deleteNode(i);
+        }
+        assertEquals(9000, avl.getSize());
+        assertValidHeights(avl.root);
+        
+        AVLTree<Integer> empty = new AVLTree<Integer>();
+        empty.rebuild();
+        assertNull(empty.root);
+    }
+    
+    @Test
+    public void testRankAndSelect() {
+        AVLTree<Integer> avl = new AVLTree<Integer>();
+        for (int i = 0; i < 100; i++) {
+            avl.insertNode(i * 2);
+        }
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, avl.rank(i * 2));
+            assertEquals(i + 1, avl.rank(i * 2 + 1));
+            assertEquals(i * 2, (int) avl.select(i));
+        }
+        assertEquals(0, avl.rank(-5));
+        assertEquals(11, avl.countBetween(10, 30));
+        assertEquals(0, avl.countBetween(30, 10));
+        assertEquals(100, avl.countBetween(-1, 1000));
+        assertEquals(98, (int) avl.percentile(50));
+        assertEquals(196, (int) avl.percentile(99));
+        assertEquals(198, (int) avl.percentile(100));
+        assertEquals(0, (int) avl.percentile(0.1));
+    }
+    
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testSelectOutOfRange() {
+        AVLTree<Integer> avl = new AVLTree<Integer>();
+        avl.insertNode(1);
+        avl.select(1);
+    }
+    
+    @Test
+    public void testOrderStatisticsAfterRandomOperations() {
+        Random random = new Random(17);
+        for (boolean multiset : new boolean[] {false, true}) {
+            AVLTree<Integer> avl = new AVLTree<Integer>(multiset);
+            TreeMap<Integer, Integer> counts = new TreeMap<Integer, Integer>();
+            for (int i = 0; i < 30_000; i++) {
+                int value = random.nextInt(500);
+                int operation = random.nextInt(10);
+                if (operation == 0) {
+                    avl.deleteAll(value);
+                    counts.remove(value);
+                } else if (operation < 4) {
+                    if (avl.deleteOne(value)) {
+                        counts.merge(value, -1, Integer::sum);
+                        counts.remove(value, 0);
+                    }
+                } else {
+                    avl.insertNode(value);
+                    counts.merge(value, 1, Integer::sum);
+                }
+            }
+            assertValidSizes(avl.root);
+            avl.rebuild();
+            assertValidSizes(avl.root);
+            
+            List<Integer> sorted = new ArrayList<Integer>();
+            for (Map.Entry<Integer, Integer> entry : counts.entrySet()) {
+                for (int i = 0; i < entry.getValue(); i++) {
+                    sorted.add(entry.getKey());
+                }
+            }
+            assertEquals(sorted.size(), avl.getSize());
+            for (int i = 0; i < sorted.size(); i++) {
+                assertEquals(sorted.get(i), avl.select(i));
+            }
+            for (int value = -1; value <= 500; value++) {
+                int less = counts.headMap(value, false).values().stream().mapToInt(Integer::intValue).sum();
+                assertEquals(less, avl.rank(value));
+                int between = counts.subMap(value, true, value + 50, true).values().stream().mapToInt(Integer::intValue).sum();
+                assertEquals(between, avl.countBetween(value, value + 50));
+            }
+        }
+    }
+    
+    @Test
+    public void testFingerMatchesInsertFromRoot() {
+        Random random = new Random(19);
+        for (boolean multiset : new boolean[] {false, true}) {
+            AVLTree<Integer> avl = new AVLTree<Integer>(multiset);
+            AVLTree<Integer>.Finger finger = avl.finger();
+            TreeMap<Integer, Integer> counts = new TreeMap<Integer, Integer>();
+            for (int i = 0; i < 30_000; i++) {
+                // mostly ascending with jitter, some far jumps and deletes
+                int value = (random.nextInt(20) == 0) ? random.nextInt(i + 1) : i + random.nextInt(50) - 25;
+                if (random.nextInt(5) == 0) {
+                    if (avl.deleteOne(value)) {
+                        counts.merge(value, -1, Integer::sum);
+                        counts.remove(value, 0);
+                    }
+                } else {
+                    finger.insertNode(value);
+                    counts.merge(value, 1, Integer::sum);
+                }
+                if (i % 7 == 0) {
+                    assertEquals(counts.containsKey(value), finger.findNode(value) != null);
+                }
+            }
+            assertValidHeights(avl.root);
+            assertValidSizes(avl.root);
+            assertEquals(counts.values().stream().mapToInt(Integer::intValue).sum(), avl.getSize());
+            for (int value = -30; value <= 30_030; value++) {
+                assertEquals(counts.getOrDefault(value, 0).intValue(), avl.count(value));
+            }
+        }
+    }
+    
+    @Test
+    public void testFingerVisitsFewNodesOnMonotoneValues() {
+        AVLTree<Integer> fromRoot = new AVLTree<Integer>();
+        AVLTree<Integer> avl = new AVLTree<Integer>();
+        AVLTree<Integer>.Finger finger = avl.finger();
+        for (int i = 0; i < 100_000; i++) {
+            fromRoot.insertNode(i);
+            finger.insertNode(i);
+        }
+        // the search from the root visits about log2(100000) = 17 nodes, the sizes are
+        // still updated up to the root in both cases
+        assertTrue(avl.getNodesVisited() < fromRoot.getNodesVisited() * 6 / 10);
+        avl.resetCounters();
+        for (int i = 0; i < 100_000; i++) {
+            assertEquals(i, (int) finger.findNode(i).value);
+        }
+        assertTrue(avl.getNodesVisited() < 8L * 100_000);
+        assertNull(finger.findNode(-1));
+        assertNull(finger.findNode(100_000));
+    }
+    
+    @Test
+    public void testFingerAfterItsNodeIsDeleted() {
+        AVLTree<Integer> avl = new AVLTree<Integer>();
+        AVLTree<Integer>.Finger finger = avl.finger();
+        finger.insertNode(5);
+        avl.deleteNode(5);
+        finger.insertNode(3);
+        finger.insertNode(7);
+        avl.deleteNode(7);
+        assertNotNull(finger.findNode(3));
+        assertNull(finger.findNode(7));
+        assertEquals(1, avl.getSize());
+        assertSame(avl.root, finger.findNode(3));
+    }
+    
     @Test
     public void testBalancingHeight() {
         
@@ -212,7 +520,30 @@ public class AVLTreeTest {
                 avl.root.height >= log2n);
     }
     
+    // Returns the number of values in the subtree
+    private static int assertValidSizes(Node<Integer> node){
+        if(node == null){
+            return 0;
+        }
+        int count = (node instanceof AVLTree.CountedNode) ? ((AVLTree.CountedNode<Integer>) node).count : 1;
+        int size = assertValidSizes(node.leftChild) + count + assertValidSizes(node.rightChild);
+        assertEquals(size, node.size);
+        return size;
+    }
+    
+    // Returns the height of the subtree
+    private static int assertValidHeights(Node<Integer> node){
+        if(node == null){
+            return 0;
+        }
+        int leftHeight = assertValidHeights(node.leftChild);
+        int rightHeight = assertValidHeights(node.rightChild);
+        assertTrue(Math.abs(leftHeight - rightHeight) <= 1);
+        assertEquals(Math.max(leftHeight, rightHeight) + 1, node.height);
+        return node.height;
+    }
+    
     private double log2(double x){
         return Math.log10(x)/Math.log10(2);
     }
-}
\ No newline at end of file
+}
\ No newline at end of file
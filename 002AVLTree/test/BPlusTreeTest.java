@@ -0,0 +1,178 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/*
+ * BPlusTree must behave like AVLTree<Integer> and keep the pages full enough and the leaves linked.
+ */
+
+public class BPlusTreeTest {
+
+    @Test
+    public void testEmptyTree() {
+        BPlusTree tree = new BPlusTree();
+        assertEquals(0, tree.getSize());
+        assertEquals(0, tree.getHeight());
+        assertNull(tree.findNode(5));
+        tree.deleteNode(5);
+        assertEquals(0, tree.countBetween(Integer.MIN_VALUE, Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void testInsertFindDelete() {
+        BPlusTree tree = new BPlusTree(4);
+        for (int i = 0; i < 1000; i++) {
+            tree.insertNode(i * 3);
+        }
+        assertEquals(1000, tree.getSize());
+        assertEquals(Integer.valueOf(300), tree.findNode(300).value);
+        assertNull(tree.findNode(301));
+        for (int i = 0; i < 1000; i++) {
+            tree.deleteNode(i * 3);
+            assertNull(tree.findNode(i * 3));
+        }
+        assertEquals(0, tree.getSize());
+        assertEquals(0, tree.getHeight());
+    }
+
+    @Test
+    public void testRepeatingValues() {
+        BPlusTree tree = new BPlusTree();
+        tree.insertNode(5);
+        tree.insertNode(5);
+        tree.insertNode(7);
+        assertEquals(3, tree.getSize());
+        assertEquals(2, tree.count(5));
+        tree.deleteNode(5);
+        assertEquals(1, tree.count(5));
+        assertNotNull(tree.findNode(5));
+        tree.deleteNode(5);
+        assertNull(tree.findNode(5));
+        assertEquals(1, tree.getSize());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTooSmallCapacity() {
+        new BPlusTree(3);
+    }
+
+    @Test
+    public void testRandomOperationsMatchAVLTree() {
+        Random random = new Random(23);
+        for (int capacity : new int[] {4, 5, 16, BPlusTree.DEFAULT_CAPACITY}) {
+            BPlusTree tree = new BPlusTree(capacity);
+            AVLTree<Integer> expected = new AVLTree<Integer>();
+            TreeMap<Integer, Integer> counts = new TreeMap<Integer, Integer>();
+            for (int i = 0; i < 60_000; i++) {
+                int value = random.nextInt(4000) - 2000;
+                if (random.nextInt(5) < 2) {
+                    tree.deleteNode(value);
+                    expected.deleteNode(value);
+                    counts.computeIfPresent(value, (key, count) -> (count > 1) ? count - 1 : null);
+                } else {
+                    tree.insertNode(value);
+                    expected.insertNode(value);
+                    counts.merge(value, 1, Integer::sum);
+                }
+            }
+            assertEquals(expected.getSize(), tree.getSize());
+            assertValidTree(tree);
+            for (int value = -2001; value <= 2001; value++) {
+                assertEquals(expected.findNode(value) != null, tree.findNode(value) != null);
+                assertEquals(counts.getOrDefault(value, 0).intValue(), tree.count(value));
+            }
+            // empty the tree again
+            for (Map.Entry<Integer, Integer> entry : counts.entrySet()) {
+                for (int i = 0; i < entry.getValue(); i++) {
+                    tree.deleteNode(entry.getKey());
+                }
+            }
+            assertEquals(0, tree.getSize());
+            assertNull(tree.rootPage);
+        }
+    }
+
+    @Test
+    public void testRangeScan() {
+        BPlusTree tree = new BPlusTree(4);
+        for (int i = 0; i < 500; i++) {
+            tree.insertNode(i * 2);
+        }
+        tree.insertNode(100);
+        List<Integer> values = new ArrayList<Integer>();
+        tree.forEachBetween(95, 105, values::add);
+        assertEquals(Arrays.asList(96, 98, 100, 100, 102, 104), values);
+        assertEquals(11, tree.countBetween(-5, 21));
+        assertEquals(501, tree.countBetween(Integer.MIN_VALUE, Integer.MAX_VALUE));
+        assertEquals(0, tree.countBetween(1001, 2000));
+        assertEquals(0, tree.countBetween(10, 5));
+    }
+
+    @Test
+    public void testFewerLevelsThanAVLTree() {
+        BPlusTree tree = new BPlusTree();
+        AVLTree<Integer> avl = new AVLTree<Integer>();
+        Random random = new Random(29);
+        for (int i = 0; i < 100_000; i++) {
+            int value = random.nextInt();
+            tree.insertNode(value);
+            avl.insertNode(value);
+        }
+        // 32..64 keys in a page
+        assertTrue(tree.getHeight() <= 4);
+        assertTrue(avl.root.height >= 17);
+    }
+
+    private static void assertValidTree(BPlusTree tree) {
+        int sum = 0;
+        int leafDepth = assertValidPage(tree, tree.rootPage, Long.MIN_VALUE, Long.MAX_VALUE, 1);
+        assertEquals(tree.getHeight(), leafDepth);
+        // the linked leaves hold all the values in order
+        long previous = Long.MIN_VALUE;
+        for (BPlusTree.Leaf leaf = tree.firstLeaf; leaf != null; leaf = leaf.next) {
+            for (int i = 0; i < leaf.keyCount; i++) {
+                assertTrue(leaf.keys[i] > previous);
+                previous = leaf.keys[i];
+                sum += leaf.counts[i];
+            }
+        }
+        assertEquals(tree.getSize(), sum);
+    }
+
+    // Checks the order, the bounds and the fill of the keys, returns the depth of the leaves
+    private static int assertValidPage(BPlusTree tree, BPlusTree.Page page, long low, long high, int depth) {
+        assertTrue(page.keyCount <= tree.capacity);
+        if (page != tree.rootPage) {
+            assertTrue(page.keyCount >= tree.minKeys);
+        }
+        for (int i = 0; i < page.keyCount; i++) {
+            assertTrue(page.keys[i] >= low && page.keys[i] < high);
+            if (i > 0) {
+                assertTrue(page.keys[i - 1] < page.keys[i]);
+            }
+        }
+        if (page instanceof BPlusTree.Leaf) {
+            for (int i = 0; i < page.keyCount; i++) {
+                assertTrue(((BPlusTree.Leaf) page).counts[i] > 0);
+            }
+            return depth;
+        }
+        BPlusTree.Inner inner = (BPlusTree.Inner) page;
+        int leafDepth = -1;
+        for (int i = 0; i <= inner.keyCount; i++) {
+            long childLow = (i == 0) ? low : inner.keys[i - 1];
+            long childHigh = (i == inner.keyCount) ? high : inner.keys[i];
+            int childDepth = assertValidPage(tree, inner.children[i], childLow, childHigh, depth + 1);
+            if (leafDepth != -1) {
+                assertEquals(leafDepth, childDepth);
+            }
+            leafDepth = childDepth;
+        }
+        return leafDepth;
+    }
+}
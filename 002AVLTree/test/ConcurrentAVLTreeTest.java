@@ -0,0 +1,168 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/*
+ * ConcurrentAVLTree must behave like a set and must be an AVL tree when no writers are running.
+ */
+
+public class ConcurrentAVLTreeTest {
+
+    @Test
+    public void testSingleThreadedOperations() {
+        ConcurrentAVLTree<Integer> avl = new ConcurrentAVLTree<Integer>();
+        assertEquals(0, avl.getSize());
+        assertFalse(avl.contains(5));
+        for (int i = 0; i < 100; i++) {
+            assertTrue(avl.insertNode(i));
+        }
+        assertFalse(avl.insertNode(5));
+        assertTrue(avl.deleteNode(50));
+        assertFalse(avl.deleteNode(50));
+        assertEquals(99, avl.getSize());
+        assertTrue(avl.contains(49));
+        assertFalse(avl.contains(50));
+        assertTrue(avl.insertNode(50));
+        assertTrue(avl.contains(50));
+        assertValidAVL(avl.rootHolder.rightChild, avl.rootHolder);
+    }
+
+    @Test
+    public void testRandomOperationsMatchTreeSet() {
+        Random random = new Random(3);
+        ConcurrentAVLTree<Integer> avl = new ConcurrentAVLTree<Integer>();
+        TreeSet<Integer> expected = new TreeSet<Integer>();
+        for (int i = 0; i < 100_000; i++) {
+            int value = random.nextInt(5000);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(value), avl.deleteNode(value));
+            } else {
+                assertEquals(expected.add(value), avl.insertNode(value));
+            }
+        }
+        assertEquals(expected.size(), avl.getSize());
+        for (int value = 0; value < 5000; value++) {
+            assertEquals(expected.contains(value), avl.contains(value));
+        }
+        assertValidAVL(avl.rootHolder.rightChild, avl.rootHolder);
+        // routing nodes with two children stay in the tree, so it may have a few more nodes than values
+        assertTrue(avl.getHeight() <= 1.44 * Math.log(2 * expected.size() + 2) / Math.log(2));
+    }
+
+    @Test
+    public void testConcurrentWritersOnDisjointValues() throws InterruptedException {
+        final ConcurrentAVLTree<Integer> avl = new ConcurrentAVLTree<Integer>();
+        final int threadCount = 4;
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int t = 0; t < threadCount; t++) {
+            final int first = t;
+            threads.add(new Thread(() -> {
+                for (int i = first; i < 200_000; i += threadCount) {
+                    avl.insertNode(i);
+                }
+                for (int i = first; i < 200_000; i += 2 * threadCount) {
+                    avl.deleteNode(i);
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(100_000, avl.getSize());
+        for (int i = 0; i < 200_000; i++) {
+            assertEquals(i % (2 * threadCount) >= threadCount, avl.contains(i));
+        }
+        assertValidAVL(avl.rootHolder.rightChild, avl.rootHolder);
+    }
+
+    @Test
+    public void testReadersAlwaysSeeTheStableValuesWhileWritersRun() throws InterruptedException {
+        final ConcurrentAVLTree<Integer> avl = new ConcurrentAVLTree<Integer>();
+        // even values are never touched, odd values are inserted and deleted all the time
+        for (int i = 0; i < 20_000; i += 2) {
+            avl.insertNode(i);
+        }
+        final AtomicBoolean stop = new AtomicBoolean(false);
+        final AtomicInteger failures = new AtomicInteger(0);
+        List<Thread> writers = new ArrayList<Thread>();
+        List<Thread> readers = new ArrayList<Thread>();
+        for (int w = 0; w < 2; w++) {
+            final int writer = w;
+            writers.add(new Thread(() -> {
+                Random random = new Random(writer);
+                while (!stop.get()) {
+                    int value = random.nextInt(10_000) * 2 + 1;
+                    if (random.nextBoolean()) {
+                        avl.insertNode(value);
+                    } else {
+                        avl.deleteNode(value);
+                    }
+                }
+            }));
+        }
+        for (int r = 0; r < 4; r++) {
+            final int reader = r;
+            readers.add(new Thread(() -> {
+                Random random = new Random(100 + reader);
+                for (int i = 0; i < 200_000; i++) {
+                    int value = random.nextInt(10_000) * 2;
+                    if (!avl.contains(value) || avl.contains(value - 20_001)) {
+                        failures.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        for (Thread thread : writers) {
+            thread.start();
+        }
+        for (Thread thread : readers) {
+            thread.start();
+        }
+        for (Thread thread : readers) {
+            thread.join();
+        }
+        stop.set(true);
+        for (Thread thread : writers) {
+            thread.join();
+        }
+        assertEquals(0, failures.get());
+        assertValidAVL(avl.rootHolder.rightChild, avl.rootHolder);
+        int odd = 0;
+        for (int i = 1; i < 20_000; i += 2) {
+            if (avl.contains(i)) {
+                odd++;
+            }
+        }
+        assertEquals(10_000 + odd, avl.getSize());
+    }
+
+    // Checks the links, the heights and the balance, returns the height
+    private static int assertValidAVL(ConcurrentAVLTree.Node<Integer> node, ConcurrentAVLTree.Node<Integer> parent) {
+        if (node == null) {
+            return 0;
+        }
+        assertSame(parent, node.parent);
+        assertTrue(node.version != ConcurrentAVLTree.UNLINKED);
+        // the routing nodes with less than two children must have been unlinked
+        assertTrue(node.present || (node.leftChild != null && node.rightChild != null));
+        if (node.leftChild != null) {
+            assertTrue(node.leftChild.value < node.value);
+        }
+        if (node.rightChild != null) {
+            assertTrue(node.rightChild.value > node.value);
+        }
+        int leftHeight = assertValidAVL(node.leftChild, node);
+        int rightHeight = assertValidAVL(node.rightChild, node);
+        assertTrue(Math.abs(leftHeight - rightHeight) <= 1);
+        assertEquals(Math.max(leftHeight, rightHeight) + 1, node.height);
+        return node.height;
+    }
+}
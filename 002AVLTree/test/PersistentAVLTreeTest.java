@@ -0,0 +1,173 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/*
+ * Every version of PersistentAVLTree must stay an AVL tree with the values it had
+ * when it was created.
+ */
+
+public class PersistentAVLTreeTest {
+
+    @Test
+    public void testEmptyTree() {
+        PersistentAVLTree<Integer> avl = new PersistentAVLTree<Integer>();
+        assertEquals(0, avl.getSize());
+        assertFalse(avl.contains(5));
+        assertFalse(avl.iterator().hasNext());
+        avl.deleteNode(5);
+        assertEquals(0, avl.getLastAllocationCount());
+    }
+
+    @Test
+    public void testInsertAndDelete() {
+        PersistentAVLTree<Integer> avl = new PersistentAVLTree<Integer>();
+        for (int i = 0; i < 100; i++) {
+            avl.insertNode(i);
+        }
+        avl.insertNode(5);
+        assertEquals(101, avl.getSize());
+        for (int i = 0; i < 50; i++) {
+            avl.deleteNode(i);
+        }
+        avl.deleteNode(1000);
+        assertEquals(51, avl.getSize());
+        assertTrue(avl.contains(5));
+        avl.deleteNode(5);
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i >= 50, avl.contains(i));
+        }
+        assertValidAVL(avl.root);
+    }
+
+    @Test
+    public void testSnapshotDoesNotSeeLaterUpdates() {
+        PersistentAVLTree<Integer> avl = new PersistentAVLTree<Integer>();
+        for (int i = 0; i < 100; i++) {
+            avl.insertNode(i);
+        }
+        PersistentAVLTree<Integer> snapshot = avl.snapshot();
+        for (int i = 0; i < 100; i += 2) {
+            avl.deleteNode(i);
+        }
+        avl.insertNode(500);
+
+        assertEquals(100, snapshot.getSize());
+        assertEquals(51, avl.getSize());
+        for (int i = 0; i < 100; i++) {
+            assertTrue(snapshot.contains(i));
+            assertEquals(i % 2 == 1, avl.contains(i));
+        }
+        assertFalse(snapshot.contains(500));
+        int expected = 0;
+        for (int value : snapshot) {
+            assertEquals(expected++, value);
+        }
+        assertEquals(100, expected);
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testSnapshotIsReadOnly() {
+        PersistentAVLTree<Integer> avl = new PersistentAVLTree<Integer>();
+        avl.snapshot().insertNode(1);
+    }
+
+    @Test
+    public void testWithValueAndWithoutValueKeepTheOldVersion() {
+        PersistentAVLTree<Integer> first = new PersistentAVLTree<Integer>();
+        first.insertNode(1);
+        PersistentAVLTree<Integer> second = first.withValue(2);
+        PersistentAVLTree<Integer> third = second.withoutValue(1);
+        assertTrue(first.contains(1));
+        assertFalse(first.contains(2));
+        assertTrue(second.contains(1));
+        assertTrue(second.contains(2));
+        assertFalse(third.contains(1));
+        assertTrue(third.contains(2));
+    }
+
+    @Test
+    public void testUpdatesCopyOnlyAPath() {
+        PersistentAVLTree<Integer> avl = new PersistentAVLTree<Integer>();
+        for (int i = 0; i < 100_000; i++) {
+            avl.insertNode(i);
+            // the path and at most two more nodes for a double rotation
+            assertTrue(avl.getLastAllocationCount() <= avl.getHeight() + 2);
+        }
+        for (int i = 0; i < 100_000; i += 3) {
+            avl.deleteNode(i);
+            // a rotation can be needed at every level after a delete
+            assertTrue(avl.getLastAllocationCount() <= 3 * avl.getHeight());
+        }
+        assertValidAVL(avl.root);
+    }
+
+    @Test
+    public void testOldVersionsMatchAVLTree() {
+        Random random = new Random(31);
+        PersistentAVLTree<Integer> avl = new PersistentAVLTree<Integer>();
+        AVLTree<Integer> expected = new AVLTree<Integer>();
+        List<PersistentAVLTree<Integer>> versions = new ArrayList<PersistentAVLTree<Integer>>();
+        List<List<Integer>> versionValues = new ArrayList<List<Integer>>();
+        for (int i = 0; i < 50_000; i++) {
+            int value = random.nextInt(1000);
+            if (random.nextInt(3) == 0) {
+                avl.deleteNode(value);
+                expected.deleteNode(value);
+            } else {
+                avl.insertNode(value);
+                expected.insertNode(value);
+            }
+            assertEquals(expected.getSize(), avl.getSize());
+            if (i % 5000 == 0) {
+                versions.add(avl.snapshot());
+                versionValues.add(sortedValues(avl));
+            }
+        }
+        for (int value = -1; value <= 1000; value++) {
+            assertEquals(expected.findNode(value) != null, avl.contains(value));
+        }
+        // the old versions are unchanged and still balanced
+        for (int i = 0; i < versions.size(); i++) {
+            assertValidAVL(versions.get(i).root);
+            List<Integer> values = new ArrayList<Integer>();
+            for (int value : versions.get(i)) {
+                values.add(value);
+            }
+            assertEquals(versionValues.get(i), values);
+        }
+    }
+
+    private static List<Integer> sortedValues(PersistentAVLTree<Integer> avl) {
+        List<Integer> values = new ArrayList<Integer>();
+        for (int value : avl) {
+            values.add(value);
+        }
+        List<Integer> sorted = new ArrayList<Integer>(values);
+        Collections.sort(sorted);
+        assertEquals(sorted, values);
+        return values;
+    }
+
+    // Checks the order, the heights, the sizes and the balance, returns the height
+    private static int assertValidAVL(PersistentAVLTree.Node<Integer> node) {
+        if (node == null) {
+            return 0;
+        }
+        if (node.leftChild != null) {
+            assertTrue(node.leftChild.value <= node.value);
+        }
+        if (node.rightChild != null) {
+            assertTrue(node.rightChild.value >= node.value);
+        }
+        int leftHeight = assertValidAVL(node.leftChild);
+        int rightHeight = assertValidAVL(node.rightChild);
+        assertTrue(Math.abs(leftHeight - rightHeight) <= 1);
+        assertEquals(Math.max(leftHeight, rightHeight) + 1, node.height);
+        assertEquals(PersistentAVLTree.size(node.leftChild) + 1 + PersistentAVLTree.size(node.rightChild), node.size);
+        return node.height;
+    }
+}
@@ -0,0 +1,89 @@
+import java.util.Random;
+import java.util.TreeMap;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/*
+ * IntAVLTree and LongAVLTree must behave exactly like AVLTree.
+ */
+ 
+public class PrimitiveAVLTreeTest {
+    
+    @Test
+    public void testEmptyTreesSizeIsZero() {
+        assertEquals(0, new IntAVLTree().getSize());
+        assertEquals(0, new LongAVLTree().getSize());
+    }
+    
+    @Test
+    public void testInsertRepeatingElement() {
+        IntAVLTree avl = new IntAVLTree();
+        avl.insertNode(5);
+        avl.insertNode(5);
+        assertEquals(2, avl.getSize());
+        assertEquals(5, avl.root.value);
+        assertEquals(5, avl.root.leftChild.value);
+    }
+    
+    @Test
+    public void testLongValuesOutsideTheIntRange() {
+        LongAVLTree avl = new LongAVLTree();
+        avl.insertNode(Long.MAX_VALUE);
+        avl.insertNode(Long.MIN_VALUE);
+        avl.insertNode(1L << 40);
+        assertNotNull(avl.findNode(1L << 40));
+        assertNull(avl.findNode(0));
+        avl.deleteNode(Long.MAX_VALUE);
+        assertNull(avl.findNode(Long.MAX_VALUE));
+        assertEquals(2, avl.getSize());
+    }
+    
+    @Test
+    public void testRandomOperationsMatchAVLTree() {
+        Random random = new Random(77);
+        AVLTree<Integer> expected = new AVLTree<Integer>();
+        IntAVLTree intTree = new IntAVLTree();
+        LongAVLTree longTree = new LongAVLTree();
+        TreeMap<Integer, Integer> counts = new TreeMap<Integer, Integer>();
+        for (int i = 0; i < 50_000; i++) {
+            int value = random.nextInt(2000) - 1000;
+            if (random.nextInt(3) == 0) {
+                expected.deleteNode(value);
+                intTree.deleteNode(value);
+                longTree.deleteNode(value);
+            } else {
+                expected.insertNode(value);
+                intTree.insertNode(value);
+                longTree.insertNode(value);
+            }
+            assertEquals(expected.getSize(), intTree.getSize());
+            assertEquals(expected.getSize(), longTree.getSize());
+        }
+        for (int value = -1000; value < 1000; value++) {
+            assertEquals(expected.findNode(value) != null, intTree.findNode(value) != null);
+            assertEquals(expected.findNode(value) != null, longTree.findNode(value) != null);
+        }
+        assertEquals(expected.root.height, intTree.root.height);
+        assertEquals(expected.root.height, longTree.root.height);
+        assertEquals(intTree.getSize(), checkIntSubtree(intTree.root, null));
+    }
+    
+    // Checks the links, heights and the AVL property, returns the number of nodes
+    private static int checkIntSubtree(IntAVLTree.Node node, IntAVLTree.Node parent) {
+        if (node == null) {
+            return 0;
+        }
+        assertSame(parent, node.parent);
+        int leftHeight = (node.leftChild != null) ? node.leftChild.height : 0;
+        int rightHeight = (node.rightChild != null) ? node.rightChild.height : 0;
+        assertEquals(Math.max(leftHeight, rightHeight) + 1, node.height);
+        assertTrue(Math.abs(leftHeight - rightHeight) <= 1);
+        if (node.leftChild != null) {
+            assertTrue(node.leftChild.value <= node.value);
+        }
+        if (node.rightChild != null) {
+            assertTrue(node.rightChild.value >= node.value);
+        }
+        return checkIntSubtree(node.leftChild, node) + 1 + checkIntSubtree(node.rightChild, node);
+    }
+}
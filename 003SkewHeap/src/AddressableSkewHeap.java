@@ -0,0 +1,249 @@
+/**
+ * Skew heap whose elements can be changed after they are added - add() returns
+ * the node of the element as a handle, which can then be given to decreaseKey()
+ * or delete(). The nodes have parent pointers, so such an element is cut out of
+ * the tree with its subtree and the subtree is merged back with the root, in
+ * amortized O(log n) like the other merges.
+ */
+
+public class AddressableSkewHeap {
+
+    public static final String REMOVED_HANDLE_EXCEPTION_MESSAGE =
+            "Error! The element of this handle is not in the heap anymore!";
+
+    /**
+     * Reference to the root for the current skew heap
+     */
+    private Node root;
+    private int size;
+
+    /**
+     * Node in the heap, it is the handle of its element
+     */
+    public static class Node {
+
+        int value; // data value
+        Node left; // left subtree
+        Node right; // right subtree
+        Node parent;
+        boolean removed; // the element was removed from the heap
+
+        Node(int value) {
+            this.value = value;
+            this.left = null;
+            this.right = null;
+            this.parent = null;
+            this.removed = false;
+        }
+
+        public int getValue() {
+            return value;
+        }
+    }
+
+    public AddressableSkewHeap() {
+        this.size = 0;
+        this.root = null;
+    }
+
+    /**
+     * Method that adds a node with data provided by @value in the current skew
+     * heap.
+     *
+     * @param value: value to be added in the heap
+     *
+     * @returns the handle of the new element
+     */
+    public Node add(int value) {
+        Node newNode = new Node(value);
+        root = merge(root, newNode);
+        ++size;
+        return newNode;
+    }
+
+    /**
+     * This method removes and returns the smallest element in the current skew
+     * heap.
+     *
+     * @returns the removed element
+     *
+     * @throws Exception if there are no elements, but minimum was tried to be
+     * removed
+     */
+    public int removeMin() throws Exception {
+        if (root == null) {
+            // the same as SkewHeap, the specs demand it like this
+            throw new Exception(SkewHeap.EMPTY_HEAP_REMOVE_EXCEPTION_MESSAGE);
+        }
+        Node oldRoot = root;
+        root = mergeChildren(oldRoot);
+        markRemoved(oldRoot);
+        return oldRoot.value;
+    }
+
+    /**
+     * Decreases the value of the element of @handle to @newValue. If it becomes
+     * smaller than its parent, its subtree is cut and merged with the root.
+     *
+     * @throws IllegalArgumentException if @newValue is bigger than the current value
+     * or the element is not in the heap anymore
+     */
+    public void decreaseKey(Node handle, int newValue) {
+        checkHandle(handle);
+        if (newValue > handle.value) {
+            throw new IllegalArgumentException("The new value " + newValue
+                    + " is bigger than the current " + handle.value + "!");
+        }
+        handle.value = newValue;
+        if (handle.parent != null && newValue < handle.parent.value) {
+            cut(handle);
+            root = merge(root, handle);
+        }
+    }
+
+    /**
+     * Removes the element of @handle - its children are merged in its place
+     * and the result is merged with the root.
+     *
+     * @throws IllegalArgumentException if the element is not in the heap anymore
+     */
+    public void delete(Node handle) {
+        checkHandle(handle);
+        if (handle == root) {
+            root = mergeChildren(handle);
+        } else {
+            cut(handle);
+            root = merge(root, mergeChildren(handle));
+        }
+        markRemoved(handle);
+    }
+
+    /**
+     * Tests whether there are any elements in the current heap.
+     *
+     * @returns true, if there are any elements and false, otherwise
+     */
+    public boolean empty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /*
+     * Just for testing purposes
+     */
+    public Node getRoot() {
+        return root;
+    }
+
+    /**
+     * Method that merges the current skew heap with the given by
+     *
+     * @other. This method destructs the
+     * @other skew heap while merging it. The handles of the elements of
+     * @other stay valid in the current heap.
+     *
+     * @param other : reference to the skew heap data structure that will be
+     * merged with the current one
+     */
+    public void merge(AddressableSkewHeap other) {
+        if (other != null && other != this) {
+            root = merge(root, other.root);
+            size = size + other.size;
+            other.root = null;
+            other.size = 0;
+        }
+    }
+
+    private void checkHandle(Node handle) {
+        if (handle.removed) {
+            throw new IllegalArgumentException(REMOVED_HANDLE_EXCEPTION_MESSAGE);
+        }
+    }
+
+    private void markRemoved(Node node) {
+        node.removed = true;
+        node.left = null;
+        node.right = null;
+        node.parent = null;
+        --size;
+    }
+
+    // Unlinks node (which is not the root) with its subtree from its parent
+    private static void cut(Node node) {
+        if (node.parent.left == node) {
+            node.parent.left = null;
+        } else {
+            node.parent.right = null;
+        }
+        node.parent = null;
+    }
+
+    private Node mergeChildren(Node node) {
+        if (node.left != null) {
+            node.left.parent = null;
+        }
+        if (node.right != null) {
+            node.right.parent = null;
+        }
+        return merge(node.left, node.right);
+    }
+
+    /**
+     * The merge of SkewHeap, which also sets the parents of the nodes that are
+     * linked to the merged path. The roots must have no parents.
+     */
+    private Node merge(Node root1, Node root2) {
+        if (root1 == null) {
+            return root2;
+        }
+        if (root2 == null) {
+            return root1;
+        }
+
+        Node newRoot;
+        if (root1.value < root2.value) {
+            newRoot = root1;
+            // using root1 as "pointer" to current node in the tree with root = root1
+            root1 = root1.right;
+        } else {
+            newRoot = root2;
+            // using root2 as "pointer" to current node in the tree with root = root2
+            root2 = root2.right;
+        }
+        Node ptrNew = newRoot;
+
+        while (root1 != null && root2 != null) {
+            if (root1.value < root2.value) {
+                ptrNew.right = root1;
+                root1 = root1.right;
+            } else {
+                ptrNew.right = root2;
+                root2 = root2.right;
+            }
+            ptrNew.right.parent = ptrNew;
+            swapChildren(ptrNew);
+            // because we have swapped left and right children
+            ptrNew = ptrNew.left;
+        }
+
+        Node rest = (root1 != null) ? root1 : root2;
+        while (rest != null) {
+            ptrNew.right = rest;
+            rest.parent = ptrNew;
+            rest = rest.right;
+            swapChildren(ptrNew);
+            ptrNew = ptrNew.left;
+        }
+
+        return newRoot;
+    }
+
+    private void swapChildren(Node node) {
+        Node oldLeftChild = node.left;
+        node.left = node.right;
+        node.right = oldLeftChild;
+    }
+}
@@ -0,0 +1,227 @@
+import java.util.Arrays;
+
+/**
+ * Skew heap with the same operations as SkewHeap, but the nodes are slots in
+ * an int array instead of objects - a node is the index of its value in nodes,
+ * followed by its left and right children (the indices of their nodes, NIL for none),
+ * so the three fields of a node are in the same cache line. The slots freed by removeMin()
+ * go to a free list and are reused by add(), so once the array is big enough a
+ * queue with a steady number of elements does not allocate anything.
+ * A node takes 12 bytes, while a SkewHeap.Node takes 24 (with compressed references).
+ * The "indices" of the nodes are NODE_SIZE apart.
+ */
+
+public class ArraySkewHeap {
+
+    public static final int DEFAULT_CAPACITY = 16;
+    // the "null" index
+    static final int NIL = -1;
+
+    // the offsets of the fields of a node
+    static final int VALUE = 0, LEFT = 1, RIGHT = 2;
+    private static final int NODE_SIZE = 3;
+
+    int[] nodes;
+    int root;
+    private int size;
+    // the slots from used on have never been taken
+    private int used;
+    // the first free slot below used, the next ones are linked through LEFT
+    private int free;
+
+    public ArraySkewHeap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity: the number of elements that fit before the array grows
+     */
+    public ArraySkewHeap(int capacity) {
+        this.nodes = new int[Math.max(capacity, 1) * NODE_SIZE];
+        this.root = NIL;
+        this.size = 0;
+        this.used = 0;
+        this.free = NIL;
+    }
+
+    /**
+     * Method that adds a node with data provided by @value in the current skew
+     * heap.
+     *
+     * @param value: value to be added in the heap
+     */
+    public void add(int value) {
+        int node = allocate();
+        nodes[node + VALUE] = value;
+        nodes[node + LEFT] = NIL;
+        nodes[node + RIGHT] = NIL;
+        root = merge(root, node);
+        ++size;
+    }
+
+    /**
+     * This method removes and returns the smallest element in the current skew
+     * heap. Its slot is reused by the next add().
+     *
+     * @returns the removed element
+     *
+     * @throws Exception if there are no elements, but minimum was tried to be
+     * removed
+     */
+    public int removeMin() throws Exception {
+        if (root == NIL) {
+            // the same as SkewHeap, the specs demand it like this
+            throw new Exception(SkewHeap.EMPTY_HEAP_REMOVE_EXCEPTION_MESSAGE);
+        }
+        int oldRoot = root;
+        int val = nodes[oldRoot + VALUE];
+        root = merge(nodes[oldRoot + LEFT], nodes[oldRoot + RIGHT]);
+        nodes[oldRoot + LEFT] = free;
+        free = oldRoot;
+        --size;
+        return val;
+    }
+
+    /**
+     * Tests whether there are any elements in the current heap.
+     *
+     * @returns true, if there are any elements and false, otherwise
+     */
+    public boolean empty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // The number of elements that fit in the array
+    public int getCapacity() {
+        return nodes.length / NODE_SIZE;
+    }
+
+    /**
+     * Merges the current skew heap with @other, which is left empty. The nodes of
+     * @other are copied to the array of this heap, so this takes O(m) for
+     * the copy of the m slots of @other and then O(log n) amortized for the merge.
+     */
+    public void merge(ArraySkewHeap other) {
+        if (other == null || other == this || other.size == 0) {
+            return;
+        }
+        ensureCapacity(used + other.used);
+        int base = used;
+        for (int i = 0; i < other.used; i += NODE_SIZE) {
+            nodes[base + i + VALUE] = other.nodes[i + VALUE];
+            nodes[base + i + LEFT] = shift(other.nodes[i + LEFT], base);
+            nodes[base + i + RIGHT] = shift(other.nodes[i + RIGHT], base);
+        }
+        // the free slots of other stay free here, linked before ours
+        int lastFree = shift(other.free, base);
+        if (lastFree != NIL) {
+            while (nodes[lastFree + LEFT] != NIL) {
+                lastFree = nodes[lastFree + LEFT];
+            }
+            nodes[lastFree + LEFT] = free;
+            free = shift(other.free, base);
+        }
+        used += other.used;
+        root = merge(root, base + other.root);
+        size += other.size;
+        other.clear();
+    }
+
+    /*
+     * Measures the length of the rightmost path in number of nodes.
+     */
+    public int getRightPathLength() {
+        int current = root;
+        int length = 0;
+        while (current != NIL) {
+            ++length;
+            current = nodes[current + RIGHT];
+        }
+        return length;
+    }
+
+    private void clear() {
+        root = NIL;
+        size = 0;
+        used = 0;
+        free = NIL;
+    }
+
+    private static int shift(int node, int base) {
+        return (node != NIL) ? node + base : NIL;
+    }
+
+    // Takes a slot from the free list, or the first never used one
+    private int allocate() {
+        if (free != NIL) {
+            int node = free;
+            free = nodes[node + LEFT];
+            return node;
+        }
+        ensureCapacity(used + NODE_SIZE);
+        int node = used;
+        used += NODE_SIZE;
+        return node;
+    }
+
+    // @length is in ints, not in nodes
+    private void ensureCapacity(int length) {
+        if (length > nodes.length) {
+            nodes = Arrays.copyOf(nodes, Math.max(length, nodes.length * 2));
+        }
+    }
+
+    /*
+     * The same merge as in SkewHeap - along the right paths, swapping the children
+     * of every node on the merged path.
+     */
+    private int merge(int root1, int root2) {
+        if (root1 == NIL) {
+            return root2;
+        }
+        if (root2 == NIL) {
+            return root1;
+        }
+
+        int[] nodes = this.nodes;
+        int newRoot;
+        if (nodes[root1 + VALUE] < nodes[root2 + VALUE]) {
+            newRoot = root1;
+            root1 = nodes[root1 + RIGHT];
+        } else {
+            newRoot = root2;
+            root2 = nodes[root2 + RIGHT];
+        }
+        int ptrNew = newRoot;
+
+        while (root1 != NIL && root2 != NIL) {
+            int next;
+            if (nodes[root1 + VALUE] < nodes[root2 + VALUE]) {
+                next = root1;
+                root1 = nodes[root1 + RIGHT];
+            } else {
+                next = root2;
+                root2 = nodes[root2 + RIGHT];
+            }
+            // link next as the right child and swap the children, next ends up on the left
+            nodes[ptrNew + RIGHT] = nodes[ptrNew + LEFT];
+            nodes[ptrNew + LEFT] = next;
+            ptrNew = next;
+        }
+
+        int rest = (root1 != NIL) ? root1 : root2;
+        while (rest != NIL) {
+            int next = rest;
+            rest = nodes[rest + RIGHT];
+            nodes[ptrNew + RIGHT] = nodes[ptrNew + LEFT];
+            nodes[ptrNew + LEFT] = next;
+            ptrNew = next;
+        }
+
+        return newRoot;
+    }
+}
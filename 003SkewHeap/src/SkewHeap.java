@@ -1,4 +1,5 @@
 
+import java.util.ArrayDeque;
 import java.util.LinkedList;
 import java.util.Queue;
 
@@ -12,6 +13,8 @@ import java.util.Queue;
 public class SkewHeap {
     public static final String EMPTY_HEAP_REMOVE_EXCEPTION_MESSAGE =
             "Error! You must not call removeMin() on an empty SkewHeap!";
+    // returned by peekMin() and pollMin() when the heap is empty - "nothing is due"
+    public static final int EMPTY_HEAP_VALUE = Integer.MAX_VALUE;
 
     /**
      * Reference to the root for the current skew heap
@@ -43,6 +46,19 @@ public class SkewHeap {
         this.root = null;
     }
 
+    /**
+     * Builds a heap with the given values in O(n), instead of the O(n log n) of
+     * n add() calls.
+     *
+     * @param values: values to be added in the heap
+     */
+    public static SkewHeap heapify(int[] values) {
+        SkewHeap heap = new SkewHeap();
+        heap.root = heap.build(values);
+        heap.size = values.length;
+        return heap;
+    }
+
     /**
      * Method that adds a node with data provided by @value in the current skew
      * heap.
@@ -55,6 +71,17 @@ public class SkewHeap {
         ++size;
     }
 
+    /**
+     * Adds all the @values - they are built into a heap in O(n) which is then
+     * merged with the current one, instead of merging them one by one.
+     *
+     * @param values: values to be added in the heap
+     */
+    public void addAll(int[] values) {
+        root = merge(root, build(values));
+        size += values.length;
+    }
+
     /**
      * This method removes and returns the smallest element in the current skew
      * heap.
@@ -75,6 +102,67 @@ public class SkewHeap {
         return val;
     }
 
+    /**
+     * Returns the smallest element without removing it, or EMPTY_HEAP_VALUE if
+     * there are no elements. Use peekMin(int) if EMPTY_HEAP_VALUE can be in the heap.
+     */
+    public int peekMin() {
+        return peekMin(EMPTY_HEAP_VALUE);
+    }
+
+    /**
+     * @returns the smallest element, or @valueIfEmpty if there are no elements
+     */
+    public int peekMin(int valueIfEmpty) {
+        return (root != null) ? root.value : valueIfEmpty;
+    }
+
+    /**
+     * Removes and returns the smallest element like removeMin(), but returns
+     * EMPTY_HEAP_VALUE instead of throwing if there are no elements.
+     * Use pollMin(int) if EMPTY_HEAP_VALUE can be in the heap.
+     */
+    public int pollMin() {
+        return pollMin(EMPTY_HEAP_VALUE);
+    }
+
+    /**
+     * @returns the removed smallest element, or @valueIfEmpty if there are no elements
+     */
+    public int pollMin(int valueIfEmpty) {
+        if (root == null) {
+            return valueIfEmpty;
+        }
+        int val = root.value;
+        root = merge(root.left, root.right);
+        --size;
+        return val;
+    }
+
+    /**
+     * Removes the @k smallest elements (or all, if there are fewer) and writes them
+     * in ascending order at the beginning of @out.
+     *
+     * @returns the number of removed elements
+     *
+     * @throws IllegalArgumentException if @k is negative or bigger than the length of @out
+     */
+    public int removeMin(int k, int[] out) {
+        if (k < 0 || k > out.length) {
+            throw new IllegalArgumentException("Cannot remove " + k + " elements into an array of "
+                    + out.length + "!");
+        }
+        int count = Math.min(k, size);
+        Node current = root;
+        for (int i = 0; i < count; i++) {
+            out[i] = current.value;
+            current = merge(current.left, current.right);
+        }
+        root = current;
+        size -= count;
+        return count;
+    }
+
     /**
      * Tests whether there are any elements in the current heap.
      *
@@ -160,6 +248,25 @@ public class SkewHeap {
         return sb.toString();
     }
 
+    /*
+     * Merges the single node heaps of the values in pairs through a FIFO queue - the
+     * heaps that are merged are always of about the same size, so all the merges
+     * take O(n) in total.
+     */
+    private Node build(int[] values) {
+        if (values.length == 0) {
+            return null;
+        }
+        Queue<Node> heaps = new ArrayDeque<Node>(values.length);
+        for (int value : values) {
+            heaps.add(new Node(value));
+        }
+        while (heaps.size() > 1) {
+            heaps.add(merge(heaps.poll(), heaps.poll()));
+        }
+        return heaps.poll();
+    }
+
     /**
      * Method that merges two skew heap data structures referenced to their
      * roots by
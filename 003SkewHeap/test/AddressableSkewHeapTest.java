@@ -0,0 +1,174 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.TreeMap;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class AddressableSkewHeapTest {
+
+    @Test
+    public void testAddReturnsHandles() throws Exception {
+        AddressableSkewHeap instance = new AddressableSkewHeap();
+        AddressableSkewHeap.Node five = instance.add(5);
+        AddressableSkewHeap.Node three = instance.add(3);
+        assertEquals(5, five.getValue());
+        assertEquals(2, instance.size());
+        assertSame(three, instance.getRoot());
+        assertEquals(3, instance.removeMin());
+        assertEquals(5, instance.removeMin());
+        assertTrue(instance.empty());
+    }
+
+    @Test
+    public void testDecreaseKey() throws Exception {
+        AddressableSkewHeap instance = new AddressableSkewHeap();
+        List<AddressableSkewHeap.Node> handles = new ArrayList<AddressableSkewHeap.Node>();
+        for (int i = 0; i < 100; i++) {
+            handles.add(instance.add(i * 10));
+        }
+        instance.decreaseKey(handles.get(50), -1);
+        instance.decreaseKey(handles.get(70), 65);
+        instance.decreaseKey(handles.get(0), 0);
+        assertSame(handles.get(50), instance.getRoot());
+        assertEquals(-1, instance.removeMin());
+        assertEquals(0, instance.removeMin());
+        for (int i = 1; i < 7; i++) {
+            assertEquals(i * 10, instance.removeMin());
+        }
+        assertEquals(65, instance.removeMin());
+        assertEquals(91, instance.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDecreaseKeyWithBiggerValue() {
+        AddressableSkewHeap instance = new AddressableSkewHeap();
+        instance.decreaseKey(instance.add(5), 6);
+    }
+
+    @Test
+    public void testDelete() throws Exception {
+        AddressableSkewHeap instance = new AddressableSkewHeap();
+        List<AddressableSkewHeap.Node> handles = new ArrayList<AddressableSkewHeap.Node>();
+        for (int i = 0; i < 10; i++) {
+            handles.add(instance.add(i));
+        }
+        instance.delete(handles.get(0));
+        instance.delete(handles.get(5));
+        instance.delete(handles.get(9));
+        assertEquals(7, instance.size());
+        for (int i : new int[] {1, 2, 3, 4, 6, 7, 8}) {
+            assertEquals(i, instance.removeMin());
+        }
+        assertTrue(instance.empty());
+    }
+
+    @Test
+    public void testRemovedHandles() throws Exception {
+        AddressableSkewHeap instance = new AddressableSkewHeap();
+        AddressableSkewHeap.Node one = instance.add(1);
+        AddressableSkewHeap.Node two = instance.add(2);
+        instance.removeMin();
+        instance.delete(two);
+        for (AddressableSkewHeap.Node handle : new AddressableSkewHeap.Node[] {one, two}) {
+            try {
+                instance.delete(handle);
+                fail();
+            } catch (IllegalArgumentException e) {
+                assertEquals(AddressableSkewHeap.REMOVED_HANDLE_EXCEPTION_MESSAGE, e.getMessage());
+            }
+        }
+        assertTrue(instance.empty());
+    }
+
+    @Test
+    public void testHandlesStayValidAfterMerge() throws Exception {
+        AddressableSkewHeap first = new AddressableSkewHeap();
+        AddressableSkewHeap second = new AddressableSkewHeap();
+        first.add(10);
+        AddressableSkewHeap.Node twenty = second.add(20);
+        second.add(30);
+        first.merge(second);
+        assertTrue(second.empty());
+        first.decreaseKey(twenty, 5);
+        assertEquals(5, first.removeMin());
+        assertEquals(10, first.removeMin());
+        assertEquals(30, first.removeMin());
+    }
+
+    @Test
+    public void testRandomOperationsMatchPriorityQueue() throws Exception {
+        Random rnd = new Random(7);
+        AddressableSkewHeap instance = new AddressableSkewHeap();
+        // value -> the handles with it
+        TreeMap<Integer, List<AddressableSkewHeap.Node>> live = new TreeMap<Integer, List<AddressableSkewHeap.Node>>();
+        List<AddressableSkewHeap.Node> handles = new ArrayList<AddressableSkewHeap.Node>();
+        for (int i = 0; i < 100_000; i++) {
+            int operation = rnd.nextInt(10);
+            if (operation < 4 || handles.isEmpty()) {
+                AddressableSkewHeap.Node handle = instance.add(rnd.nextInt(10_000));
+                handles.add(handle);
+                live.computeIfAbsent(handle.getValue(), v -> new ArrayList<AddressableSkewHeap.Node>()).add(handle);
+            } else {
+                int index = rnd.nextInt(handles.size());
+                AddressableSkewHeap.Node handle = handles.get(index);
+                if (operation < 6) {
+                    int min = instance.removeMin();
+                    assertEquals((int) live.firstKey(), min);
+                    // removeMin removed one of the handles with the minimum, find which
+                    for (AddressableSkewHeap.Node candidate : live.get(min)) {
+                        if (candidate.removed) {
+                            handle = candidate;
+                        }
+                    }
+                    assertTrue(handle.removed);
+                    index = handles.indexOf(handle);
+                } else if (operation < 8) {
+                    instance.delete(handle);
+                } else {
+                    removeLive(live, handle);
+                    instance.decreaseKey(handle, handle.getValue() - rnd.nextInt(5000));
+                    live.computeIfAbsent(handle.getValue(), v -> new ArrayList<AddressableSkewHeap.Node>()).add(handle);
+                    handle = null;
+                }
+                if (handle != null) {
+                    removeLive(live, handle);
+                    handles.set(index, handles.get(handles.size() - 1));
+                    handles.remove(handles.size() - 1);
+                }
+            }
+            assertEquals(handles.size(), instance.size());
+        }
+        assertValidHeap(instance.getRoot(), null);
+        PriorityQueue<Integer> expected = new PriorityQueue<Integer>();
+        for (AddressableSkewHeap.Node handle : handles) {
+            expected.add(handle.getValue());
+        }
+        while (!expected.isEmpty()) {
+            assertEquals((int) expected.poll(), instance.removeMin());
+        }
+        assertTrue(instance.empty());
+    }
+
+    private static void removeLive(TreeMap<Integer, List<AddressableSkewHeap.Node>> live, AddressableSkewHeap.Node handle) {
+        List<AddressableSkewHeap.Node> withValue = live.get(handle.getValue());
+        withValue.remove(handle);
+        if (withValue.isEmpty()) {
+            live.remove(handle.getValue());
+        }
+    }
+
+    private static void assertValidHeap(AddressableSkewHeap.Node node, AddressableSkewHeap.Node parent) {
+        if (node == null) {
+            return;
+        }
+        assertSame(parent, node.parent);
+        assertFalse(node.removed);
+        if (parent != null) {
+            assertTrue(parent.value <= node.value);
+        }
+        assertValidHeap(node.left, node);
+        assertValidHeap(node.right, node);
+    }
+}
@@ -0,0 +1,88 @@
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Memory and GC of ArraySkewHeap vs SkewHeap.
+ */
+public class ArraySkewHeapPerformanceTest {
+
+    public static final int SIZE = SkewHeapPerformanceTest.SIZE;
+    public static final int QUEUE_SIZE = 100_000;
+
+    @Test
+    public void testBytesPerElement() {
+        java.util.Random rnd = new java.util.Random(1);
+        long before = usedMemory();
+        SkewHeap heap = new SkewHeap();
+        for (int i = 0; i < SIZE; i++) {
+            heap.add(rnd.nextInt());
+        }
+        long heapBytes = usedMemory() - before;
+        assertEquals(SIZE, heap.size());
+        heap = null;
+
+        rnd = new java.util.Random(1);
+        before = usedMemory();
+        ArraySkewHeap arrayHeap = new ArraySkewHeap(SIZE);
+        for (int i = 0; i < SIZE; i++) {
+            arrayHeap.add(rnd.nextInt());
+        }
+        long arrayHeapBytes = usedMemory() - before;
+        assertEquals(SIZE, arrayHeap.size());
+        System.out.println("Bytes per element for " + SIZE + " elements: SkewHeap "
+                + String.format("%.1f", (double) heapBytes / SIZE) + ", ArraySkewHeap "
+                + String.format("%.1f", (double) arrayHeapBytes / SIZE));
+    }
+
+    @Test
+    public void testSteadyQueueChurn() throws Exception {
+        java.util.Random rnd = new java.util.Random(2);
+        SkewHeap heap = new SkewHeap();
+        ArraySkewHeap arrayHeap = new ArraySkewHeap(QUEUE_SIZE);
+        for (int i = 0; i < QUEUE_SIZE; i++) {
+            int num = rnd.nextInt();
+            heap.add(num);
+            arrayHeap.add(num);
+        }
+
+        long collections = gcCount();
+        long beginT = System.nanoTime();
+        for (int i = 0; i < SIZE; i++) {
+            heap.add(heap.removeMin() + rnd.nextInt(1000));
+        }
+        long heapMilliSecs = (System.nanoTime() - beginT) / 1_000_000;
+        long heapCollections = gcCount() - collections;
+
+        collections = gcCount();
+        beginT = System.nanoTime();
+        for (int i = 0; i < SIZE; i++) {
+            arrayHeap.add(arrayHeap.removeMin() + rnd.nextInt(1000));
+        }
+        long arrayHeapMilliSecs = (System.nanoTime() - beginT) / 1_000_000;
+        long arrayHeapCollections = gcCount() - collections;
+
+        assertEquals(QUEUE_SIZE, arrayHeap.size());
+        assertEquals(QUEUE_SIZE, arrayHeap.getCapacity());
+        System.out.println(SIZE + " removeMin+add on a queue of " + QUEUE_SIZE + ": SkewHeap " + heapMilliSecs
+                + " ms, " + heapCollections + " GCs; ArraySkewHeap " + arrayHeapMilliSecs + " ms, "
+                + arrayHeapCollections + " GCs");
+    }
+
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(gc.getCollectionCount(), 0);
+        }
+        return count;
+    }
+}
@@ -0,0 +1,104 @@
+import java.util.PriorityQueue;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class ArraySkewHeapTest {
+
+    @Test
+    public void testNewlyCreatedHeapIsEmpty() {
+        ArraySkewHeap instance = new ArraySkewHeap();
+        assertTrue(instance.empty());
+        assertEquals(0, instance.size());
+    }
+
+    @Test
+    public void testRemoveMinFromEmptyHeap() {
+        ArraySkewHeap instance = new ArraySkewHeap();
+        try {
+            instance.removeMin();
+            fail();
+        } catch (Exception e) {
+            assertEquals(SkewHeap.EMPTY_HEAP_REMOVE_EXCEPTION_MESSAGE, e.getMessage());
+        }
+    }
+
+    @Test
+    public void testSameOrderAsSkewHeap() throws Exception {
+        Random rnd = new Random(3);
+        ArraySkewHeap instance = new ArraySkewHeap(1);
+        SkewHeap expected = new SkewHeap();
+        for (int i = 0; i < 100_000; i++) {
+            if (rnd.nextInt(3) == 0 && !expected.empty()) {
+                assertEquals(expected.removeMin(), instance.removeMin());
+            } else {
+                int value = rnd.nextInt(1000);
+                expected.add(value);
+                instance.add(value);
+            }
+            assertEquals(expected.size(), instance.size());
+        }
+        // the same merges make the same shape
+        assertEquals(expected.getRightPathLength(), instance.getRightPathLength());
+        while (!expected.empty()) {
+            assertEquals(expected.removeMin(), instance.removeMin());
+        }
+        assertTrue(instance.empty());
+    }
+
+    @Test
+    public void testRemovedSlotsAreReused() throws Exception {
+        ArraySkewHeap instance = new ArraySkewHeap(1000);
+        Random rnd = new Random(5);
+        for (int i = 0; i < 1000; i++) {
+            instance.add(rnd.nextInt());
+        }
+        int[] nodes = instance.nodes;
+        for (int i = 0; i < 1_000_000; i++) {
+            instance.removeMin();
+            instance.add(rnd.nextInt());
+        }
+        assertSame(nodes, instance.nodes);
+        assertEquals(1000, instance.getCapacity());
+    }
+
+    @Test
+    public void testMerge() throws Exception {
+        ArraySkewHeap first = new ArraySkewHeap();
+        ArraySkewHeap second = new ArraySkewHeap();
+        PriorityQueue<Integer> expected = new PriorityQueue<Integer>();
+        for (int i = 0; i < 100; i++) {
+            first.add(i * 2);
+            second.add(i * 3);
+            expected.add(i * 2);
+            expected.add(i * 3);
+        }
+        // leave some free slots in both
+        for (int i = 0; i < 10; i++) {
+            assertEquals((int) expected.poll(), Math.min(peek(first), peek(second)));
+            if (peek(first) <= peek(second)) {
+                first.removeMin();
+            } else {
+                second.removeMin();
+            }
+        }
+        first.merge(second);
+        assertTrue(second.empty());
+        assertEquals(expected.size(), first.size());
+        second.add(-1);
+        first.merge(second);
+        expected.add(-1);
+        for (int i = 0; i < 50; i++) {
+            first.add(i * 5);
+            expected.add(i * 5);
+        }
+        while (!expected.isEmpty()) {
+            assertEquals((int) expected.poll(), first.removeMin());
+        }
+        assertTrue(first.empty());
+    }
+
+    private static int peek(ArraySkewHeap heap) {
+        return (heap.root != ArraySkewHeap.NIL) ? heap.nodes[heap.root + ArraySkewHeap.VALUE] : Integer.MAX_VALUE;
+    }
+}
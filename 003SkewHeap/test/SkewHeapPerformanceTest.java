@@ -78,6 +78,37 @@ public class SkewHeapPerformanceTest {
                 " ms. Right path length: " + rightLength + ". Log2(SIZE): " + log2Size);
     }
     
+    @Test
+    public void testHeapifyManyRandomElements() {
+        java.util.Random rnd = new java.util.Random();
+        int[] values = new int[SIZE];
+        int min = Integer.MAX_VALUE;
+        for (int i = 0; i < SIZE; i++) {
+            values[i] = rnd.nextInt();
+            if(values[i] < min){
+                min = values[i];
+            }
+        }
+        
+        long beginT = System.nanoTime();
+        SkewHeap instance = new SkewHeap();
+        for (int value : values) {
+            instance.add(value);
+        }
+        long addMilliSecs = (System.nanoTime() - beginT)/1_000_000;
+        instance = null;
+        
+        beginT = System.nanoTime();
+        instance = SkewHeap.heapify(values);
+        long heapifyMilliSecs = (System.nanoTime() - beginT)/1_000_000;
+        
+        assertEquals(SIZE, instance.size());
+        assertEquals(min, instance.getRoot().value);
+        System.out.println("Time for building a heap of " + SIZE + " random elements: " + addMilliSecs +
+                " ms with add(), " + heapifyMilliSecs + " ms with heapify(). Right path length: " +
+                instance.getRightPathLength() + ". Log2(SIZE): " + log2(SIZE));
+    }
+    
     private double log2(double x){
         return Math.log10(x)/Math.log10(2);
     }
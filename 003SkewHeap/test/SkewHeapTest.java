@@ -259,4 +259,97 @@ public class SkewHeapTest {
         assertNull(other.getRoot());
         assertEquals(0, other.size());
     }
+    
+    @Test
+    public void testHeapifyEmptyArray() {
+        SkewHeap instance = SkewHeap.heapify(new int[0]);
+        assertTrue(instance.empty());
+        assertNull(instance.getRoot());
+    }
+    
+    @Test
+    public void testHeapifyThenGetMinMultipleTimes() throws Exception {
+        java.util.Random rnd = new java.util.Random(11);
+        int[] values = new int[1001];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = rnd.nextInt(500);
+        }
+        SkewHeap instance = SkewHeap.heapify(values);
+        assertEquals(values.length, instance.size());
+        java.util.Arrays.sort(values);
+        for (int value : values) {
+            assertEquals(value, instance.removeMin());
+        }
+        assertTrue(instance.empty());
+    }
+    
+    @Test
+    public void testAddAll() throws Exception {
+        SkewHeap instance = new SkewHeap();
+        for (int i = 0; i < 50; i += 2) {
+            instance.add(i);
+        }
+        int[] values = new int[25];
+        for (int i = 0; i < 25; i++) {
+            values[i] = 49 - 2 * i;
+        }
+        instance.addAll(values);
+        instance.addAll(new int[0]);
+        assertEquals(50, instance.size());
+        for (int i = 0; i < 50; i++) {
+            assertEquals(i, instance.removeMin());
+        }
+        assertTrue(instance.empty());
+    }
+    
+    @Test
+    public void testPeekAndPollOnEmptyHeap() {
+        SkewHeap instance = new SkewHeap();
+        assertEquals(SkewHeap.EMPTY_HEAP_VALUE, instance.peekMin());
+        assertEquals(SkewHeap.EMPTY_HEAP_VALUE, instance.pollMin());
+        assertEquals(-1, instance.peekMin(-1));
+        assertEquals(-1, instance.pollMin(-1));
+        assertEquals(0, instance.size());
+    }
+    
+    @Test
+    public void testPeekDoesNotRemove() {
+        SkewHeap instance = new SkewHeap();
+        instance.add(7);
+        instance.add(3);
+        assertEquals(3, instance.peekMin());
+        assertEquals(3, instance.peekMin(-1));
+        assertEquals(2, instance.size());
+        assertEquals(3, instance.pollMin());
+        assertEquals(7, instance.pollMin(-1));
+        assertEquals(-1, instance.pollMin(-1));
+        assertTrue(instance.empty());
+    }
+    
+    @Test
+    public void testRemoveKMin() throws Exception {
+        SkewHeap instance = new SkewHeap();
+        for (int i = 19; i >= 0; i--) {
+            instance.add(i);
+        }
+        int[] out = new int[8];
+        assertEquals(5, instance.removeMin(5, out));
+        assertArrayEquals(new int[] {0, 1, 2, 3, 4, 0, 0, 0}, out);
+        assertEquals(15, instance.size());
+        assertEquals(0, instance.removeMin(0, out));
+        assertEquals(8, instance.removeMin(8, out));
+        assertArrayEquals(new int[] {5, 6, 7, 8, 9, 10, 11, 12}, out);
+        assertEquals(7, instance.removeMin(8, out));
+        assertEquals(19, out[6]);
+        assertTrue(instance.empty());
+        assertNull(instance.getRoot());
+        assertEquals(0, instance.removeMin(8, out));
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void testRemoveKMinWithTooSmallArray() {
+        SkewHeap instance = new SkewHeap();
+        instance.add(1);
+        instance.removeMin(3, new int[2]);
+    }
 }
\ No newline at end of file